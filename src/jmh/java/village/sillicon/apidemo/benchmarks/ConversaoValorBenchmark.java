@@ -0,0 +1,64 @@
+package village.sillicon.apidemo.benchmarks;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import village.sillicon.apidemo.models.Dinheiro;
+
+// Conversão do valor recebido no path em BigDecimal e o custo que ela carrega para as contas
+// seguintes (subtract/compareTo do serviço). Com -prof gc mostra também a alocação por operação.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConversaoValorBenchmark {
+
+	private final double valorDouble = 0.1;
+	private final String valorTexto = "0.10";
+	private final BigDecimal saldo = new BigDecimal("1234.56");
+
+	@Benchmark
+	public BigDecimal converterDouble() {
+		return new BigDecimal(valorDouble);
+	}
+
+	@Benchmark
+	public BigDecimal converterTexto() {
+		return new BigDecimal(valorTexto);
+	}
+
+	@Benchmark
+	public int subtrairEComparaDouble() {
+		BigDecimal valor = new BigDecimal(valorDouble);
+		return saldo.subtract(valor).compareTo(valor);
+	}
+
+	@Benchmark
+	public int subtrairEComparaTexto() {
+		BigDecimal valor = new BigDecimal(valorTexto);
+		return saldo.subtract(valor).compareTo(valor);
+	}
+
+	@Benchmark
+	public BigDecimal converterDinheiro() {
+		return Dinheiro.converter(valorTexto);
+	}
+
+	@Benchmark
+	public int subtrairEComparaDinheiro() {
+		BigDecimal valor = Dinheiro.converter(valorTexto);
+		return Long.compare(Dinheiro.centavos(saldo.subtract(valor)), Dinheiro.centavos(valor));
+	}
+}
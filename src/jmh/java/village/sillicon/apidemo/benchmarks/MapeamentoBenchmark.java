@@ -0,0 +1,43 @@
+package village.sillicon.apidemo.benchmarks;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.BeanUtils;
+
+import village.sillicon.apidemo.dtos.PessoaDTO;
+import village.sillicon.apidemo.models.Pessoa;
+
+// Custo de devolver uma Pessoa carregada: cópia por reflexão para uma nova entidade (como o
+// PessoaService.acharPorId fazia) contra o record montado à mão
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapeamentoBenchmark {
+
+	private final Pessoa pessoa = new Pessoa("Maria", "12345678901", LocalDate.of(1990, 1, 1));
+
+	@Benchmark
+	public Pessoa copiarComBeanUtils() {
+		Pessoa copia = new Pessoa();
+		BeanUtils.copyProperties(pessoa, copia);
+		return copia;
+	}
+
+	@Benchmark
+	public PessoaDTO mapearParaRecord() {
+		return PessoaDTO.of(pessoa);
+	}
+}
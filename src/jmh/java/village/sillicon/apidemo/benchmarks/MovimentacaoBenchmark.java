@@ -0,0 +1,78 @@
+package village.sillicon.apidemo.benchmarks;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import village.sillicon.apidemo.ApidemoApplication;
+import village.sillicon.apidemo.models.Conta;
+import village.sillicon.apidemo.models.Pessoa;
+import village.sillicon.apidemo.models.Transacao;
+import village.sillicon.apidemo.repositories.ContaRepository;
+import village.sillicon.apidemo.repositories.PessoaRepository;
+import village.sillicon.apidemo.services.TransacaoService;
+
+// Saque e transferência de ponta a ponta (serviço + JPA) contra o H2 dos testes, em cada modo de concorrência
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MovimentacaoBenchmark {
+
+	private static final BigDecimal MUITO = new BigDecimal("9000000000000.00");
+
+	@Param({ "ATOMICO", "PESSIMISTA", "OTIMISTA", "PARTICIONADO" })
+	public String modo;
+
+	private ConfigurableApplicationContext contexto;
+	private TransacaoService transacaoService;
+	private int idOrigem;
+	private int idDestino;
+
+	@Setup
+	public void iniciar() {
+		contexto = new SpringApplicationBuilder(ApidemoApplication.class)
+				.web(WebApplicationType.NONE)
+				.properties("apidemo.transacoes.concorrencia=" + modo, "logging.level.root=WARN")
+				.run();
+		Pessoa pessoa = contexto.getBean(PessoaRepository.class)
+				.save(new Pessoa("Bench", "00000000000", LocalDate.of(1990, 1, 1)));
+		ContaRepository contaRepository = contexto.getBean(ContaRepository.class);
+		idOrigem = contaRepository.save(new Conta(pessoa, MUITO, MUITO, true, 1)).getIdConta();
+		idDestino = contaRepository.save(new Conta(pessoa, BigDecimal.ZERO, MUITO, true, 1)).getIdConta();
+		transacaoService = contexto.getBean(TransacaoService.class);
+	}
+
+	@TearDown
+	public void encerrar() {
+		contexto.close();
+	}
+
+	@Benchmark
+	public Transacao saque() {
+		return transacaoService.saque(idOrigem, BigDecimal.ONE);
+	}
+
+	@Benchmark
+	public Transacao transferencia() {
+		return transacaoService.transferencia(idOrigem, idDestino, BigDecimal.ONE);
+	}
+}
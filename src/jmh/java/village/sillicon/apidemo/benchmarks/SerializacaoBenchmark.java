@@ -0,0 +1,73 @@
+package village.sillicon.apidemo.benchmarks;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import village.sillicon.apidemo.dtos.ContaDTO;
+import village.sillicon.apidemo.dtos.TransacaoDTO;
+import village.sillicon.apidemo.models.Conta;
+import village.sillicon.apidemo.models.Pessoa;
+import village.sillicon.apidemo.models.Transacao;
+import village.sillicon.apidemo.models.Transacao.TipoTransacao;
+
+// Serialização JSON do grafo Transacao -> Conta -> Pessoa comparada com as projeções da API
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializacaoBenchmark {
+
+	private ObjectMapper objectMapper;
+	private Transacao transacao;
+	private Conta conta;
+	private TransacaoDTO transacaoDTO;
+	private ContaDTO contaDTO;
+
+	@Setup
+	public void preparar() {
+		// Mesmos módulos (datas do java.time) que o ObjectMapper do Spring Boot
+		objectMapper = Jackson2ObjectMapperBuilder.json().build();
+		Pessoa pessoa = new Pessoa("Bench", "00000000000", LocalDate.of(1990, 1, 1));
+		conta = new Conta(pessoa, new BigDecimal("5000.00"), new BigDecimal("1000.00"), true, 1);
+		transacao = new Transacao(conta, new BigDecimal("100.00"), TipoTransacao.DEPOSITO);
+		transacaoDTO = TransacaoDTO.of(transacao);
+		contaDTO = ContaDTO.of(conta);
+	}
+
+	@Benchmark
+	public byte[] transacaoEntidade() throws Exception {
+		return objectMapper.writeValueAsBytes(transacao);
+	}
+
+	@Benchmark
+	public byte[] transacaoDTO() throws Exception {
+		return objectMapper.writeValueAsBytes(transacaoDTO);
+	}
+
+	@Benchmark
+	public byte[] contaEntidade() throws Exception {
+		return objectMapper.writeValueAsBytes(conta);
+	}
+
+	@Benchmark
+	public byte[] contaDTO() throws Exception {
+		return objectMapper.writeValueAsBytes(contaDTO);
+	}
+}
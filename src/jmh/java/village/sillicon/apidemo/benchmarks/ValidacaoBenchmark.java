@@ -0,0 +1,59 @@
+package village.sillicon.apidemo.benchmarks;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import village.sillicon.apidemo.models.Conta;
+import village.sillicon.apidemo.models.Pessoa;
+import village.sillicon.apidemo.models.Transacao.TipoTransacao;
+import village.sillicon.apidemo.services.TransacaoService;
+
+// TransacaoService.validarTransacao isolado: sem Spring e sem banco (o serviço é criado sem repositórios)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidacaoBenchmark {
+
+	private TransacaoService transacaoService;
+	private Conta conta;
+	private BigDecimal valor;
+
+	@Setup
+	public void preparar() {
+		transacaoService = new TransacaoService();
+		conta = new Conta(new Pessoa("Bench", "00000000000", LocalDate.of(1990, 1, 1)),
+				new BigDecimal("5000.00"), new BigDecimal("1000.00"), true, 1);
+		conta.registrarSaque(new BigDecimal("250.00"), LocalDate.now());
+		valor = new BigDecimal("100.00");
+	}
+
+	@Benchmark
+	public Boolean validarSaque() {
+		return transacaoService.validarTransacao(conta, TipoTransacao.SAQUE, valor);
+	}
+
+	@Benchmark
+	public Boolean validarTransferenciaEnviada() {
+		return transacaoService.validarTransacao(conta, TipoTransacao.TRANSFERENCIA_ENVIADA, valor);
+	}
+
+	@Benchmark
+	public Boolean validarDeposito() {
+		return transacaoService.validarTransacao(conta, TipoTransacao.DEPOSITO, valor);
+	}
+}
@@ -2,8 +2,14 @@ package village.sillicon.apidemo;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcTransactionManagerAutoConfiguration;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
-@SpringBootApplication
+// O R2DBC da API reativa é configurado em ReativoConfig: a configuração automática criaria um
+// ConnectionFactory que desliga o DataSource do JPA e um segundo gerenciador de transações
+@SpringBootApplication(exclude = { R2dbcAutoConfiguration.class, R2dbcTransactionManagerAutoConfiguration.class })
+@EnableScheduling
 public class ApidemoApplication {
 
 	public static void main(String[] args) {
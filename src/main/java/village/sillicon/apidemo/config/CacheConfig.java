@@ -0,0 +1,46 @@
+package village.sillicon.apidemo.config;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.support.SimpleCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+// Cache em memória das leituras de Conta e Pessoa, dos CPFs sabidamente não cadastrados e das
+// respostas por Idempotency-Key. Cada cache
+// tem sua própria especificação do Caffeine (tamanho/expiração) e as escritas e remoções feitas
+// dentro de uma transação só acontecem depois do commit.
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String CONTAS = "contas";
+    public static final String PESSOAS = "pessoas";
+    public static final String IDEMPOTENCIA = "idempotencia";
+    public static final String CPFS_INEXISTENTES = "cpfsInexistentes";
+
+    @Bean
+    public CacheManager cacheManager(
+            @Value("${apidemo.cache.contas.spec:maximumSize=10000,expireAfterWrite=30s}") String specContas,
+            @Value("${apidemo.cache.pessoas.spec:maximumSize=10000,expireAfterWrite=10m}") String specPessoas,
+            @Value("${apidemo.cache.idempotencia.spec:maximumSize=100000,expireAfterWrite=24h}") String specIdempotencia,
+            @Value("${apidemo.cache.cpfs-inexistentes.spec:maximumSize=100000,expireAfterWrite=30s}") String specCpfsInexistentes) {
+        SimpleCacheManager gerenciador = new SimpleCacheManager();
+        gerenciador.setCaches(List.of(criarCache(CONTAS, specContas), criarCache(PESSOAS, specPessoas),
+                criarCache(IDEMPOTENCIA, specIdempotencia), criarCache(CPFS_INEXISTENTES, specCpfsInexistentes)));
+        gerenciador.afterPropertiesSet();
+        return new TransactionAwareCacheManagerProxy(gerenciador);
+    }
+
+    // recordStats() alimenta as métricas cache.gets (hit/miss) do Actuator
+    private CaffeineCache criarCache(String nome, String spec) {
+        return new CaffeineCache(nome, Caffeine.from(spec).recordStats().build());
+    }
+}
@@ -0,0 +1,79 @@
+package village.sillicon.apidemo.config;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+
+// Cache de segundo nível do Hibernate (JCache com o Caffeine por baixo). Pessoa fica em cache por
+// id, assim carregar uma Conta ou Transacao não busca de novo a Pessoa; as consultas marcadas como
+// cacheáveis em PessoaRepository guardam o resultado até a tabela mudar.
+// Conta fica de fora: os UPDATEs em massa das movimentações invalidariam a região inteira a cada saque.
+// Os acertos e falhas por região saem em hibernate.second.level.cache.* e hibernate.cache.query.*
+@Configuration
+public class CacheSegundoNivelConfig {
+
+    public static final String REGIAO_PESSOAS = "entidades.pessoas";
+    public static final String REGIAO_CONSULTAS_PESSOAS = "consultas.pessoas";
+
+    // Regiões usadas pelo Hibernate para o cache de consultas
+    private static final String REGIAO_CONSULTAS_PADRAO = "default-query-results-region";
+    private static final String REGIAO_TIMESTAMPS = "default-update-timestamps-region";
+
+    // Um gerenciador por contexto: dois contextos (ex.: nos testes) com bancos diferentes não
+    // compartilham as entradas
+    @Bean
+    public CacheManager cacheManagerSegundoNivel(
+            @Value("${apidemo.cache.segundo-nivel.pessoas.tamanho-maximo:10000}") long tamanhoPessoas,
+            @Value("${apidemo.cache.segundo-nivel.consultas.tamanho-maximo:10000}") long tamanhoConsultas,
+            @Value("${apidemo.cache.segundo-nivel.expiracao:10m}") Duration expiracao) {
+        CachingProvider provedor = Caching.getCachingProvider(CaffeineCachingProvider.class.getName());
+        CacheManager gerenciador = provedor.getCacheManager(URI.create("apidemo-" + UUID.randomUUID()),
+                getClass().getClassLoader());
+        criarRegiao(gerenciador, REGIAO_PESSOAS, tamanhoPessoas, expiracao);
+        criarRegiao(gerenciador, REGIAO_CONSULTAS_PESSOAS, tamanhoConsultas, expiracao);
+        criarRegiao(gerenciador, REGIAO_CONSULTAS_PADRAO, tamanhoConsultas, expiracao);
+        // Uma entrada por tabela; não pode expirar nem ser removida antes das consultas que protege
+        criarRegiao(gerenciador, REGIAO_TIMESTAMPS, -1, null);
+        return gerenciador;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer cacheSegundoNivel(CacheManager cacheManagerSegundoNivel) {
+        return propriedades -> {
+            propriedades.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            propriedades.put(AvailableSettings.USE_QUERY_CACHE, true);
+            propriedades.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            propriedades.put(ConfigSettings.CACHE_MANAGER, cacheManagerSegundoNivel);
+            // Toda região precisa estar declarada acima, com tamanho definido
+            propriedades.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+        };
+    }
+
+    // tamanhoMaximo < 0 deixa a região sem limite
+    private void criarRegiao(CacheManager gerenciador, String nome, long tamanhoMaximo, Duration expiracao) {
+        CaffeineConfiguration<Object, Object> configuracao = new CaffeineConfiguration<>();
+        if (tamanhoMaximo >= 0) {
+            configuracao.setMaximumSize(OptionalLong.of(tamanhoMaximo));
+        }
+        if (expiracao != null) {
+            configuracao.setExpireAfterWrite(OptionalLong.of(expiracao.toNanos()));
+        }
+        configuracao.setStatisticsEnabled(true);
+        gerenciador.createCache(nome, configuracao);
+    }
+}
@@ -0,0 +1,69 @@
+package village.sillicon.apidemo.config;
+
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+// Limita quantas requisições da API falam com o banco ao mesmo tempo. Com threads virtuais o Tomcat
+// aceita praticamente qualquer número de requisições; sem este limite a fila só mudaria de lugar
+// e iria parar no pool do Hikari, estourando connection-timeout em vez de responder 503 rápido.
+@Component
+public class LimiteBancoFilter extends OncePerRequestFilter {
+
+    private final Semaphore permissoes;
+    private final long esperaMaximaMs;
+
+    public LimiteBancoFilter(
+            @Value("${apidemo.banco.concorrencia-maxima:${spring.datasource.hikari.maximum-pool-size:10}}") int concorrenciaMaxima,
+            @Value("${apidemo.banco.espera-maxima-ms:2000}") long esperaMaximaMs) {
+        this.permissoes = new Semaphore(concorrenciaMaxima, true);
+        this.esperaMaximaMs = esperaMaximaMs;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        String caminho = request.getRequestURI().substring(request.getContextPath().length());
+        return !(caminho.startsWith("/transacoes/") || caminho.startsWith("/contas/")
+                || caminho.startsWith("/pessoas/"));
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain) throws ServletException, IOException {
+        if (!reservar()) {
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), "Banco de dados ocupado, tente novamente");
+            return;
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            liberar();
+        }
+    }
+
+    // Também para o trabalho que uma requisição espalha em outras threads, cada uma com a sua conexão
+    // (ex.: os lotes da importação de contas): cada thread conta como mais uma requisição
+    public boolean reservar() {
+        try {
+            return permissoes.tryAcquire(esperaMaximaMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    public void liberar() {
+        permissoes.release();
+    }
+}
@@ -0,0 +1,70 @@
+package village.sillicon.apidemo.config;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+// Mede o atraso da réplica por batimento: grava o horário no primário e lê o último que chegou à
+// réplica. Acima de apidemo.replica.atraso-maximo-ms (ou sem resposta da réplica) as leituras
+// voltam para o primário até ela alcançar. O atraso medido inclui até um intervalo de batimento.
+// A tabela batimentos_replica vem da migração V10.
+public class MonitorReplica {
+
+    private static final Logger log = LoggerFactory.getLogger(MonitorReplica.class);
+
+    private static final String ATUALIZAR = "UPDATE batimentos_replica SET instante = ? WHERE id = 1";
+    private static final String INSERIR = "INSERT INTO batimentos_replica (id, instante) VALUES (1, ?)";
+    private static final String LER = "SELECT instante FROM batimentos_replica WHERE id = 1";
+
+    private final JdbcTemplate primario;
+    private final JdbcTemplate replica;
+    private final RoteamentoDataSource roteamento;
+    private final long atrasoMaximoMs;
+    private volatile double atrasoMs = Double.NaN;
+
+    public MonitorReplica(DataSource primario, DataSource replica, RoteamentoDataSource roteamento,
+            long atrasoMaximoMs, MeterRegistry meterRegistry) {
+        this.primario = new JdbcTemplate(primario);
+        this.replica = new JdbcTemplate(replica);
+        this.roteamento = roteamento;
+        this.atrasoMaximoMs = atrasoMaximoMs;
+        Gauge.builder("apidemo.replica.atraso", this, monitor -> monitor.atrasoMs)
+                .description("Atraso da réplica de leitura em milissegundos (NaN se ela não responde)")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(initialDelay = 0, fixedDelayString = "${apidemo.replica.batimento-ms:500}")
+    public void bater() {
+        long agora = System.currentTimeMillis();
+        try {
+            if (primario.update(ATUALIZAR, agora) == 0) {
+                primario.update(INSERIR, agora);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Falha ao gravar o batimento da réplica no primário", e);
+        }
+        try {
+            Long instante = replica.queryForObject(LER, Long.class);
+            atrasoMs = instante == null ? Double.NaN : agora - instante;
+        } catch (RuntimeException e) {
+            log.debug("Réplica sem batimento", e);
+            atrasoMs = Double.NaN;
+        }
+        boolean emDia = atrasoMs <= atrasoMaximoMs;
+        if (emDia != roteamento.isReplicaEmDia()) {
+            log.info(emDia ? "Réplica em dia, leituras voltam para ela" : "Réplica atrasada ({} ms), leituras no primário",
+                    atrasoMs);
+        }
+        roteamento.setReplicaEmDia(emDia);
+    }
+
+    public double atrasoMs() {
+        return atrasoMs;
+    }
+}
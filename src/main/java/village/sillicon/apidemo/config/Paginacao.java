@@ -0,0 +1,22 @@
+package village.sillicon.apidemo.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+// Limites da paginação por cursor (?after=<id>&limit=) usada nas listagens
+@Component
+public class Paginacao {
+
+    @Value("${apidemo.paginacao.limite-padrao:100}")
+    private int limitePadrao;
+    @Value("${apidemo.paginacao.limite-maximo:1000}")
+    private int limiteMaximo;
+
+    public Limit limite(Integer pedido) {
+        if (pedido == null || pedido <= 0) {
+            return Limit.of(limitePadrao);
+        }
+        return Limit.of(Math.min(pedido, limiteMaximo));
+    }
+}
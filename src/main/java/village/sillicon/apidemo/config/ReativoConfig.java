@@ -0,0 +1,86 @@
+package village.sillicon.apidemo.config;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.metrics.r2dbc.ConnectionPoolMetrics;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import village.sillicon.apidemo.reativo.BancoReativo;
+import village.sillicon.apidemo.reativo.RotasReativas;
+import village.sillicon.apidemo.reativo.ServidorReativo;
+import village.sillicon.apidemo.reativo.TransacaoReativaService;
+import village.sillicon.apidemo.services.FluxoMovimentos;
+import village.sillicon.apidemo.services.TransacaoService;
+import village.sillicon.apidemo.services.TransacaoService.ModoConcorrencia;
+
+// API reativa (WebFlux + R2DBC), ligada só quando apidemo.reativo.url está definida. Sobe um
+// servidor Netty em apidemo.reativo.porta com as movimentações e leituras de /transacoes e
+// /contas; a API servlet continua na porta normal.
+@Configuration
+@ConditionalOnProperty(prefix = "apidemo.reativo", name = "url")
+public class ReativoConfig {
+
+    @Bean
+    public BancoReativo bancoReativo(@Value("${apidemo.reativo.url}") String url,
+            @Value("${apidemo.reativo.username:${spring.datasource.username:}}") String usuario,
+            @Value("${apidemo.reativo.password:${spring.datasource.password:}}") String senha,
+            @Value("${apidemo.reativo.pool.tamanho-maximo:20}") int tamanhoMaximo,
+            @Value("${apidemo.reativo.pool.espera-maxima-ms:2000}") long esperaMaximaMs,
+            @Value("${apidemo.transacoes.concorrencia:ATOMICO}") ModoConcorrencia modoConcorrencia,
+            MeterRegistry meterRegistry) {
+        // Os saldos do motor ficam em memória; um UPDATE direto no banco passaria por cima deles
+        if (modoConcorrencia == ModoConcorrencia.PARTICIONADO) {
+            throw new IllegalStateException("A API reativa não pode ser usada com apidemo.transacoes.concorrencia=PARTICIONADO");
+        }
+        ConnectionFactoryOptions.Builder opcoes = ConnectionFactoryOptions.parse(url).mutate()
+                .option(ConnectionFactoryOptions.USER, usuario);
+        if (!senha.isEmpty()) {
+            opcoes.option(ConnectionFactoryOptions.PASSWORD, senha);
+        }
+        ConnectionPool pool = new ConnectionPool(ConnectionPoolConfiguration
+                .builder(ConnectionFactories.get(opcoes.build()))
+                .name("reativo")
+                .maxSize(tamanhoMaximo)
+                .maxAcquireTime(Duration.ofMillis(esperaMaximaMs))
+                .build());
+        // r2dbc.pool.* em /actuator/metrics, ao lado de hikaricp.*
+        new ConnectionPoolMetrics(pool, "reativo", Tags.empty()).bindTo(meterRegistry);
+        return new BancoReativo(pool);
+    }
+
+    @Bean
+    public TransacaoReativaService transacaoReativaService(BancoReativo bancoReativo,
+            TransacaoService transacaoService, FluxoMovimentos fluxoMovimentos, Paginacao paginacao,
+            CacheManager cacheManager, MeterRegistry meterRegistry) {
+        return new TransacaoReativaService(bancoReativo, transacaoService, fluxoMovimentos, paginacao,
+                cacheManager, meterRegistry);
+    }
+
+    // JSON com o mesmo ObjectMapper da API servlet
+    @Bean
+    public ServidorReativo servidorReativo(TransacaoReativaService transacaoReativaService, ObjectMapper objectMapper,
+            @Value("${apidemo.reativo.porta:8081}") int porta) {
+        HandlerStrategies estrategias = HandlerStrategies.builder()
+                .codecs(codecs -> {
+                    codecs.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(objectMapper));
+                    codecs.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(objectMapper));
+                })
+                .build();
+        return new ServidorReativo(RotasReativas.criar(transacaoReativaService), estrategias, porta);
+    }
+}
@@ -0,0 +1,70 @@
+package village.sillicon.apidemo.config;
+
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+// Réplica de leitura, ligada só quando apidemo.replica.url está definida. O primário continua
+// configurado por spring.datasource.*; a réplica por apidemo.replica.* (pool em apidemo.replica.hikari.*).
+@Configuration
+@ConditionalOnProperty(prefix = "apidemo.replica", name = "url")
+public class ReplicaConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primario(DataSourceProperties propriedades) {
+        HikariDataSource primario = propriedades.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        primario.setPoolName("primario");
+        return primario;
+    }
+
+    @Bean
+    @ConfigurationProperties("apidemo.replica.hikari")
+    public HikariDataSource replica(@Value("${apidemo.replica.url}") String url,
+            @Value("${apidemo.replica.username:${spring.datasource.username:}}") String usuario,
+            @Value("${apidemo.replica.password:${spring.datasource.password:}}") String senha) {
+        HikariDataSource replica = DataSourceBuilder.create().type(HikariDataSource.class)
+                .url(url).username(usuario).password(senha).build();
+        replica.setPoolName("replica");
+        return replica;
+    }
+
+    @Bean
+    public RoteamentoDataSource roteamentoDataSource(@Qualifier("primario") DataSource primario,
+            @Qualifier("replica") DataSource replica) {
+        RoteamentoDataSource roteamento = new RoteamentoDataSource();
+        roteamento.setTargetDataSources(Map.of(RoteamentoDataSource.Destino.PRIMARIO, primario,
+                RoteamentoDataSource.Destino.REPLICA, replica));
+        roteamento.setDefaultTargetDataSource(primario);
+        return roteamento;
+    }
+
+    // A conexão real só é pega no primeiro comando, quando a transação já sabe se é somente leitura
+    @Bean
+    @Primary
+    public DataSource dataSource(RoteamentoDataSource roteamento) {
+        return new LazyConnectionDataSourceProxy(roteamento);
+    }
+
+    @Bean
+    public MonitorReplica monitorReplica(@Qualifier("primario") DataSource primario,
+            @Qualifier("replica") DataSource replica, RoteamentoDataSource roteamento,
+            @Value("${apidemo.replica.atraso-maximo-ms:2000}") long atrasoMaximoMs, MeterRegistry meterRegistry) {
+        return new MonitorReplica(primario, replica, roteamento, atrasoMaximoMs, meterRegistry);
+    }
+}
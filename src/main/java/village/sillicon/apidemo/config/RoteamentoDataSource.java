@@ -0,0 +1,42 @@
+package village.sillicon.apidemo.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import village.sillicon.apidemo.services.ContaService;
+
+// Escolhe o pool a cada conexão. Vão para a réplica só as transações abertas por métodos dos
+// serviços com @Transactional(readOnly = true); os métodos somente leitura dos repositórios chamados
+// fora deles (ex.: o findById antes de um save) continuam no primário, para não ler dado atrasado
+// e depois gravar em cima dele.
+public class RoteamentoDataSource extends AbstractRoutingDataSource {
+
+    public enum Destino {
+        PRIMARIO,
+        REPLICA
+    }
+
+    private static final String SERVICOS = ContaService.class.getPackageName() + ".";
+
+    // Desligado até o MonitorReplica medir o atraso pela primeira vez
+    private volatile boolean replicaEmDia;
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (replicaEmDia && TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            String transacao = TransactionSynchronizationManager.getCurrentTransactionName();
+            if (transacao != null && transacao.startsWith(SERVICOS)) {
+                return Destino.REPLICA;
+            }
+        }
+        return Destino.PRIMARIO;
+    }
+
+    public void setReplicaEmDia(boolean replicaEmDia) {
+        this.replicaEmDia = replicaEmDia;
+    }
+
+    public boolean isReplicaEmDia() {
+        return replicaEmDia;
+    }
+}
@@ -1,11 +1,29 @@
 package village.sillicon.apidemo.controllers;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import village.sillicon.apidemo.dtos.ContaDTO;
+import village.sillicon.apidemo.dtos.ExtratoPagina;
+import village.sillicon.apidemo.dtos.ResultadoConciliacao;
+import village.sillicon.apidemo.dtos.ResultadoImportacao;
 import village.sillicon.apidemo.models.Conta;
+import village.sillicon.apidemo.models.Transacao.TipoTransacao;
+import village.sillicon.apidemo.services.ConciliacaoService;
 import village.sillicon.apidemo.services.ContaService;
+import village.sillicon.apidemo.services.FluxoMovimentos;
+import village.sillicon.apidemo.services.ImportacaoContas;
+import village.sillicon.apidemo.services.TransacaoService;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -20,25 +38,77 @@ import org.springframework.web.bind.annotation.PathVariable;
 public class ContaController {
     @Autowired
     private ContaService contaService;
+    @Autowired
+    private TransacaoService transacaoService;
+    @Autowired
+    private FluxoMovimentos fluxoMovimentos;
+    @Autowired
+    private ConciliacaoService conciliacaoService;
+    @Autowired
+    private ImportacaoContas importacaoContas;
 
     @PostMapping("criar")
-    public Conta criarConta(@RequestBody Conta conta) {
-        return contaService.criar(conta);
+    public ContaDTO criarConta(@RequestBody Conta conta) {
+        return ContaDTO.of(contaService.criar(conta));
+    }
+
+    // Cadastro em massa de pessoas com uma conta cada, lido aos poucos do corpo: CSV com cabeçalho
+    // (colunas do /contas/exportar) ou NDJSON, um objeto por linha. Devolve as linhas recusadas e o motivo;
+    // se um lote falhou, 500 com o mesmo resultado, parcial, e a linha em que a importação parou
+    @PostMapping(value = "importar", consumes = { "text/csv", "application/x-ndjson" })
+    public ResponseEntity<ResultadoImportacao> importar(InputStream corpo,
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String tipo) throws IOException {
+        ResultadoImportacao resultado = importacaoContas.importar(corpo, ImportacaoContas.Formato.doTipo(tipo));
+        return ResponseEntity.status(resultado.interrompida() ? HttpStatus.INTERNAL_SERVER_ERROR : HttpStatus.OK)
+                .body(resultado);
+    }
+
+    // Todas as contas com o titular em streaming, no formato aceito por /contas/importar
+    @GetMapping("exportar")
+    public ResponseEntity<StreamingResponseBody> exportar(
+            @RequestParam(defaultValue = "CSV") ImportacaoContas.Formato formato) {
+        return ResponseEntity.ok().contentType(formato.tipo())
+                .body(saida -> importacaoContas.exportar(saida, formato));
     }
 
     @GetMapping("listar")
-    public List<Conta> listarContas() {
-        return contaService.listar();
+    public List<ContaDTO> listarContas(@RequestParam(defaultValue = "0") int after,
+            @RequestParam(required = false) Integer limit) {
+        return contaService.listar(after, limit);
     }
 
+    // consistente=true ignora o cache e lê o saldo direto do banco
     @GetMapping("buscarPorId/{id}")
-    public Conta buscarPorId(@PathVariable int id) {
-        return contaService.acharPorId(id);
+    public ContaDTO buscarPorId(@PathVariable int id, @RequestParam(defaultValue = "false") boolean consistente) {
+        return consistente ? contaService.buscarPorIdSemCache(id) : contaService.buscarPorId(id);
+    }
+
+    @GetMapping("{id}/extrato")
+    public ExtratoPagina extrato(@PathVariable int id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate de,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate ate,
+            @RequestParam(required = false) TipoTransacao tipo,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor) {
+        return transacaoService.extrato(id, de, ate, tipo, limit, cursor);
+    }
+
+    // Movimentos da conta conforme acontecem; ?after=<id> ou Last-Event-ID retoma de onde parou
+    @GetMapping(value = "{id}/movimentos/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamMovimentos(@PathVariable int id, @RequestParam(required = false) Integer after,
+            @RequestHeader(name = "Last-Event-ID", required = false) Integer ultimoEvento) {
+        return fluxoMovimentos.assinar(id, ultimoEvento != null ? ultimoEvento : after);
+    }
+
+    // Roda a conciliação agora, sem esperar o agendamento
+    @PostMapping("conciliar")
+    public ResultadoConciliacao conciliar() {
+        return conciliacaoService.conciliar();
     }
 
     @PutMapping("atualizar/{id}")
-    public Conta atualizarConta(@PathVariable int id, @RequestBody Conta contaAtualizada) {
-        return contaService.atualizar(id, contaAtualizada);
+    public ContaDTO atualizarConta(@PathVariable int id, @RequestBody Conta contaAtualizada) {
+        return ContaDTO.of(contaService.atualizar(id, contaAtualizada));
     }
 
     @DeleteMapping("deletar/{id}")
@@ -2,6 +2,8 @@ package village.sillicon.apidemo.controllers;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
+import village.sillicon.apidemo.dtos.PessoaDTO;
+import village.sillicon.apidemo.dtos.ResumoPessoa;
 import village.sillicon.apidemo.models.Pessoa;
 import village.sillicon.apidemo.services.PessoaService;
 
@@ -20,18 +22,44 @@ public class PessoaController {
         return pessoaService.criar(pessoa);
     }
 
-    // Listar todas as pessoas
+    // Listar pessoas, paginado por cursor (?after=<idPessoa>&limit=)
     @GetMapping("listar")
-    public List<Pessoa> listarPessoas() {
-        return pessoaService.listar();
+    public List<Pessoa> listarPessoas(@RequestParam(defaultValue = "0") int after,
+            @RequestParam(required = false) Integer limit) {
+        return pessoaService.listar(after, limit);
     }
 
     // Buscar pessoa por ID
     @GetMapping("buscarPorId/{id}")
-    public Pessoa buscarPorId(@PathVariable int id) {
+    public PessoaDTO buscarPorId(@PathVariable int id) {
         return pessoaService.acharPorId(id);
     }
 
+    // Buscar pessoa por CPF (somente dígitos)
+    @GetMapping("cpf/{cpf}")
+    public PessoaDTO buscarPorCpf(@PathVariable String cpf) {
+        return pessoaService.buscarPorCpf(cpf);
+    }
+
+    // Verifica se o CPF já está cadastrado, sem trazer a pessoa
+    @GetMapping("cpf/{cpf}/existe")
+    public boolean cpfExiste(@PathVariable String cpf) {
+        return pessoaService.cpfExiste(cpf);
+    }
+
+    // Saldo total, contas ativas e saques do dia de uma pessoa
+    @GetMapping("{id}/resumo")
+    public ResumoPessoa resumo(@PathVariable int id) {
+        return pessoaService.resumo(id);
+    }
+
+    // Resumo de várias pessoas, paginado por cursor (?after=<idPessoa>&limit=)
+    @GetMapping("resumo")
+    public List<ResumoPessoa> listarResumos(@RequestParam(defaultValue = "0") int after,
+            @RequestParam(required = false) Integer limit) {
+        return pessoaService.listarResumos(after, limit);
+    }
+
     // Atualizar pessoa
     @PutMapping("atualizar/{id}")
     public Pessoa atualizarPessoa(@PathVariable int id, @RequestBody Pessoa pessoaAtualizada) {
@@ -1,16 +1,30 @@
 package village.sillicon.apidemo.controllers;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import village.sillicon.apidemo.config.LimiteBancoFilter;
+import village.sillicon.apidemo.dtos.ContaDTO;
+import village.sillicon.apidemo.dtos.OperacaoLote;
+import village.sillicon.apidemo.dtos.ResultadoLote;
+import village.sillicon.apidemo.dtos.TransacaoDTO;
+import village.sillicon.apidemo.exceptions.MovimentacaoEmAndamentoException;
+import village.sillicon.apidemo.models.Conta;
+import village.sillicon.apidemo.models.Dinheiro;
 import village.sillicon.apidemo.models.Pessoa;
 import village.sillicon.apidemo.models.Transacao;
 import village.sillicon.apidemo.repositories.TransacaoRepository;
+import village.sillicon.apidemo.services.FluxoMovimentos;
+import village.sillicon.apidemo.services.IdempotenciaService;
 import village.sillicon.apidemo.services.TransacaoService;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @RestController
@@ -18,33 +32,88 @@ import java.util.Optional;
 public class TransacaoController {
     @Autowired
     private TransacaoService transacaoService;
+    @Autowired
+    private FluxoMovimentos fluxoMovimentos;
+    @Autowired
+    private LimiteBancoFilter limiteBanco;
 
     @PostMapping("saque/{id}/{valor}")
-    public Transacao saque(@PathVariable int id, @PathVariable double valor) {
-        BigDecimal valorConvertido = new BigDecimal(valor);
-        return transacaoService.saque(id, valorConvertido);
+    public TransacaoDTO saque(@PathVariable int id, @PathVariable String valor,
+            @RequestHeader(name = IdempotenciaService.CABECALHO, required = false) String chaveIdempotencia) {
+        BigDecimal valorConvertido = Dinheiro.converter(valor);
+        return transacaoService.saque(id, valorConvertido, chaveIdempotencia);
     }
 
     @PostMapping("deposito/{id}/{valor}")
-    public Transacao deposito(@PathVariable int id, @PathVariable double valor) {
-        BigDecimal valorConvertido = new BigDecimal(valor);
-        return transacaoService.deposito(id, valorConvertido);
+    public TransacaoDTO deposito(@PathVariable int id, @PathVariable String valor,
+            @RequestHeader(name = IdempotenciaService.CABECALHO, required = false) String chaveIdempotencia) {
+        BigDecimal valorConvertido = Dinheiro.converter(valor);
+        return transacaoService.deposito(id, valorConvertido, chaveIdempotencia);
     }
 
     @PostMapping("transferencia/{idRecebe}/{idEnvia}/{valor}")
-    public Transacao transferencia(@PathVariable int idRecebe,
-            @PathVariable int idEnvia, @PathVariable double valor) {
-        BigDecimal valorConvertido = new BigDecimal(valor);
-        return transacaoService.transferencia(idEnvia, idRecebe, valorConvertido);
+    public TransacaoDTO transferencia(@PathVariable int idRecebe,
+            @PathVariable int idEnvia, @PathVariable String valor,
+            @RequestHeader(name = IdempotenciaService.CABECALHO, required = false) String chaveIdempotencia) {
+        BigDecimal valorConvertido = Dinheiro.converter(valor);
+        return transacaoService.transferencia(idEnvia, idRecebe, valorConvertido, chaveIdempotencia);
+    }
+
+    // O motor de saldos aceitou a movimentação e ainda não gravou: não é erro, o dinheiro vai se mover.
+    // A mesma requisição com a mesma chave devolve o resultado quando ele existir.
+    @ExceptionHandler(MovimentacaoEmAndamentoException.class)
+    public ResponseEntity<Map<String, String>> movimentacaoEmAndamento(MovimentacaoEmAndamentoException e) {
+        return ResponseEntity.accepted()
+                .header(IdempotenciaService.CABECALHO, e.getChaveIdempotencia())
+                .body(Map.of("mensagem", e.getMessage(), "chave", e.getChaveIdempotencia()));
+    }
+
+    @PostMapping("lote")
+    public List<ResultadoLote> lote(@RequestBody List<OperacaoLote> operacoes) {
+        return transacaoService.processarLote(operacoes);
+    }
+
+    @PostMapping("recalcularSaqueDiario/{id}")
+    public ContaDTO recalcularSaqueDiario(@PathVariable int id) {
+        return transacaoService.recalcularSaqueDiario(id);
+    }
+
+    @PostMapping("recalcularSaquesDiarios")
+    public int recalcularSaquesDiarios() {
+        return transacaoService.recalcularSaquesDiarios();
     }
 
     @GetMapping("listar")
-    public List<Transacao> listarTransacoes() {
-        return transacaoService.listar();
+    public List<TransacaoDTO> listarTransacoes(@RequestParam(defaultValue = "0") int after,
+            @RequestParam(required = false) Integer limit) {
+        return transacaoService.listar(after, limit);
+    }
+
+    // Todas as transações em streaming, sem carregar a tabela inteira em memória. O corpo é escrito no
+    // despacho assíncrono, depois que o LimiteBancoFilter já devolveu a permissão da requisição
+    @GetMapping(value = "stream", produces = MediaType.APPLICATION_JSON_VALUE)
+    public StreamingResponseBody streamTransacoes() {
+        return saida -> {
+            if (!limiteBanco.reservar()) {
+                throw new RuntimeException("Banco de dados ocupado, tente novamente");
+            }
+            try {
+                transacaoService.escreverTodas(saida);
+            } finally {
+                limiteBanco.liberar();
+            }
+        };
+    }
+
+    // Movimentos de todas as contas conforme acontecem; ?after=<id> ou Last-Event-ID retoma de onde parou
+    @GetMapping(value = "movimentos/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamMovimentos(@RequestParam(required = false) Integer after,
+            @RequestHeader(name = "Last-Event-ID", required = false) Integer ultimoEvento) {
+        return fluxoMovimentos.assinar(null, ultimoEvento != null ? ultimoEvento : after);
     }
 
     @GetMapping("buscarPorId/{id}")
-    public Transacao buscarPorId(@PathVariable int id) {
+    public TransacaoDTO buscarPorId(@PathVariable int id) {
         return transacaoService.acharPorId(id);
     }
 
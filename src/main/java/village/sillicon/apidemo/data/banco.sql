@@ -1,3 +1,6 @@
+-- Script inicial, mantido como referência. O esquema em uso vem das migrações do Flyway em
+-- src/main/resources/db/migration (e migracoes/), aplicadas na subida da API.
+
 CREATE DATABASE db_desafio
 USE db_desafio
 
@@ -16,13 +19,40 @@ CREATE TABLE Contas(
     flagAtivo BOOLEAN NOT NULL DEFAULT TRUE,
     tipoConta INTEGER NOT NULL,
     dataCriacao TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    saqueDiarioAcumulado DECIMAL(15,2) NOT NULL DEFAULT 0.00,
+    dataSaqueDiario DATE,
+    versao BIGINT NOT NULL DEFAULT 0,
     FOREIGN KEY (idPessoa) REFERENCES Pessoas(idPessoa)
 );
 
+-- Ids de transação vêm de uma sequência com incremento 50 (pool do Hibernate).
+-- Em um banco já existente, começar a sequência acima do maior idTransacao atual.
+CREATE SEQUENCE Transacoes_seq START WITH 1 INCREMENT BY 50;
+
 CREATE TABLE Transacoes(
-    idTransacao INTEGER AUTO_INCREMENT PRIMARY KEY,
+    idTransacao INTEGER PRIMARY KEY,
     idConta INTEGER NOT NULL,
     valor DECIMAL(15,2) NOT NULL,
+    tipoTransacao VARCHAR(30) NOT NULL,
     dataTransacao TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     FOREIGN KEY (idConta) REFERENCES Contas(idConta)
-);
\ No newline at end of file
+);
+
+-- Extrato por período/tipo e soma dos saques do dia
+CREATE INDEX idx_transacoes_conta_data ON Transacoes (idConta, dataTransacao);
+CREATE INDEX idx_transacoes_conta_tipo_data ON Transacoes (idConta, tipoTransacao, dataTransacao);
+-- Primeira resposta de cada Idempotency-Key (saque, deposito e transferencia)
+CREATE TABLE ChavesIdempotencia(
+    chave VARCHAR(100) PRIMARY KEY,
+    operacao VARCHAR(100) NOT NULL,
+    idTransacao INTEGER NOT NULL,
+    dataCriacao TIMESTAMP NOT NULL
+);
+
+CREATE INDEX idx_chaves_idempotencia_data ON ChavesIdempotencia (dataCriacao);
+
+-- Batimento usado para medir o atraso da réplica de leitura (migração V10)
+CREATE TABLE IF NOT EXISTS batimentos_replica(
+    id INTEGER PRIMARY KEY,
+    instante BIGINT NOT NULL
+);
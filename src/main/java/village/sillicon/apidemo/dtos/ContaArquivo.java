@@ -0,0 +1,16 @@
+package village.sillicon.apidemo.dtos;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+// Uma linha dos arquivos de importação e exportação de contas (CSV ou NDJSON): a conta com os dados do
+// titular. idConta e idPessoa saem na exportação e são ignorados na importação, então o arquivo
+// exportado pode ser importado em outro banco.
+public record ContaArquivo(Integer idConta, Integer idPessoa, String nome, String cpf, LocalDate dataNascimento,
+        BigDecimal saldo, BigDecimal limiteSaqueDiario, Integer tipoConta, Boolean flagAtivo) {
+
+    // Colunas do CSV, na ordem da exportação
+    public static final List<String> COLUNAS = List.of("idConta", "idPessoa", "nome", "cpf", "dataNascimento",
+            "saldo", "limiteSaqueDiario", "tipoConta", "flagAtivo");
+}
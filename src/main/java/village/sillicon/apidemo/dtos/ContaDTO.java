@@ -0,0 +1,30 @@
+package village.sillicon.apidemo.dtos;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import village.sillicon.apidemo.models.Conta;
+
+// Conta como é devolvida pela API, com só o id e o nome do titular
+public record ContaDTO(int idConta, PessoaResumo pessoa, BigDecimal saldo, BigDecimal limiteSaqueDiario,
+        Boolean flagAtivo, int tipoConta, LocalDateTime dataCriacao, BigDecimal saqueDiarioAcumulado,
+        LocalDate dataSaqueDiario) {
+
+    public record PessoaResumo(int idPessoa, String nome) {
+    }
+
+    // Usado nas consultas JPQL com "SELECT new ..."
+    public ContaDTO(int idConta, int idPessoa, String nome, BigDecimal saldo, BigDecimal limiteSaqueDiario,
+            Boolean flagAtivo, int tipoConta, LocalDateTime dataCriacao, BigDecimal saqueDiarioAcumulado,
+            LocalDate dataSaqueDiario) {
+        this(idConta, new PessoaResumo(idPessoa, nome), saldo, limiteSaqueDiario, flagAtivo, tipoConta,
+                dataCriacao, saqueDiarioAcumulado, dataSaqueDiario);
+    }
+
+    public static ContaDTO of(Conta conta) {
+        return new ContaDTO(conta.getIdConta(), conta.getPessoa().getIdPessoa(), conta.getPessoa().getNome(),
+                conta.getSaldo(), conta.getLimiteSaqueDiario(), conta.getFlagAtivo(), conta.getTipoConta(),
+                conta.getDataCriacao(), conta.getSaqueDiarioAcumulado(), conta.getDataSaqueDiario());
+    }
+}
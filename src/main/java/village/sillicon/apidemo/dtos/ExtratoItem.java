@@ -0,0 +1,11 @@
+package village.sillicon.apidemo.dtos;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import village.sillicon.apidemo.models.Transacao.TipoTransacao;
+
+// Linha do extrato: só as colunas da transação, sem a conta e a pessoa
+public record ExtratoItem(int idTransacao, BigDecimal valor, TipoTransacao tipoTransacao,
+        LocalDateTime dataTransacao) {
+}
@@ -0,0 +1,7 @@
+package village.sillicon.apidemo.dtos;
+
+import java.util.List;
+
+// Página do extrato; proximoCursor é nulo quando não há mais transações no período
+public record ExtratoPagina(List<ExtratoItem> itens, String proximoCursor) {
+}
@@ -0,0 +1,9 @@
+package village.sillicon.apidemo.dtos;
+
+import java.math.BigDecimal;
+
+import village.sillicon.apidemo.models.Transacao.TipoTransacao;
+
+// Uma operação do lote: SAQUE, DEPOSITO ou TRANSFERENCIA_ENVIADA (que exige idContaDestino)
+public record OperacaoLote(TipoTransacao tipo, int idConta, Integer idContaDestino, BigDecimal valor) {
+}
@@ -0,0 +1,13 @@
+package village.sillicon.apidemo.dtos;
+
+import java.time.LocalDate;
+
+import village.sillicon.apidemo.models.Pessoa;
+
+// Pessoa como é devolvida pela API: imutável, segura para ficar no cache
+public record PessoaDTO(int idPessoa, String nome, String cpf, LocalDate dataNascimento) {
+
+    public static PessoaDTO of(Pessoa pessoa) {
+        return new PessoaDTO(pessoa.getIdPessoa(), pessoa.getNome(), pessoa.getCpf(), pessoa.getDataNascimento());
+    }
+}
@@ -0,0 +1,15 @@
+package village.sillicon.apidemo.dtos;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Contas adiadas mudaram durante a conferência (ou têm transações ainda no diário) e ficam para a próxima
+public record ResultadoConciliacao(int contasConferidas, int snapshotsGravados, int contasAdiadas,
+        List<Divergencia> divergencias) {
+
+    // saldoCalculado = saldo do último snapshot + transações a partir de dataCorte
+    public record Divergencia(int idConta, BigDecimal saldoConta, BigDecimal saldoCalculado,
+            LocalDateTime dataCorte) {
+    }
+}
@@ -0,0 +1,22 @@
+package village.sillicon.apidemo.dtos;
+
+import java.util.List;
+
+// Contas criadas e as linhas recusadas, com o número da linha no arquivo (no CSV o cabeçalho é a linha 1).
+// Se um lote falhou, a importação parou: erro traz o motivo e interrompidaNaLinha a primeira linha que
+// pode não ter sido gravada. Reenviar o arquivo a partir dela é seguro, as já gravadas voltam como
+// "CPF já cadastrado".
+public record ResultadoImportacao(int importadas, List<LinhaRecusada> recusadas, Long interrompidaNaLinha,
+        String erro) {
+
+    public ResultadoImportacao(int importadas, List<LinhaRecusada> recusadas) {
+        this(importadas, recusadas, null, null);
+    }
+
+    public boolean interrompida() {
+        return erro != null;
+    }
+
+    public record LinhaRecusada(long linha, String cpf, String erro) {
+    }
+}
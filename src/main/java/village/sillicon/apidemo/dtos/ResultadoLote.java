@@ -0,0 +1,13 @@
+package village.sillicon.apidemo.dtos;
+
+// Resultado de cada operação do lote, na mesma ordem em que foram enviadas
+public record ResultadoLote(int indice, boolean sucesso, Integer idTransacao, String erro) {
+
+    public static ResultadoLote sucesso(int indice, int idTransacao) {
+        return new ResultadoLote(indice, true, idTransacao, null);
+    }
+
+    public static ResultadoLote falha(int indice, String erro) {
+        return new ResultadoLote(indice, false, null, erro);
+    }
+}
@@ -0,0 +1,8 @@
+package village.sillicon.apidemo.dtos;
+
+import java.math.BigDecimal;
+
+// Totais das contas de uma pessoa para os painéis: saldo somado, contas ativas e saques do dia
+public record ResumoPessoa(int idPessoa, String nome, BigDecimal saldoTotal, long contasAtivas,
+        BigDecimal saquesHoje) {
+}
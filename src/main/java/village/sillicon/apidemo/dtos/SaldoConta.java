@@ -0,0 +1,7 @@
+package village.sillicon.apidemo.dtos;
+
+import java.math.BigDecimal;
+
+// Saldo e versão da conta lidos juntos; a versão muda a cada movimentação
+public record SaldoConta(int idConta, BigDecimal saldo, long versao) {
+}
@@ -0,0 +1,18 @@
+package village.sillicon.apidemo.dtos;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import village.sillicon.apidemo.models.Transacao;
+import village.sillicon.apidemo.models.Transacao.TipoTransacao;
+
+// Transação como é devolvida pela API: só o id da conta, sem carregar Conta e Pessoa
+public record TransacaoDTO(int idTransacao, int idConta, BigDecimal valor, TipoTransacao tipoTransacao,
+        LocalDateTime dataTransacao) {
+
+    // getIdConta() de um proxy não inicializado não vai ao banco
+    public static TransacaoDTO of(Transacao transacao) {
+        return new TransacaoDTO(transacao.getIdTransacao(), transacao.getConta().getIdConta(),
+                transacao.getValor(), transacao.getTipoTransacao(), transacao.getDataTransacao());
+    }
+}
@@ -0,0 +1,8 @@
+package village.sillicon.apidemo.dtos;
+
+import java.math.BigDecimal;
+
+// Soma das transações de uma conta a partir de uma data (saques e envios negativos), a parte dessa soma
+// a partir do novo corte e quantas transações ficaram antes dele
+public record VariacaoSaldo(BigDecimal variacao, BigDecimal variacaoAposCorte, long antesDoCorte) {
+}
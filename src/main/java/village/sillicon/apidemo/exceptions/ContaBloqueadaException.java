@@ -0,0 +1,10 @@
+package village.sillicon.apidemo.exceptions;
+
+import village.sillicon.apidemo.models.Transacao.TipoTransacao;
+
+public class ContaBloqueadaException extends MovimentacaoRecusadaException {
+
+    public ContaBloqueadaException(TipoTransacao tipoTransacao) {
+        super("Conta bloqueada", "conta_bloqueada", tipoTransacao);
+    }
+}
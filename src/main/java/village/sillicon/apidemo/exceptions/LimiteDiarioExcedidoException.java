@@ -0,0 +1,10 @@
+package village.sillicon.apidemo.exceptions;
+
+import village.sillicon.apidemo.models.Transacao.TipoTransacao;
+
+public class LimiteDiarioExcedidoException extends MovimentacaoRecusadaException {
+
+    public LimiteDiarioExcedidoException(TipoTransacao tipoTransacao) {
+        super("Limite de saque diário excedido", "limite_diario_excedido", tipoTransacao);
+    }
+}
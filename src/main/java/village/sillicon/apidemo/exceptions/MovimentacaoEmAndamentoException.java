@@ -0,0 +1,27 @@
+package village.sillicon.apidemo.exceptions;
+
+import java.util.concurrent.CompletableFuture;
+
+// A movimentação já foi aceita pelo motor de saldos e ainda não foi gravada: não é falha, o
+// resultado sai repetindo a requisição com a mesma Idempotency-Key. A conclusão completa quando o
+// motor grava ou recusa a movimentação.
+public class MovimentacaoEmAndamentoException extends RuntimeException {
+
+    private final String chaveIdempotencia;
+    private final CompletableFuture<?> conclusao;
+
+    public MovimentacaoEmAndamentoException(String chaveIdempotencia, CompletableFuture<?> conclusao) {
+        super("Movimentação em andamento, repita com a mesma Idempotency-Key para obter o resultado", null, false,
+                false);
+        this.chaveIdempotencia = chaveIdempotencia;
+        this.conclusao = conclusao;
+    }
+
+    public String getChaveIdempotencia() {
+        return chaveIdempotencia;
+    }
+
+    public CompletableFuture<?> getConclusao() {
+        return conclusao;
+    }
+}
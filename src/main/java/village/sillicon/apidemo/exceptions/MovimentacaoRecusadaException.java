@@ -0,0 +1,26 @@
+package village.sillicon.apidemo.exceptions;
+
+import village.sillicon.apidemo.models.Transacao.TipoTransacao;
+
+// Recusa prevista pelas regras da conta (não é falha do sistema). O motivo é um valor fixo,
+// usado como tag das métricas sem precisar ler a mensagem. Sem stack trace: é fluxo normal
+// e acontece com frequência sob carga.
+public class MovimentacaoRecusadaException extends RuntimeException {
+
+    private final String motivo;
+    private final TipoTransacao tipoTransacao;
+
+    public MovimentacaoRecusadaException(String mensagem, String motivo, TipoTransacao tipoTransacao) {
+        super(mensagem, null, false, false);
+        this.motivo = motivo;
+        this.tipoTransacao = tipoTransacao;
+    }
+
+    public String getMotivo() {
+        return motivo;
+    }
+
+    public TipoTransacao getTipoTransacao() {
+        return tipoTransacao;
+    }
+}
@@ -0,0 +1,10 @@
+package village.sillicon.apidemo.exceptions;
+
+import village.sillicon.apidemo.models.Transacao.TipoTransacao;
+
+public class SaldoInsuficienteException extends MovimentacaoRecusadaException {
+
+    public SaldoInsuficienteException(TipoTransacao tipoTransacao) {
+        super("Valor maior que saldo", "saldo_insuficiente", tipoTransacao);
+    }
+}
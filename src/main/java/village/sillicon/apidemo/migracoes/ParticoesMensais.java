@@ -0,0 +1,74 @@
+package village.sillicon.apidemo.migracoes;
+
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+// Partições mensais de Transacoes por RANGE COLUMNS(data_transacao): p202610 guarda outubro de 2026
+// (VALUES LESS THAN '2026-11-01') e pfuturo (MAXVALUE) recebe o que passar da última partição criada.
+// Usado pela migração V7 e pela manutenção em ParticoesTransacoes.
+public final class ParticoesMensais {
+
+    public static final String FUTURO = "pfuturo";
+    // Meses à frente criados pela migração; depois a manutenção diária mantém a folga
+    public static final int MESES_FUTUROS = 3;
+
+    private static final DateTimeFormatter NOME = DateTimeFormatter.ofPattern("'p'uuuuMM");
+
+    private ParticoesMensais() {
+    }
+
+    public static String nome(YearMonth mes) {
+        return mes.format(NOME);
+    }
+
+    // Mês da partição, ou null para pfuturo e nomes fora do padrão
+    public static YearMonth mes(String particao) {
+        try {
+            return YearMonth.parse(particao, NOME);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    public static String definicao(YearMonth mes) {
+        return "PARTITION " + nome(mes) + " VALUES LESS THAN ('" + mes.plusMonths(1).atDay(1) + "')";
+    }
+
+    // Meses seguintes à última partição mensal até o mês atual mais a folga
+    public static List<YearMonth> aCriar(YearMonth ultima, YearMonth atual, int mesesFuturos) {
+        List<YearMonth> meses = new ArrayList<>();
+        YearMonth limite = atual.plusMonths(mesesFuturos);
+        for (YearMonth mes = ultima.plusMonths(1); !mes.isAfter(limite); mes = mes.plusMonths(1)) {
+            meses.add(mes);
+        }
+        return meses;
+    }
+
+    // Partições mensais anteriores aos últimos mesesQuentes meses (o atual incluído), da mais antiga à mais nova
+    public static List<String> aArquivar(List<String> particoes, YearMonth atual, int mesesQuentes) {
+        YearMonth primeiroQuente = atual.minusMonths(Math.max(mesesQuentes, 1) - 1);
+        return particoes.stream()
+                .filter(particao -> mes(particao) != null && mes(particao).isBefore(primeiroQuente))
+                .sorted()
+                .toList();
+    }
+
+    public static String particionar(List<YearMonth> meses) {
+        return "PARTITION BY RANGE COLUMNS(data_transacao) (" + definicoes(meses) + ")";
+    }
+
+    // Divide pfuturo nos meses novos; linhas que já estejam em pfuturo vão para a partição do seu mês
+    public static String reorganizarFuturo(List<YearMonth> meses) {
+        return "REORGANIZE PARTITION " + FUTURO + " INTO (" + definicoes(meses) + ")";
+    }
+
+    private static String definicoes(List<YearMonth> meses) {
+        List<String> definicoes = meses.stream().map(ParticoesMensais::definicao).collect(Collectors.toList());
+        definicoes.add("PARTITION " + FUTURO + " VALUES LESS THAN (MAXVALUE)");
+        return String.join(", ", definicoes);
+    }
+}
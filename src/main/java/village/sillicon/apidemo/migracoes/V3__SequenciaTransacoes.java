@@ -0,0 +1,36 @@
+package village.sillicon.apidemo.migracoes;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+// Ids de Transacao passam do AUTO_INCREMENT para uma sequência com incremento 50 (pool do Hibernate),
+// para os INSERTs em lote. A sequência começa acima do maior id já gravado: o Hibernate usa os 50
+// valores abaixo do que lê da sequência.
+public class V3__SequenciaTransacoes extends BaseJavaMigration {
+
+    private static final int INCREMENTO = 50;
+
+    // DDL no MariaDB faz commit implícito; não adianta envolver em transação
+    @Override
+    public boolean canExecuteInTransaction() {
+        return false;
+    }
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        try (Statement sql = context.getConnection().createStatement()) {
+            long maiorId = 0;
+            try (ResultSet linhas = sql.executeQuery("SELECT COALESCE(MAX(id_transacao), 0) FROM transacoes")) {
+                if (linhas.next()) {
+                    maiorId = linhas.getLong(1);
+                }
+            }
+            sql.execute("ALTER TABLE transacoes MODIFY id_transacao INTEGER NOT NULL");
+            sql.execute("CREATE SEQUENCE transacoes_seq START WITH " + (maiorId + INCREMENTO)
+                    + " INCREMENT BY " + INCREMENTO + " NOCACHE");
+        }
+    }
+}
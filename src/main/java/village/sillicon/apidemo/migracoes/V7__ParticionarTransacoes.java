@@ -0,0 +1,69 @@
+package village.sillicon.apidemo.migracoes;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+// Particiona Transacoes por mês de data_transacao, do mês da transação mais antiga até alguns meses
+// à frente. No InnoDB a coluna de particionamento precisa estar em toda chave única e tabelas
+// particionadas não têm chaves estrangeiras: a PK vira (id_transacao, data_transacao) e a FK para
+// Contas sai (ContaService.deletar recusa conta com transações). Cria também transacoes_arquivo,
+// comprimida, para onde ParticoesTransacoes move os meses antigos.
+public class V7__ParticionarTransacoes extends BaseJavaMigration {
+
+    // DDL no MariaDB faz commit implícito; não adianta envolver em transação
+    @Override
+    public boolean canExecuteInTransaction() {
+        return false;
+    }
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        try (Statement sql = context.getConnection().createStatement()) {
+            // Pelo nome lido do banco: varia conforme a tabela veio do Hibernate ou do banco.sql
+            List<String> chavesEstrangeiras = new ArrayList<>();
+            try (ResultSet linhas = sql.executeQuery("SELECT CONSTRAINT_NAME FROM information_schema.TABLE_CONSTRAINTS"
+                    + " WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'transacoes' AND CONSTRAINT_TYPE = 'FOREIGN KEY'")) {
+                while (linhas.next()) {
+                    chavesEstrangeiras.add(linhas.getString(1));
+                }
+            }
+            for (String chave : chavesEstrangeiras) {
+                sql.execute("ALTER TABLE transacoes DROP FOREIGN KEY `" + chave + "`");
+            }
+
+            sql.executeUpdate("UPDATE transacoes SET data_transacao = CURRENT_TIMESTAMP(6) WHERE data_transacao IS NULL");
+            sql.execute("ALTER TABLE transacoes MODIFY data_transacao DATETIME(6) NOT NULL,"
+                    + " DROP PRIMARY KEY, ADD PRIMARY KEY (id_transacao, data_transacao)");
+
+            YearMonth atual = YearMonth.now();
+            YearMonth primeiro = atual;
+            try (ResultSet linhas = sql.executeQuery("SELECT MIN(data_transacao) FROM transacoes")) {
+                Timestamp maisAntiga = linhas.next() ? linhas.getTimestamp(1) : null;
+                if (maisAntiga != null && YearMonth.from(maisAntiga.toLocalDateTime()).isBefore(atual)) {
+                    primeiro = YearMonth.from(maisAntiga.toLocalDateTime());
+                }
+            }
+            sql.execute("ALTER TABLE transacoes " + ParticoesMensais.particionar(
+                    ParticoesMensais.aCriar(primeiro.minusMonths(1), atual, ParticoesMensais.MESES_FUTUROS)));
+
+            // Mesmas colunas, sem particionamento: consultas de auditoria por conta e período
+            sql.execute("""
+                    CREATE TABLE transacoes_arquivo (
+                        id_transacao INTEGER NOT NULL,
+                        id_conta INTEGER NOT NULL,
+                        valor DECIMAL(15,2) NOT NULL,
+                        tipo_transacao ENUM ('DEPOSITO','SAQUE','TRANSFERENCIA_ENVIADA','TRANSFERENCIA_RECEBIDA') NOT NULL,
+                        data_transacao DATETIME(6) NOT NULL,
+                        PRIMARY KEY (id_transacao)
+                    ) ENGINE=InnoDB ROW_FORMAT=COMPRESSED""");
+            sql.execute("CREATE INDEX idx_transacoes_arquivo_conta_data ON transacoes_arquivo (id_conta, data_transacao)");
+        }
+    }
+}
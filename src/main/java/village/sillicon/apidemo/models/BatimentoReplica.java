@@ -0,0 +1,28 @@
+package village.sillicon.apidemo.models;
+
+import jakarta.persistence.*;
+
+// Linha única (id 1) com o último horário gravado por MonitorReplica, que a lê e grava por JDBC.
+// Mapeada para que o ddl-auto valide a tabela da migração V10 e a crie no H2 dos testes.
+@Entity
+@Table(name = "BatimentosReplica")
+public class BatimentoReplica {
+
+    @Id
+    private int id;
+
+    @Column(nullable = false)
+    private long instante;
+
+    public BatimentoReplica() {
+    }
+
+    // Getters
+    public int getId() {
+        return id;
+    }
+
+    public long getInstante() {
+        return instante;
+    }
+}
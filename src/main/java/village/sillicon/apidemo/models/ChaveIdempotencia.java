@@ -0,0 +1,48 @@
+package village.sillicon.apidemo.models;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// Primeiro resultado de uma movimentação enviada com o cabeçalho Idempotency-Key.
+// Gravada na mesma transação da movimentação: ou as duas existem, ou nenhuma.
+@Entity
+@Table(name = "ChavesIdempotencia", indexes = {
+        // Limpeza das chaves vencidas
+        @Index(name = "idx_chaves_idempotencia_data", columnList = "dataCriacao")
+})
+public class ChaveIdempotencia {
+
+    @Id
+    @Column(length = 100)
+    private String chave;
+
+    // Operação e parâmetros da requisição original (ex.: "saque/1/10.00")
+    @Column(nullable = false, length = 100)
+    private String operacao;
+
+    @Column(nullable = false)
+    private int idTransacao;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime dataCriacao;
+
+    public ChaveIdempotencia() {
+    }
+
+    // Getters
+    public String getChave() {
+        return chave;
+    }
+
+    public String getOperacao() {
+        return operacao;
+    }
+
+    public int getIdTransacao() {
+        return idTransacao;
+    }
+
+    public LocalDateTime getDataCriacao() {
+        return dataCriacao;
+    }
+}
@@ -1,11 +1,19 @@
 package village.sillicon.apidemo.models;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
+
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 
+// Fora do cache de segundo nível: as movimentações alteram o saldo com UPDATEs em massa, e cada um
+// invalidaria a região inteira
 @Entity
 @Table(name = "Contas")
+@JsonIgnoreProperties({ "hibernateLazyInitializer", "handler" })
 public class Conta {
 
     @Id
@@ -13,7 +21,7 @@ public class Conta {
     private int idConta;
 
     // Muitas contas podem pertencer a uma pessoa
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "idPessoa", nullable = false)
     private Pessoa pessoa;
 
@@ -32,6 +40,22 @@ public class Conta {
     @Column(updatable = false)
     private LocalDateTime dataCriacao = LocalDateTime.now();
 
+    // Total sacado em dataSaqueDiario, atualizado junto com cada saque
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @ColumnDefault("0")
+    @Column(nullable = false, precision = 15, scale = 2)
+    private BigDecimal saqueDiarioAcumulado = BigDecimal.ZERO;
+
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private LocalDate dataSaqueDiario;
+
+    // Controle de concorrência otimista das atualizações de saldo
+    @Version
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private long versao;
+
     public Conta() {
     }
 
@@ -94,6 +118,34 @@ public class Conta {
         return dataCriacao;
     }
 
+    public BigDecimal getSaqueDiarioAcumulado() {
+        return saqueDiarioAcumulado;
+    }
+
+    public LocalDate getDataSaqueDiario() {
+        return dataSaqueDiario;
+    }
+
+    public long getVersao() {
+        return versao;
+    }
+
+    // Total sacado no dia informado; se o acumulado é de outro dia, ele já virou
+    public BigDecimal totalSaquesDoDia(LocalDate dia) {
+        return dia.equals(dataSaqueDiario) ? saqueDiarioAcumulado : BigDecimal.ZERO;
+    }
+
+    public void registrarSaque(BigDecimal valor, LocalDate dia) {
+        this.saqueDiarioAcumulado = totalSaquesDoDia(dia).add(valor);
+        this.dataSaqueDiario = dia;
+    }
+
+    // Usado na reconstrução do acumulado a partir do histórico de transações
+    public void definirSaqueDiario(BigDecimal total, LocalDate dia) {
+        this.saqueDiarioAcumulado = total;
+        this.dataSaqueDiario = dia;
+    }
+
     @Override
     public String toString() {
         return "Conta{" +
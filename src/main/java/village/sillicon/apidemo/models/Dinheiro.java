@@ -0,0 +1,70 @@
+package village.sillicon.apidemo.models;
+
+import java.math.BigDecimal;
+
+// Valores monetários com escala fixa de 2 casas, como as colunas DECIMAL(15,2).
+// A conversão lê o texto direto para centavos: sem passar por double e sem casas sobrando.
+public final class Dinheiro {
+
+    public static final int ESCALA = 2;
+    private static final int MAXIMO_DIGITOS = 15;
+
+    private Dinheiro() {
+    }
+
+    // Aceita "10", "10.5", "10.50" ou "10,50"; recusa sinal, mais de 2 casas e zero
+    public static BigDecimal converter(String texto) {
+        long centavos = 0;
+        int digitos = 0;
+        int casas = -1;
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            if (c == '.' || c == ',') {
+                if (casas >= 0 || digitos == 0) {
+                    throw valorInvalido(texto);
+                }
+                casas = 0;
+            } else if (c >= '0' && c <= '9') {
+                if (casas == ESCALA || ++digitos > MAXIMO_DIGITOS) {
+                    throw valorInvalido(texto);
+                }
+                centavos = centavos * 10 + (c - '0');
+                if (casas >= 0) {
+                    casas++;
+                }
+            } else {
+                throw valorInvalido(texto);
+            }
+        }
+        if (digitos == 0 || casas == 0) {
+            throw valorInvalido(texto);
+        }
+        for (int i = Math.max(casas, 0); i < ESCALA; i++) {
+            centavos *= 10;
+        }
+        if (centavos == 0) {
+            throw valorInvalido(texto);
+        }
+        return BigDecimal.valueOf(centavos, ESCALA);
+    }
+
+    // Leva um valor recebido de outra forma (ex.: JSON do lote) para a escala fixa
+    public static BigDecimal normalizar(BigDecimal valor) {
+        if (valor.scale() == ESCALA) {
+            return valor;
+        }
+        try {
+            return valor.setScale(ESCALA);
+        } catch (ArithmeticException e) {
+            throw new RuntimeException("Valor com mais de " + ESCALA + " casas decimais");
+        }
+    }
+
+    public static long centavos(BigDecimal valor) {
+        return valor.movePointRight(ESCALA).longValueExact();
+    }
+
+    private static RuntimeException valorInvalido(String texto) {
+        return new RuntimeException("Valor inválido: " + texto);
+    }
+}
@@ -1,9 +1,15 @@
 package village.sillicon.apidemo.models;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import village.sillicon.apidemo.config.CacheSegundoNivelConfig;
 import java.time.LocalDate;
 
+// Muda pouco: cache de segundo nível, removido da região depois do commit que a altera
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE, region = CacheSegundoNivelConfig.REGIAO_PESSOAS)
 @Table(name = "Pessoas")
 public class Pessoa {
 
@@ -0,0 +1,63 @@
+package village.sillicon.apidemo.models;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Saldo conferido de uma conta com as transações anteriores a dataCorte: a próxima conciliação parte
+// daqui e só soma as transações a partir dessa data. Sem chave estrangeira para Contas, para não
+// impedir a exclusão da conta.
+@Entity
+@Table(name = "SnapshotsSaldo", indexes = {
+        // Último snapshot de cada conta
+        @Index(name = "idx_snapshots_saldo_conta", columnList = "idConta, dataCorte")
+})
+public class SnapshotSaldo {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "snapshots_saldo_seq")
+    @SequenceGenerator(name = "snapshots_saldo_seq", sequenceName = "SnapshotsSaldo_seq", allocationSize = 50)
+    private long idSnapshot;
+
+    @Column(nullable = false)
+    private int idConta;
+
+    @Column(nullable = false)
+    private LocalDateTime dataCorte;
+
+    @Column(nullable = false, precision = 15, scale = 2)
+    private BigDecimal saldo;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime dataSnapshot = LocalDateTime.now();
+
+    public SnapshotSaldo() {
+    }
+
+    public SnapshotSaldo(int idConta, LocalDateTime dataCorte, BigDecimal saldo) {
+        this.idConta = idConta;
+        this.dataCorte = dataCorte;
+        this.saldo = saldo;
+    }
+
+    // Getters
+    public long getIdSnapshot() {
+        return idSnapshot;
+    }
+
+    public int getIdConta() {
+        return idConta;
+    }
+
+    public LocalDateTime getDataCorte() {
+        return dataCorte;
+    }
+
+    public BigDecimal getSaldo() {
+        return saldo;
+    }
+
+    public LocalDateTime getDataSnapshot() {
+        return dataSnapshot;
+    }
+}
@@ -5,7 +5,12 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "Transacoes")
+@Table(name = "Transacoes", indexes = {
+        // Extrato por período e por tipo, soma dos saques do dia, conciliação a partir do snapshot e
+        // reenvio dos streams por conta
+        @Index(name = "idx_transacoes_conta_data", columnList = "idConta, dataTransacao"),
+        @Index(name = "idx_transacoes_conta_tipo_data", columnList = "idConta, tipoTransacao, dataTransacao")
+})
 public class Transacao {
 
     public enum TipoTransacao {
@@ -15,13 +20,16 @@ public class Transacao {
         TRANSFERENCIA_RECEBIDA
     }
 
+    // Sequência com pool de ids: dispensa um round trip por insert e permite inserts em lote no JDBC
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transacoes_seq")
+    @SequenceGenerator(name = "transacoes_seq", sequenceName = "Transacoes_seq", allocationSize = 50)
     private int idTransacao;
 
-    // Muitas transações podem estar ligadas a uma conta
-    @ManyToOne(cascade = CascadeType.PERSIST)
-    @JoinColumn(name = "idConta", nullable = false)
+    // Muitas transações podem estar ligadas a uma conta. Sem chave estrangeira no banco: Transacoes é
+    // particionada por mês e o InnoDB não aceita FK em tabela particionada
+    @ManyToOne(fetch = FetchType.LAZY, cascade = CascadeType.PERSIST)
+    @JoinColumn(name = "idConta", nullable = false, foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
     private Conta conta;
 
     @Column(nullable = false, precision = 15, scale = 2)
@@ -31,7 +39,8 @@ public class Transacao {
     @Column(nullable = false)
     private TipoTransacao tipoTransacao;
 
-    @Column(updatable = false)
+    // Coluna de particionamento; faz parte da chave primária no banco (id, data)
+    @Column(nullable = false, updatable = false)
     private LocalDateTime dataTransacao = LocalDateTime.now();
 
     public Transacao() {
@@ -49,6 +58,11 @@ public class Transacao {
         return idTransacao;
     }
 
+    // Usado pela gravação assíncrona, que reserva o id antes do INSERT
+    public void setIdTransacao(int idTransacao) {
+        this.idTransacao = idTransacao;
+    }
+
     public Conta getConta() {
         return conta;
     }
@@ -0,0 +1,59 @@
+package village.sillicon.apidemo.models;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.Immutable;
+import village.sillicon.apidemo.models.Transacao.TipoTransacao;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Transação de um mês fora da janela quente, movida de Transacoes por ParticoesTransacoes.
+// Só leitura: as linhas chegam por INSERT ... SELECT na manutenção das partições.
+@Entity
+@Immutable
+@Table(name = "TransacoesArquivo", indexes = {
+        // Auditoria por conta e período, e a exclusão da conta
+        @Index(name = "idx_transacoes_arquivo_conta_data", columnList = "idConta, dataTransacao")
+})
+public class TransacaoArquivada {
+
+    @Id
+    private int idTransacao;
+
+    @Column(nullable = false)
+    private int idConta;
+
+    @Column(nullable = false, precision = 15, scale = 2)
+    private BigDecimal valor;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private TipoTransacao tipoTransacao;
+
+    @Column(nullable = false)
+    private LocalDateTime dataTransacao;
+
+    public TransacaoArquivada() {
+    }
+
+    // Getters
+    public int getIdTransacao() {
+        return idTransacao;
+    }
+
+    public int getIdConta() {
+        return idConta;
+    }
+
+    public BigDecimal getValor() {
+        return valor;
+    }
+
+    public TipoTransacao getTipoTransacao() {
+        return tipoTransacao;
+    }
+
+    public LocalDateTime getDataTransacao() {
+        return dataTransacao;
+    }
+}
@@ -0,0 +1,55 @@
+package village.sillicon.apidemo.models;
+
+import jakarta.persistence.*;
+import village.sillicon.apidemo.models.Transacao.TipoTransacao;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Transação aceita na gravação assíncrona e ainda não inserida em Transacoes. A linha entra na mesma
+// transação do banco que altera a conta e sai na mesma que a insere em Transacoes (DiarioTransacoes,
+// por JDBC). Mapeada para que o ddl-auto valide a tabela da migração V11 e a crie no H2 dos testes.
+@Entity
+@Table(name = "TransacoesPendentes")
+public class TransacaoPendente {
+
+    @Id
+    private int idTransacao;
+
+    @Column(nullable = false)
+    private int idConta;
+
+    @Column(nullable = false, precision = 15, scale = 2)
+    private BigDecimal valor;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private TipoTransacao tipoTransacao;
+
+    @Column(nullable = false)
+    private LocalDateTime dataTransacao;
+
+    public TransacaoPendente() {
+    }
+
+    // Getters
+    public int getIdTransacao() {
+        return idTransacao;
+    }
+
+    public int getIdConta() {
+        return idConta;
+    }
+
+    public BigDecimal getValor() {
+        return valor;
+    }
+
+    public TipoTransacao getTipoTransacao() {
+        return tipoTransacao;
+    }
+
+    public LocalDateTime getDataTransacao() {
+        return dataTransacao;
+    }
+}
@@ -0,0 +1,68 @@
+package village.sillicon.apidemo.motor;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Fila circular de tamanho fixo, sem travas: vários produtores (threads das requisições) e um
+// único consumidor (a thread da partição). Cada posição tem um número de sequência que diz se
+// ela está livre para o próximo produtor ou pronta para o consumidor (fila limitada de Vyukov).
+final class AnelComandos<T> {
+
+    private final int mascara;
+    private final AtomicReferenceArray<T> itens;
+    private final AtomicLongArray sequencias;
+    private final AtomicLong cauda = new AtomicLong();
+    // Só a thread consumidora lê e escreve
+    private long cabeca;
+
+    AnelComandos(int capacidade) {
+        if (Integer.bitCount(capacidade) != 1) {
+            throw new IllegalArgumentException("Capacidade do anel deve ser potência de 2");
+        }
+        mascara = capacidade - 1;
+        itens = new AtomicReferenceArray<>(capacidade);
+        sequencias = new AtomicLongArray(capacidade);
+        for (int i = 0; i < capacidade; i++) {
+            sequencias.set(i, i);
+        }
+    }
+
+    // false quando o anel está cheio
+    boolean oferecer(T item) {
+        long posicao = cauda.get();
+        for (;;) {
+            int indice = (int) posicao & mascara;
+            long diferenca = sequencias.get(indice) - posicao;
+            if (diferenca == 0) {
+                if (cauda.compareAndSet(posicao, posicao + 1)) {
+                    itens.set(indice, item);
+                    sequencias.set(indice, posicao + 1);
+                    return true;
+                }
+                posicao = cauda.get();
+            } else if (diferenca < 0) {
+                return false;
+            } else {
+                posicao = cauda.get();
+            }
+        }
+    }
+
+    // null quando não há nada publicado
+    T retirar() {
+        int indice = (int) cabeca & mascara;
+        if (sequencias.get(indice) != cabeca + 1) {
+            return null;
+        }
+        T item = itens.get(indice);
+        itens.set(indice, null);
+        sequencias.set(indice, cabeca + mascara + 1);
+        cabeca++;
+        return item;
+    }
+
+    boolean vazio() {
+        return sequencias.get((int) cabeca & mascara) != cabeca + 1;
+    }
+}
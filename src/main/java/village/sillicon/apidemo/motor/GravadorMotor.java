@@ -0,0 +1,198 @@
+package village.sillicon.apidemo.motor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import io.micrometer.core.instrument.Timer;
+import village.sillicon.apidemo.dtos.TransacaoDTO;
+import village.sillicon.apidemo.models.Transacao;
+import village.sillicon.apidemo.models.Transacao.TipoTransacao;
+import village.sillicon.apidemo.motor.MotorSaldos.Idempotencia;
+
+// Única thread que escreve no banco pelo motor. Junta os registros que as partições mandaram e
+// grava o lote numa transação: um UPDATE por conta com a variação líquida do saldo, os INSERTs das
+// transações em lote e as Idempotency-Keys. Só depois do commit as requisições recebem a resposta.
+final class GravadorMotor implements Runnable {
+
+    private static final Logger log = LoggerFactory.getLogger(GravadorMotor.class);
+
+    // Uma perna da movimentação. saqueDia é o acumulado do dia depois do saque, ou -1 se não mudou.
+    record Lancamento(int idConta, TipoTransacao tipo, long centavos, long variacao, long saqueDia, LocalDate dia) {
+    }
+
+    // O que uma requisição espera: um lançamento, ou os dois de uma transferência
+    record Registro(List<Lancamento> lancamentos, Idempotencia idempotencia,
+            CompletableFuture<Transacao> resposta) implements Pedido {
+    }
+
+    // Completa quando tudo que entrou antes dela já está no banco
+    record Barreira(CompletableFuture<Void> resposta) implements Pedido {
+    }
+
+    sealed interface Pedido permits Registro, Barreira {
+    }
+
+    // Variação líquida de uma conta no lote; o acumulado de saques é o do último saque
+    private static final class Ajuste {
+        long variacao;
+        long saqueDia = -1;
+        LocalDate dia;
+    }
+
+    private final MotorSaldos motor;
+    private final BlockingQueue<Pedido> fila = new LinkedBlockingQueue<>();
+    private final int loteMaximo;
+    private final Timer duracao;
+    private volatile boolean ativo = true;
+    private Thread thread;
+
+    GravadorMotor(MotorSaldos motor, int loteMaximo, Timer duracao) {
+        this.motor = motor;
+        this.loteMaximo = loteMaximo;
+        this.duracao = duracao;
+    }
+
+    void iniciar() {
+        thread = Thread.ofPlatform().name("motor-saldos-gravador").daemon().start(this);
+    }
+
+    // Chamado depois que as partições pararam: grava o que ainda está na fila
+    void parar() throws InterruptedException {
+        ativo = false;
+        thread.join(30_000);
+    }
+
+    void enviar(Pedido pedido) {
+        fila.add(pedido);
+    }
+
+    @Override
+    public void run() {
+        List<Pedido> pedidos = new ArrayList<>(loteMaximo);
+        List<Registro> lote = new ArrayList<>(loteMaximo);
+        while (ativo || !fila.isEmpty()) {
+            try {
+                Pedido primeiro = fila.poll(50, TimeUnit.MILLISECONDS);
+                if (primeiro == null) {
+                    continue;
+                }
+                pedidos.add(primeiro);
+                fila.drainTo(pedidos, loteMaximo - 1);
+                // A ordem da fila é mantida: uma barreira só completa depois dos registros anteriores
+                for (Pedido pedido : pedidos) {
+                    if (pedido instanceof Registro registro) {
+                        lote.add(registro);
+                    } else if (pedido instanceof Barreira barreira) {
+                        gravarComNovasTentativas(lote);
+                        lote.clear();
+                        barreira.resposta().complete(null);
+                    }
+                }
+                gravarComNovasTentativas(lote);
+                lote.clear();
+                pedidos.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    // Banco fora do ar: o lote é tentado de novo (a partição já aplicou os saldos em memória).
+    // Um registro que o banco recusa é separado, a requisição recebe o erro e as contas dele são
+    // descartadas da memória para voltarem a refletir o banco.
+    private void gravarComNovasTentativas(List<Registro> lote) throws InterruptedException {
+        if (lote.isEmpty()) {
+            return;
+        }
+        for (long espera = 100;; espera = Math.min(espera * 2, 5000)) {
+            try {
+                List<Transacao> gravadas = duracao.record(() -> gravar(lote));
+                for (int i = 0; i < lote.size(); i++) {
+                    lote.get(i).resposta().complete(gravadas.get(i));
+                }
+                return;
+            } catch (DataIntegrityViolationException e) {
+                for (Registro registro : lote) {
+                    try {
+                        registro.resposta().complete(gravar(List.of(registro)).get(0));
+                    } catch (RuntimeException recusado) {
+                        log.error("Movimentação do motor recusada pelo banco: {}", registro.lancamentos(),
+                                recusado);
+                        registro.resposta().completeExceptionally(recusado);
+                        registro.lancamentos().forEach(lancamento -> motor.descartarDepois(lancamento.idConta()));
+                    }
+                }
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Falha ao gravar {} movimentações do motor, nova tentativa em {} ms", lote.size(), espera, e);
+                Thread.sleep(espera);
+            }
+        }
+    }
+
+    // Devolve, para cada registro, a última transação criada (a recebida, numa transferência)
+    private List<Transacao> gravar(List<Registro> lote) {
+        return motor.transactionTemplate().execute(status -> {
+            Map<Integer, Ajuste> ajustes = new TreeMap<>();
+            for (Registro registro : lote) {
+                for (Lancamento lancamento : registro.lancamentos()) {
+                    Ajuste ajuste = ajustes.computeIfAbsent(lancamento.idConta(), id -> new Ajuste());
+                    ajuste.variacao += lancamento.variacao();
+                    if (lancamento.saqueDia() >= 0) {
+                        ajuste.saqueDia = lancamento.saqueDia();
+                        ajuste.dia = lancamento.dia();
+                    }
+                }
+            }
+            // Em ordem de id, como nas demais atualizações de várias contas
+            for (Map.Entry<Integer, Ajuste> entrada : ajustes.entrySet()) {
+                Ajuste ajuste = entrada.getValue();
+                int alteradas = ajuste.dia == null
+                        ? motor.contaRepository().aplicarMovimento(entrada.getKey(),
+                                BigDecimal.valueOf(ajuste.variacao, 2))
+                        : motor.contaRepository().aplicarMovimentoComSaque(entrada.getKey(),
+                                BigDecimal.valueOf(ajuste.variacao, 2), BigDecimal.valueOf(ajuste.saqueDia, 2),
+                                ajuste.dia);
+                if (alteradas == 0) {
+                    throw new DataIntegrityViolationException("Conta " + entrada.getKey() + " não encontrada");
+                }
+            }
+
+            List<Transacao> novas = new ArrayList<>();
+            List<Transacao> ultimas = new ArrayList<>(lote.size());
+            for (Registro registro : lote) {
+                Transacao ultima = null;
+                for (Lancamento lancamento : registro.lancamentos()) {
+                    ultima = new Transacao(motor.contaRepository().getReferenceById(lancamento.idConta()),
+                            BigDecimal.valueOf(lancamento.centavos(), 2), lancamento.tipo());
+                    novas.add(ultima);
+                }
+                ultimas.add(ultima);
+            }
+            motor.transacaoRepository().saveAll(novas);
+            novas.forEach(transacao -> motor.fluxoMovimentos().publicar(TransacaoDTO.of(transacao)));
+
+            for (int i = 0; i < lote.size(); i++) {
+                Idempotencia idempotencia = lote.get(i).idempotencia();
+                if (idempotencia != null) {
+                    motor.idempotenciaService().registrar(idempotencia.chave(), idempotencia.operacao(),
+                            TransacaoDTO.of(ultimas.get(i)));
+                }
+            }
+            return ultimas;
+        });
+    }
+}
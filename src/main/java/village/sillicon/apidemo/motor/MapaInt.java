@@ -0,0 +1,112 @@
+package village.sillicon.apidemo.motor;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+// Mapa de chave int com endereçamento aberto: sem Integer nem nós por entrada.
+// Usado só pela thread da partição, então não é sincronizado.
+final class MapaInt<V> {
+
+    private int[] chaves;
+    private Object[] valores;
+    private int tamanho;
+
+    MapaInt() {
+        chaves = new int[64];
+        valores = new Object[64];
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(int chave) {
+        int mascara = chaves.length - 1;
+        for (int i = espalhar(chave) & mascara;; i = (i + 1) & mascara) {
+            if (valores[i] == null) {
+                return null;
+            }
+            if (chaves[i] == chave) {
+                return (V) valores[i];
+            }
+        }
+    }
+
+    void put(int chave, V valor) {
+        if ((tamanho + 1) * 4 > chaves.length * 3) {
+            crescer();
+        }
+        int mascara = chaves.length - 1;
+        for (int i = espalhar(chave) & mascara;; i = (i + 1) & mascara) {
+            if (valores[i] == null) {
+                chaves[i] = chave;
+                valores[i] = valor;
+                tamanho++;
+                return;
+            }
+            if (chaves[i] == chave) {
+                valores[i] = valor;
+                return;
+            }
+        }
+    }
+
+    // Remoção com deslocamento para trás: mantém as sequências de sondagem sem marcadores
+    void remove(int chave) {
+        int mascara = chaves.length - 1;
+        int i = espalhar(chave) & mascara;
+        while (valores[i] != null && chaves[i] != chave) {
+            i = (i + 1) & mascara;
+        }
+        if (valores[i] == null) {
+            return;
+        }
+        valores[i] = null;
+        tamanho--;
+        for (int j = (i + 1) & mascara; valores[j] != null; j = (j + 1) & mascara) {
+            int ideal = espalhar(chaves[j]) & mascara;
+            // a entrada em j pode ocupar o buraco em i se i estiver entre a posição ideal e j
+            if (((j - ideal) & mascara) >= ((j - i) & mascara)) {
+                chaves[i] = chaves[j];
+                valores[i] = valores[j];
+                valores[j] = null;
+                i = j;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    void paraCada(Consumer<V> acao) {
+        for (Object valor : valores) {
+            if (valor != null) {
+                acao.accept((V) valor);
+            }
+        }
+    }
+
+    void limpar() {
+        Arrays.fill(valores, null);
+        tamanho = 0;
+    }
+
+    int tamanho() {
+        return tamanho;
+    }
+
+    private void crescer() {
+        int[] chavesAntigas = chaves;
+        Object[] valoresAntigos = valores;
+        chaves = new int[chavesAntigas.length * 2];
+        valores = new Object[valoresAntigos.length * 2];
+        tamanho = 0;
+        for (int i = 0; i < chavesAntigas.length; i++) {
+            if (valoresAntigos[i] != null) {
+                @SuppressWarnings("unchecked")
+                V valor = (V) valoresAntigos[i];
+                put(chavesAntigas[i], valor);
+            }
+        }
+    }
+
+    private static int espalhar(int chave) {
+        int h = chave * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
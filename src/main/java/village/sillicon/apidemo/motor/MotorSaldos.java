@@ -0,0 +1,331 @@
+package village.sillicon.apidemo.motor;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityNotFoundException;
+import village.sillicon.apidemo.exceptions.MovimentacaoEmAndamentoException;
+import village.sillicon.apidemo.models.Conta;
+import village.sillicon.apidemo.models.Dinheiro;
+import village.sillicon.apidemo.models.Transacao;
+import village.sillicon.apidemo.models.Transacao.TipoTransacao;
+import village.sillicon.apidemo.motor.Particao.Alteracao;
+import village.sillicon.apidemo.motor.Particao.Comando;
+import village.sillicon.apidemo.motor.Particao.Debito;
+import village.sillicon.apidemo.motor.Particao.Descarte;
+import village.sillicon.apidemo.motor.Particao.Movimento;
+import village.sillicon.apidemo.repositories.ContaRepository;
+import village.sillicon.apidemo.repositories.TransacaoRepository;
+import village.sillicon.apidemo.services.FluxoMovimentos;
+import village.sillicon.apidemo.services.IdempotenciaService;
+import village.sillicon.apidemo.services.TransacaoService.ModoConcorrencia;
+
+// Motor de saldos em memória (apidemo.transacoes.concorrencia=PARTICIONADO).
+// Cada conta pertence a uma partição, pelo id; a thread da partição é a única que altera o saldo
+// dela, então a validação e o débito não precisam de trava nem de UPDATE condicional.
+// Transferências entre partições reservam o valor na origem e creditam no destino (ou estornam).
+// O banco é atualizado em lote pelo GravadorMotor e a resposta só sai depois do commit.
+@Service
+public class MotorSaldos implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(MotorSaldos.class);
+
+    @Autowired
+    private ContaRepository contaRepository;
+    @Autowired
+    private TransacaoRepository transacaoRepository;
+    @Autowired
+    private IdempotenciaService idempotenciaService;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private FluxoMovimentos fluxoMovimentos;
+
+    @Value("${apidemo.transacoes.concorrencia:ATOMICO}")
+    private ModoConcorrencia modoConcorrencia;
+    // 0 usa uma partição por processador
+    @Value("${apidemo.motor.particoes:0}")
+    private int quantidadeParticoes;
+    // Comandos aguardando em cada partição (potência de 2); com o anel cheio a requisição espera
+    @Value("${apidemo.motor.capacidade-anel:4096}")
+    private int capacidadeAnel;
+    @Value("${apidemo.motor.espera-maxima-ms:2000}")
+    private long esperaMaximaMs;
+    // Depois disso, com Idempotency-Key, a requisição responde 202 e a movimentação segue na fila;
+    // sem chave a requisição continua esperando: a movimentação aceita pela partição não é desfeita
+    @Value("${apidemo.motor.espera-resposta-ms:10000}")
+    private long esperaRespostaMs;
+    @Value("${apidemo.motor.lote-maximo:500}")
+    private int loteMaximo;
+
+    public record Idempotencia(String chave, String operacao) {
+    }
+
+    private final Map<String, CompletableFuture<Void>> emAndamento = new ConcurrentHashMap<>();
+    private Particao[] particoes;
+    private GravadorMotor gravador;
+    private volatile boolean ativo;
+
+    public Transacao movimentar(TipoTransacao tipo, int idConta, BigDecimal valor, Idempotencia idempotencia) {
+        CompletableFuture<Transacao> resposta = new CompletableFuture<>();
+        enviar(idConta, new Movimento(tipo, idConta, Dinheiro.centavos(valor), idempotencia, resposta));
+        return aguardarConclusao(resposta, idempotencia);
+    }
+
+    public Transacao transferir(int idContaEnvia, int idContaRecebe, BigDecimal valor, Idempotencia idempotencia) {
+        if (idContaEnvia == idContaRecebe) {
+            throw new RuntimeException("Conta de destino inválida");
+        }
+        CompletableFuture<Transacao> resposta = new CompletableFuture<>();
+        enviar(idContaEnvia,
+                new Debito(idContaEnvia, idContaRecebe, Dinheiro.centavos(valor), idempotencia, resposta));
+        return aguardarConclusao(resposta, idempotencia);
+    }
+
+    // Uma Idempotency-Key em andamento no motor: as repetições concorrentes esperam a primeira
+    // terminar e depois consultam a resposta registrada. Se a primeira respondeu 202, a chave
+    // continua em andamento até a movimentação ser gravada ou recusada.
+    public <T> T executarUmaVez(String chave, Supplier<T> execucao, Supplier<T> repeticao) {
+        CompletableFuture<Void> minha = new CompletableFuture<>();
+        CompletableFuture<Void> anterior = emAndamento.putIfAbsent(chave, minha);
+        if (anterior != null) {
+            try {
+                esperar(anterior);
+            } catch (TimeoutException e) {
+                throw new MovimentacaoEmAndamentoException(chave, anterior);
+            } catch (RuntimeException e) {
+                // A primeira falhou: a repetição decide pelo que estiver registrado
+            }
+            return repeticao.get();
+        }
+        boolean concluida = true;
+        try {
+            return execucao.get();
+        } catch (MovimentacaoEmAndamentoException e) {
+            concluida = false;
+            e.getConclusao().whenComplete((resultado, erro) -> {
+                emAndamento.remove(chave, minha);
+                minha.complete(null);
+            });
+            throw e;
+        } finally {
+            if (concluida) {
+                emAndamento.remove(chave, minha);
+                minha.complete(null);
+            }
+        }
+    }
+
+    // Alteração administrativa da conta (inclusive do saldo absoluto): passa pela partição, que
+    // espera as transferências da conta em trânsito e o gravador, executa a gravação e relê a conta
+    // no próximo comando. Sem isso a partição validaria contra o saldo antigo enquanto o gravador
+    // aplica variações sobre o novo.
+    public Conta alterarConta(int idConta, Supplier<Conta> gravacao) {
+        if (!ativo) {
+            throw new IllegalStateException("Motor de saldos não está ativo");
+        }
+        CompletableFuture<Conta> resposta = new CompletableFuture<>();
+        particao(idConta).enviarInterno(new Alteracao(idConta, gravacao, resposta));
+        return aguardarConclusao(resposta, null);
+    }
+
+    // A conta foi alterada fora do motor: a partição esquece o saldo em memória e relê do banco.
+    // Dentro de uma transação, só depois do commit.
+    public void descartar(int idConta) {
+        descartarDepoisDoCommit(idConta);
+    }
+
+    public void descartarTodas() {
+        descartarDepoisDoCommit(null);
+    }
+
+    private void descartarDepoisDoCommit(Integer idConta) {
+        if (!ativo) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    descartarAgora(idConta);
+                }
+            });
+        } else {
+            descartarAgora(idConta);
+        }
+    }
+
+    private void descartarAgora(Integer idConta) {
+        if (idConta != null) {
+            CompletableFuture<Void> resposta = new CompletableFuture<>();
+            particao(idConta).enviarInterno(new Descarte(idConta, resposta));
+            aguardar(resposta);
+            return;
+        }
+        CompletableFuture<Void> todas = CompletableFuture.completedFuture(null);
+        for (Particao particao : particoes) {
+            CompletableFuture<Void> resposta = new CompletableFuture<>();
+            particao.enviarInterno(new Descarte(null, resposta));
+            todas = todas.thenCombine(resposta, (a, b) -> null);
+        }
+        aguardar(todas);
+    }
+
+    // Usado pelo gravador quando o banco recusa um registro; não espera o descarte
+    void descartarDepois(int idConta) {
+        particao(idConta).enviarInterno(new Descarte(idConta, new CompletableFuture<>()));
+    }
+
+    public boolean ativo() {
+        return ativo;
+    }
+
+    Particao particao(int idConta) {
+        return particoes[Math.floorMod(idConta, particoes.length)];
+    }
+
+    private void enviar(int idConta, Comando comando) {
+        if (!ativo) {
+            throw new IllegalStateException("Motor de saldos não está ativo");
+        }
+        particao(idConta).enviar(comando);
+    }
+
+    void gravar(GravadorMotor.Registro registro) {
+        gravador.enviar(registro);
+    }
+
+    CompletableFuture<Void> barreira() {
+        CompletableFuture<Void> resposta = new CompletableFuture<>();
+        gravador.enviar(new GravadorMotor.Barreira(resposta));
+        return resposta;
+    }
+
+    // Chamado pela thread da partição quando a conta ainda não está em memória
+    Conta lerConta(int idConta) {
+        return contaRepository.findById(idConta)
+                .orElseThrow(() -> new EntityNotFoundException("Conta não encontrada"));
+    }
+
+    ContaRepository contaRepository() {
+        return contaRepository;
+    }
+
+    TransacaoRepository transacaoRepository() {
+        return transacaoRepository;
+    }
+
+    IdempotenciaService idempotenciaService() {
+        return idempotenciaService;
+    }
+
+    FluxoMovimentos fluxoMovimentos() {
+        return fluxoMovimentos;
+    }
+
+    TransactionTemplate transactionTemplate() {
+        return transactionTemplate;
+    }
+
+    private <T> T aguardar(CompletableFuture<T> resposta) {
+        try {
+            return esperar(resposta);
+        } catch (TimeoutException e) {
+            throw new RuntimeException("Tempo esgotado aguardando o motor de saldos");
+        }
+    }
+
+    // O comando já está na partição e vai ser gravado ou recusado: o tempo esgotado nunca vira erro.
+    // Com chave, quem chamou recebe a chave para consultar depois; sem chave, continua esperando.
+    private <T> T aguardarConclusao(CompletableFuture<T> resposta, Idempotencia idempotencia) {
+        while (true) {
+            try {
+                return esperar(resposta);
+            } catch (TimeoutException e) {
+                if (idempotencia != null) {
+                    throw new MovimentacaoEmAndamentoException(idempotencia.chave(), resposta);
+                }
+                log.warn("Motor de saldos demorando mais de {} ms para responder; aguardando", esperaRespostaMs);
+            }
+        }
+    }
+
+    private <T> T esperar(CompletableFuture<T> resposta) throws TimeoutException {
+        try {
+            return resposta.get(esperaRespostaMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Movimentação interrompida", e);
+        }
+    }
+
+    @Override
+    public void start() {
+        if (modoConcorrencia != ModoConcorrencia.PARTICIONADO) {
+            return;
+        }
+        int quantidade = quantidadeParticoes > 0 ? quantidadeParticoes : Runtime.getRuntime().availableProcessors();
+        gravador = new GravadorMotor(this, loteMaximo, Timer.builder("apidemo.motor.gravacao")
+                .description("Tempo de gravação de cada lote do motor de saldos no banco")
+                .register(meterRegistry));
+        gravador.iniciar();
+        particoes = new Particao[quantidade];
+        for (int i = 0; i < quantidade; i++) {
+            particoes[i] = new Particao(this, capacidadeAnel, TimeUnit.MILLISECONDS.toNanos(esperaMaximaMs));
+            particoes[i].iniciar("motor-saldos-" + i);
+        }
+        ativo = true;
+    }
+
+    // Para de aceitar comandos, esvazia as partições e depois a fila do gravador
+    @Override
+    public void stop() {
+        if (!ativo) {
+            return;
+        }
+        ativo = false;
+        try {
+            for (Particao particao : particoes) {
+                particao.parar();
+            }
+            gravador.parar();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return ativo;
+    }
+
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+}
@@ -0,0 +1,357 @@
+package village.sillicon.apidemo.motor;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+import village.sillicon.apidemo.exceptions.ContaBloqueadaException;
+import village.sillicon.apidemo.exceptions.LimiteDiarioExcedidoException;
+import village.sillicon.apidemo.exceptions.SaldoInsuficienteException;
+import village.sillicon.apidemo.models.Conta;
+import village.sillicon.apidemo.models.Dinheiro;
+import village.sillicon.apidemo.models.Transacao;
+import village.sillicon.apidemo.models.Transacao.TipoTransacao;
+import village.sillicon.apidemo.motor.GravadorMotor.Lancamento;
+import village.sillicon.apidemo.motor.GravadorMotor.Registro;
+import village.sillicon.apidemo.motor.MotorSaldos.Idempotencia;
+
+// Uma thread dona de um subconjunto das contas: aplica os comandos em sequência, sobre saldos
+// em centavos guardados em memória, sem travas. O resultado vai para o GravadorMotor.
+final class Particao implements Runnable {
+
+    sealed interface Comando permits Movimento, Debito, Credito, Confirmacao, Estorno, Descarte, Alteracao {
+    }
+
+    record Movimento(TipoTransacao tipo, int idConta, long centavos, Idempotencia idempotencia,
+            CompletableFuture<Transacao> resposta) implements Comando {
+    }
+
+    // Transferência, fase 1: na partição de quem envia, valida e reserva (debita) o valor
+    record Debito(int idEnvia, int idRecebe, long centavos, Idempotencia idempotencia,
+            CompletableFuture<Transacao> resposta) implements Comando {
+    }
+
+    // Fase 2: na partição de quem recebe, credita e manda as duas pernas para o gravador
+    record Credito(Debito debito, SaldoConta origem, Lancamento envio) implements Comando {
+    }
+
+    // Volta para a partição de quem envia: a transferência terminou
+    record Confirmacao(SaldoConta origem) implements Comando {
+    }
+
+    // Volta para a partição de quem envia: a fase 2 foi recusada, devolve a reserva
+    record Estorno(Debito debito, SaldoConta origem, RuntimeException motivo) implements Comando {
+    }
+
+    // Esquece a conta (ou todas, com idConta nulo) depois que o gravador alcançar a partição;
+    // o próximo comando relê do banco
+    record Descarte(Integer idConta, CompletableFuture<Void> resposta) implements Comando {
+    }
+
+    // Alteração da conta fora das movimentações (saldo, limite, bloqueio): grava na thread da
+    // partição, sem movimentos da conta no meio, e esquece a conta para o próximo comando reler
+    record Alteracao(int idConta, Supplier<Conta> gravacao, CompletableFuture<Conta> resposta) implements Comando {
+    }
+
+    static final class SaldoConta {
+        final int idConta;
+        long saldo;
+        long limiteDiario;
+        long saqueDia;
+        long dia;
+        boolean ativo;
+        // Transferências para outras partições com a reserva feita e a fase 2 ainda pendente
+        int emTransito;
+
+        SaldoConta(Conta conta, long hoje) {
+            idConta = conta.getIdConta();
+            saldo = Dinheiro.centavos(conta.getSaldo());
+            limiteDiario = Dinheiro.centavos(conta.getLimiteSaqueDiario());
+            saqueDia = Dinheiro.centavos(conta.totalSaquesDoDia(LocalDate.ofEpochDay(hoje)));
+            dia = hoje;
+            ativo = conta.getFlagAtivo();
+        }
+
+        long saquesDoDia(long hoje) {
+            return dia == hoje ? saqueDia : 0;
+        }
+    }
+
+    private final MotorSaldos motor;
+    private final AnelComandos<Comando> anel;
+    // Mensagens entre partições: sem limite, para que duas partições nunca esperem uma pela outra
+    private final Queue<Comando> internos = new ConcurrentLinkedQueue<>();
+    private final MapaInt<SaldoConta> contas = new MapaInt<>();
+    private final long esperaMaximaNanos;
+    private int emTransito;
+    private final List<Comando> adiados = new ArrayList<>();
+    private Thread thread;
+    private volatile boolean dormindo;
+    private volatile boolean ativa = true;
+
+    Particao(MotorSaldos motor, int capacidadeAnel, long esperaMaximaNanos) {
+        this.motor = motor;
+        this.anel = new AnelComandos<>(capacidadeAnel);
+        this.esperaMaximaNanos = esperaMaximaNanos;
+    }
+
+    void iniciar(String nome) {
+        thread = Thread.ofPlatform().name(nome).daemon().start(this);
+    }
+
+    void parar() throws InterruptedException {
+        ativa = false;
+        LockSupport.unpark(thread);
+        thread.join(10_000);
+    }
+
+    // Chamado pelas threads das requisições; com o anel cheio espera até esperaMaxima e desiste
+    void enviar(Comando comando) {
+        long limite = 0;
+        while (!anel.oferecer(comando)) {
+            if (limite == 0) {
+                limite = System.nanoTime() + esperaMaximaNanos;
+            } else if (System.nanoTime() > limite) {
+                throw new RuntimeException("Motor de saldos sobrecarregado, tente novamente");
+            }
+            Thread.yield();
+        }
+        acordar();
+    }
+
+    void enviarInterno(Comando comando) {
+        internos.add(comando);
+        acordar();
+    }
+
+    private void acordar() {
+        if (dormindo) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    @Override
+    public void run() {
+        int ocioso = 0;
+        while (ativa || !anel.vazio() || !internos.isEmpty()) {
+            Comando comando = internos.poll();
+            if (comando == null) {
+                comando = anel.retirar();
+            }
+            if (comando == null) {
+                ocioso = aguardar(ocioso);
+                continue;
+            }
+            ocioso = 0;
+            try {
+                executar(comando);
+            } catch (RuntimeException e) {
+                falhar(comando, e);
+            }
+        }
+    }
+
+    // Gira um pouco, depois cede a CPU e por fim estaciona até um produtor acordar a thread
+    private int aguardar(int ocioso) {
+        if (ocioso < 100) {
+            Thread.onSpinWait();
+        } else if (ocioso < 200) {
+            Thread.yield();
+        } else {
+            dormindo = true;
+            if (anel.vazio() && internos.isEmpty() && ativa) {
+                LockSupport.parkNanos(this, 1_000_000);
+            }
+            dormindo = false;
+        }
+        return ocioso + 1;
+    }
+
+    private void executar(Comando comando) {
+        switch (comando) {
+            case Movimento movimento -> movimentar(movimento);
+            case Debito debito -> debitar(debito);
+            case Credito credito -> creditar(credito);
+            case Confirmacao confirmacao -> concluirTransito(confirmacao.origem());
+            case Estorno estorno -> estornar(estorno);
+            case Descarte descarte -> descartar(descarte);
+            case Alteracao alteracao -> alterar(alteracao);
+        }
+    }
+
+    private void falhar(Comando comando, RuntimeException erro) {
+        switch (comando) {
+            case Movimento movimento -> movimento.resposta().completeExceptionally(erro);
+            case Debito debito -> debito.resposta().completeExceptionally(erro);
+            case Credito credito -> credito.debito().resposta().completeExceptionally(erro);
+            case Descarte descarte -> descarte.resposta().completeExceptionally(erro);
+            case Alteracao alteracao -> alteracao.resposta().completeExceptionally(erro);
+            default -> {
+            }
+        }
+    }
+
+    private void movimentar(Movimento movimento) {
+        long hoje = LocalDate.now().toEpochDay();
+        SaldoConta conta = carregar(movimento.idConta(), hoje);
+        validar(conta, movimento.tipo(), movimento.centavos(), hoje);
+        if (movimento.tipo() == TipoTransacao.SAQUE) {
+            conta.saldo -= movimento.centavos();
+            conta.saqueDia = conta.saquesDoDia(hoje) + movimento.centavos();
+            conta.dia = hoje;
+            gravar(List.of(lancamento(conta, TipoTransacao.SAQUE, movimento.centavos(), true)),
+                    movimento.idempotencia(), movimento.resposta());
+        } else {
+            conta.saldo += movimento.centavos();
+            gravar(List.of(lancamento(conta, movimento.tipo(), movimento.centavos(), false)),
+                    movimento.idempotencia(), movimento.resposta());
+        }
+    }
+
+    private void debitar(Debito debito) {
+        long hoje = LocalDate.now().toEpochDay();
+        SaldoConta envia = carregar(debito.idEnvia(), hoje);
+        validar(envia, TipoTransacao.TRANSFERENCIA_ENVIADA, debito.centavos(), hoje);
+        envia.saldo -= debito.centavos();
+        Credito credito = new Credito(debito, envia,
+                lancamento(envia, TipoTransacao.TRANSFERENCIA_ENVIADA, debito.centavos(), false));
+        Particao destino = motor.particao(debito.idRecebe());
+        if (destino == this) {
+            creditar(credito);
+        } else {
+            envia.emTransito++;
+            emTransito++;
+            destino.enviarInterno(credito);
+        }
+    }
+
+    private void creditar(Credito credito) {
+        Debito debito = credito.debito();
+        Particao origem = motor.particao(debito.idEnvia());
+        SaldoConta recebe;
+        try {
+            long hoje = LocalDate.now().toEpochDay();
+            recebe = carregar(debito.idRecebe(), hoje);
+            validar(recebe, TipoTransacao.TRANSFERENCIA_RECEBIDA, debito.centavos(), hoje);
+        } catch (RuntimeException e) {
+            if (origem == this) {
+                estornar(new Estorno(debito, credito.origem(), e));
+            } else {
+                origem.enviarInterno(new Estorno(debito, credito.origem(), e));
+            }
+            return;
+        }
+        recebe.saldo += debito.centavos();
+        gravar(List.of(credito.envio(),
+                lancamento(recebe, TipoTransacao.TRANSFERENCIA_RECEBIDA, debito.centavos(), false)),
+                debito.idempotencia(), debito.resposta());
+        if (origem != this) {
+            origem.enviarInterno(new Confirmacao(credito.origem()));
+        }
+    }
+
+    // Só devolve se a conta em memória ainda é a que fez a reserva (não foi descartada e relida)
+    private void estornar(Estorno estorno) {
+        SaldoConta origem = estorno.origem();
+        if (contas.get(origem.idConta) == origem) {
+            origem.saldo += estorno.debito().centavos();
+        }
+        estorno.debito().resposta().completeExceptionally(estorno.motivo());
+        if (motor.particao(estorno.debito().idRecebe()) != this) {
+            concluirTransito(origem);
+        }
+    }
+
+    private void concluirTransito(SaldoConta origem) {
+        origem.emTransito--;
+        emTransito--;
+        if (!adiados.isEmpty()) {
+            List<Comando> pendentes = new ArrayList<>(adiados);
+            adiados.clear();
+            for (Comando comando : pendentes) {
+                try {
+                    executar(comando);
+                } catch (RuntimeException e) {
+                    falhar(comando, e);
+                }
+            }
+        }
+    }
+
+    // Com transferências da conta ainda na fase 2, o descarte espera elas terminarem
+    private void descartar(Descarte descarte) {
+        if (descarte.idConta() == null ? emTransito > 0 : emTransitoDaConta(descarte.idConta()) > 0) {
+            adiados.add(descarte);
+            return;
+        }
+        // O que esta partição já mandou para o gravador precisa estar no banco antes de reler
+        motor.barreira().join();
+        if (descarte.idConta() == null) {
+            contas.limpar();
+        } else {
+            contas.remove(descarte.idConta());
+        }
+        descarte.resposta().complete(null);
+    }
+
+    // Mesma espera do descarte; depois da barreira o banco tem tudo o que a partição aceitou, e a
+    // gravação sobrescreve o saldo sem nenhum movimento da conta entre a leitura e o commit
+    private void alterar(Alteracao alteracao) {
+        if (emTransitoDaConta(alteracao.idConta()) > 0) {
+            adiados.add(alteracao);
+            return;
+        }
+        motor.barreira().join();
+        Conta conta;
+        try {
+            conta = alteracao.gravacao().get();
+        } finally {
+            contas.remove(alteracao.idConta());
+        }
+        alteracao.resposta().complete(conta);
+    }
+
+    private int emTransitoDaConta(int idConta) {
+        SaldoConta conta = contas.get(idConta);
+        return conta == null ? 0 : conta.emTransito;
+    }
+
+    private SaldoConta carregar(int idConta, long hoje) {
+        SaldoConta conta = contas.get(idConta);
+        if (conta == null) {
+            conta = new SaldoConta(motor.lerConta(idConta), hoje);
+            contas.put(idConta, conta);
+        }
+        return conta;
+    }
+
+    // Mesmas regras do TransacaoService.validarTransacao, em centavos
+    private static void validar(SaldoConta conta, TipoTransacao tipo, long centavos, long hoje) {
+        if (!conta.ativo) {
+            throw new ContaBloqueadaException(tipo);
+        }
+        if ((tipo == TipoTransacao.SAQUE || tipo == TipoTransacao.TRANSFERENCIA_ENVIADA) && centavos > conta.saldo) {
+            throw new SaldoInsuficienteException(tipo);
+        }
+        if (tipo == TipoTransacao.SAQUE && conta.saquesDoDia(hoje) + centavos > conta.limiteDiario) {
+            throw new LimiteDiarioExcedidoException(tipo);
+        }
+    }
+
+    // Só o saque grava o acumulado do dia; os demais lançamentos levam apenas a variação do saldo
+    private static Lancamento lancamento(SaldoConta conta, TipoTransacao tipo, long centavos, boolean saque) {
+        long variacao = tipo == TipoTransacao.SAQUE || tipo == TipoTransacao.TRANSFERENCIA_ENVIADA ? -centavos : centavos;
+        return new Lancamento(conta.idConta, tipo, centavos, variacao, saque ? conta.saqueDia : -1,
+                saque ? LocalDate.ofEpochDay(conta.dia) : null);
+    }
+
+    private void gravar(List<Lancamento> lancamentos, Idempotencia idempotencia,
+            CompletableFuture<Transacao> resposta) {
+        motor.gravar(new Registro(lancamentos, idempotencia, resposta));
+    }
+}
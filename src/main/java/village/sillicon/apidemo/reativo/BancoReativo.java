@@ -0,0 +1,159 @@
+package village.sillicon.apidemo.reativo;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.transaction.reactive.TransactionalOperator;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.spi.Readable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import village.sillicon.apidemo.dtos.ContaDTO;
+import village.sillicon.apidemo.dtos.TransacaoDTO;
+import village.sillicon.apidemo.models.Conta;
+import village.sillicon.apidemo.models.Transacao.TipoTransacao;
+
+// Acesso ao banco da API reativa, em SQL pelo R2DBC. As mesmas tabelas e as mesmas condições dos
+// UPDATEs atômicos de ContaRepository; o pool não é um bean para não desligar o DataSource do JPA.
+public class BancoReativo implements DisposableBean {
+
+    private static final String CONTA_DTO = "SELECT c.id_conta, p.id_pessoa, p.nome, c.saldo, c.limite_saque_diario, c.flag_ativo, c.tipo_conta, c.data_criacao, c.saque_diario_acumulado, c.data_saque_diario FROM contas c JOIN pessoas p ON p.id_pessoa = c.id_pessoa";
+    private static final String TRANSACAO_DTO = "SELECT id_transacao, id_conta, valor, tipo_transacao, data_transacao FROM transacoes";
+
+    private static final String SACAR = "UPDATE contas SET saldo = saldo - :valor, saque_diario_acumulado = (CASE WHEN data_saque_diario = :dia THEN saque_diario_acumulado ELSE 0 END) + :valor, data_saque_diario = :dia, versao = versao + 1 WHERE id_conta = :idConta AND flag_ativo = TRUE AND saldo >= :valor AND (CASE WHEN data_saque_diario = :dia THEN saque_diario_acumulado ELSE 0 END) + :valor <= limite_saque_diario";
+    private static final String DEBITAR = "UPDATE contas SET saldo = saldo - :valor, versao = versao + 1 WHERE id_conta = :idConta AND flag_ativo = TRUE AND saldo >= :valor";
+    private static final String CREDITAR = "UPDATE contas SET saldo = saldo + :valor, versao = versao + 1 WHERE id_conta = :idConta AND flag_ativo = TRUE";
+    // CAST: o driver R2DBC do H2 (testes) envia texto como CLOB, que não converte para a coluna ENUM
+    private static final String INSERIR_TRANSACAO = "INSERT INTO transacoes (id_transacao, id_conta, valor, tipo_transacao, data_transacao) VALUES (:idTransacao, :idConta, :valor, CAST(:tipoTransacao AS CHAR(30)), :dataTransacao)";
+
+    // Cada valor da sequência reserva um bloco de 50 ids, como o otimizador pooled do Hibernate
+    private static final String PROXIMO_BLOCO = "SELECT NEXT VALUE FOR transacoes_seq";
+    private static final int TAMANHO_BLOCO = 50;
+
+    private final ConnectionPool pool;
+    private final DatabaseClient cliente;
+    private final TransactionalOperator transacional;
+    private int proximoId;
+    private int ultimoIdDoBloco = -1;
+
+    public BancoReativo(ConnectionPool pool) {
+        this.pool = pool;
+        this.cliente = DatabaseClient.create(pool);
+        this.transacional = TransactionalOperator.create(new R2dbcTransactionManager(pool));
+    }
+
+    public ConnectionPool pool() {
+        return pool;
+    }
+
+    public <T> Mono<T> emTransacao(Mono<T> operacao) {
+        return transacional.transactional(operacao);
+    }
+
+    // Número de linhas afetadas; 0 quando a condição (a validação) não foi atendida
+    public Mono<Long> sacar(int idConta, BigDecimal valor, LocalDate dia) {
+        return cliente.sql(SACAR).bind("valor", valor).bind("dia", dia).bind("idConta", idConta)
+                .fetch().rowsUpdated();
+    }
+
+    public Mono<Long> debitar(int idConta, BigDecimal valor) {
+        return cliente.sql(DEBITAR).bind("valor", valor).bind("idConta", idConta).fetch().rowsUpdated();
+    }
+
+    public Mono<Long> creditar(int idConta, BigDecimal valor) {
+        return cliente.sql(CREDITAR).bind("valor", valor).bind("idConta", idConta).fetch().rowsUpdated();
+    }
+
+    public Mono<TransacaoDTO> inserirTransacao(int idConta, BigDecimal valor, TipoTransacao tipo) {
+        return Mono.defer(this::proximoIdTransacao).flatMap(idTransacao -> {
+            LocalDateTime agora = LocalDateTime.now();
+            return cliente.sql(INSERIR_TRANSACAO)
+                    .bind("idTransacao", idTransacao).bind("idConta", idConta).bind("valor", valor)
+                    .bind("tipoTransacao", tipo.name()).bind("dataTransacao", agora)
+                    .fetch().rowsUpdated()
+                    .thenReturn(new TransacaoDTO(idTransacao, idConta, valor, tipo, agora));
+        });
+    }
+
+    // Só os campos usados por TransacaoService.validarTransacao
+    public Mono<Conta> buscarParaValidar(int idConta) {
+        return cliente.sql("SELECT saldo, limite_saque_diario, flag_ativo, saque_diario_acumulado, data_saque_diario FROM contas WHERE id_conta = :idConta")
+                .bind("idConta", idConta)
+                .map(linha -> {
+                    Conta conta = new Conta();
+                    conta.setSaldo(linha.get("saldo", BigDecimal.class));
+                    conta.setLimiteSaqueDiario(linha.get("limite_saque_diario", BigDecimal.class));
+                    conta.setFlagAtivo(linha.get("flag_ativo", Boolean.class));
+                    conta.definirSaqueDiario(linha.get("saque_diario_acumulado", BigDecimal.class),
+                            linha.get("data_saque_diario", LocalDate.class));
+                    return conta;
+                })
+                .one();
+    }
+
+    public Mono<ContaDTO> buscarConta(int idConta) {
+        return cliente.sql(CONTA_DTO + " WHERE c.id_conta = :idConta").bind("idConta", idConta)
+                .map(BancoReativo::contaDTO).one();
+    }
+
+    // Paginação por cursor, como em ContaRepository.listarDTO
+    public Flux<ContaDTO> listarContas(int after, int limite) {
+        return cliente.sql(CONTA_DTO + " WHERE c.id_conta > :after ORDER BY c.id_conta LIMIT :limite")
+                .bind("after", after).bind("limite", limite)
+                .map(BancoReativo::contaDTO).all();
+    }
+
+    public Mono<TransacaoDTO> buscarTransacao(int idTransacao) {
+        return cliente.sql(TRANSACAO_DTO + " WHERE id_transacao = :idTransacao").bind("idTransacao", idTransacao)
+                .map(BancoReativo::transacaoDTO).one();
+    }
+
+    public Flux<TransacaoDTO> listarTransacoes(int after, int limite) {
+        return cliente.sql(TRANSACAO_DTO + " WHERE id_transacao > :after ORDER BY id_transacao LIMIT :limite")
+                .bind("after", after).bind("limite", limite)
+                .map(BancoReativo::transacaoDTO).all();
+    }
+
+    // Ids do bloco atual; esgotado, busca outro valor da sequência. Duas buscas concorrentes só
+    // desperdiçam o resto de um bloco.
+    private Mono<Integer> proximoIdTransacao() {
+        synchronized (this) {
+            if (proximoId <= ultimoIdDoBloco) {
+                return Mono.just(proximoId++);
+            }
+        }
+        return cliente.sql(PROXIMO_BLOCO).map(linha -> linha.get(0, Long.class)).one()
+                .map(valor -> {
+                    synchronized (this) {
+                        int ultimo = valor.intValue();
+                        proximoId = Math.max(1, ultimo - TAMANHO_BLOCO + 1);
+                        ultimoIdDoBloco = ultimo;
+                        return proximoId++;
+                    }
+                });
+    }
+
+    private static ContaDTO contaDTO(Readable linha) {
+        return new ContaDTO(linha.get("id_conta", Integer.class), linha.get("id_pessoa", Integer.class),
+                linha.get("nome", String.class), linha.get("saldo", BigDecimal.class),
+                linha.get("limite_saque_diario", BigDecimal.class), linha.get("flag_ativo", Boolean.class),
+                linha.get("tipo_conta", Integer.class), linha.get("data_criacao", LocalDateTime.class),
+                linha.get("saque_diario_acumulado", BigDecimal.class), linha.get("data_saque_diario", LocalDate.class));
+    }
+
+    private static TransacaoDTO transacaoDTO(Readable linha) {
+        return new TransacaoDTO(linha.get("id_transacao", Integer.class), linha.get("id_conta", Integer.class),
+                linha.get("valor", BigDecimal.class), TipoTransacao.valueOf(linha.get("tipo_transacao", String.class)),
+                linha.get("data_transacao", LocalDateTime.class));
+    }
+
+    @Override
+    public void destroy() {
+        pool.dispose();
+    }
+}
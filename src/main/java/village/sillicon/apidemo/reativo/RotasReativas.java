@@ -0,0 +1,90 @@
+package village.sillicon.apidemo.reativo;
+
+import static org.springframework.web.reactive.function.server.RequestPredicates.GET;
+import static org.springframework.web.reactive.function.server.RequestPredicates.POST;
+import static org.springframework.web.reactive.function.server.RouterFunctions.route;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import io.r2dbc.spi.R2dbcTimeoutException;
+import reactor.core.publisher.Mono;
+import village.sillicon.apidemo.dtos.ContaDTO;
+import village.sillicon.apidemo.dtos.TransacaoDTO;
+import village.sillicon.apidemo.models.Dinheiro;
+import village.sillicon.apidemo.services.IdempotenciaService;
+
+// Os mesmos caminhos de TransacaoController e ContaController para as movimentações e leituras,
+// servidos pelo WebFlux. Idempotency-Key não é aceita aqui: a requisição é recusada em vez de
+// movimentar sem a proteção.
+public final class RotasReativas {
+
+    private RotasReativas() {
+    }
+
+    public static RouterFunction<ServerResponse> criar(TransacaoReativaService servico) {
+        return route(POST("/transacoes/saque/{id}/{valor}"), requisicao -> movimentar(requisicao,
+                () -> servico.saque(inteiro(requisicao, "id"), valor(requisicao))))
+                .andRoute(POST("/transacoes/deposito/{id}/{valor}"), requisicao -> movimentar(requisicao,
+                        () -> servico.deposito(inteiro(requisicao, "id"), valor(requisicao))))
+                .andRoute(POST("/transacoes/transferencia/{idRecebe}/{idEnvia}/{valor}"),
+                        requisicao -> movimentar(requisicao, () -> servico.transferencia(
+                                inteiro(requisicao, "idEnvia"), inteiro(requisicao, "idRecebe"), valor(requisicao))))
+                .andRoute(GET("/transacoes/buscarPorId/{id}"), requisicao -> responder(
+                        Mono.defer(() -> servico.buscarTransacao(inteiro(requisicao, "id")))))
+                .andRoute(GET("/transacoes/listar"), requisicao -> Mono.defer(() -> ServerResponse.ok()
+                        .body(servico.listarTransacoes(after(requisicao), limit(requisicao)), TransacaoDTO.class)))
+                .andRoute(GET("/contas/buscarPorId/{id}"), requisicao -> responder(
+                        Mono.defer(() -> servico.buscarConta(inteiro(requisicao, "id")))))
+                .andRoute(GET("/contas/listar"), requisicao -> Mono.defer(() -> ServerResponse.ok()
+                        .body(servico.listarContas(after(requisicao), limit(requisicao)), ContaDTO.class)))
+                .filter((requisicao, proximo) -> proximo.handle(requisicao).onErrorResume(RotasReativas::erro));
+    }
+
+    private static Mono<ServerResponse> movimentar(ServerRequest requisicao,
+            Supplier<Mono<TransacaoDTO>> movimentacao) {
+        if (requisicao.headers().firstHeader(IdempotenciaService.CABECALHO) != null) {
+            return ServerResponse.badRequest()
+                    .bodyValue(Map.of("erro", IdempotenciaService.CABECALHO + " não é aceita na API reativa"));
+        }
+        return responder(Mono.defer(movimentacao));
+    }
+
+    private static Mono<ServerResponse> responder(Mono<?> resposta) {
+        return resposta.flatMap(corpo -> ServerResponse.ok().bodyValue(corpo));
+    }
+
+    // Como na API servlet, recusas e erros respondem 500; pool sem conexão livre a tempo responde 503
+    private static Mono<ServerResponse> erro(Throwable erro) {
+        if (erro instanceof TimeoutException || erro instanceof R2dbcTimeoutException
+                || erro.getCause() instanceof TimeoutException) {
+            return ServerResponse.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .bodyValue(Map.of("erro", "Banco de dados ocupado, tente novamente"));
+        }
+        String mensagem = erro.getMessage() != null ? erro.getMessage() : erro.getClass().getSimpleName();
+        return ServerResponse.status(HttpStatus.INTERNAL_SERVER_ERROR).bodyValue(Map.of("erro", mensagem));
+    }
+
+    private static int inteiro(ServerRequest requisicao, String variavel) {
+        return Integer.parseInt(requisicao.pathVariable(variavel));
+    }
+
+    private static BigDecimal valor(ServerRequest requisicao) {
+        return Dinheiro.converter(requisicao.pathVariable("valor"));
+    }
+
+    private static int after(ServerRequest requisicao) {
+        return requisicao.queryParam("after").map(Integer::parseInt).orElse(0);
+    }
+
+    private static Integer limit(ServerRequest requisicao) {
+        return requisicao.queryParam("limit").map(Integer::valueOf).orElse(null);
+    }
+}
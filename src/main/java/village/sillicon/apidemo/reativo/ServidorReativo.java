@@ -0,0 +1,53 @@
+package village.sillicon.apidemo.reativo;
+
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.server.reactive.ReactorHttpHandlerAdapter;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+// Servidor Netty da API reativa, numa porta própria ao lado do Tomcat: as duas pilhas atendem as
+// mesmas contas ao mesmo tempo e podem ser comparadas sob a mesma carga.
+public class ServidorReativo implements SmartLifecycle {
+
+    private final RouterFunction<ServerResponse> rotas;
+    private final HandlerStrategies estrategias;
+    private final int porta;
+    private volatile DisposableServer servidor;
+
+    public ServidorReativo(RouterFunction<ServerResponse> rotas, HandlerStrategies estrategias, int porta) {
+        this.rotas = rotas;
+        this.estrategias = estrategias;
+        this.porta = porta;
+    }
+
+    // Porta em uso; com apidemo.reativo.porta=0 é escolhida na partida
+    public int porta() {
+        return servidor.port();
+    }
+
+    @Override
+    public void start() {
+        ReactorHttpHandlerAdapter adaptador = new ReactorHttpHandlerAdapter(
+                RouterFunctions.toHttpHandler(rotas, estrategias));
+        servidor = HttpServer.create().port(porta).handle(adaptador).bindNow();
+    }
+
+    @Override
+    public void stop() {
+        DisposableServer atual = servidor;
+        if (atual != null) {
+            atual.disposeNow();
+            servidor = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return servidor != null;
+    }
+}
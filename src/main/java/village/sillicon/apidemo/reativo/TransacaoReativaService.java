@@ -0,0 +1,147 @@
+package village.sillicon.apidemo.reativo;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityNotFoundException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import village.sillicon.apidemo.config.CacheConfig;
+import village.sillicon.apidemo.config.Paginacao;
+import village.sillicon.apidemo.dtos.ContaDTO;
+import village.sillicon.apidemo.dtos.TransacaoDTO;
+import village.sillicon.apidemo.exceptions.MovimentacaoRecusadaException;
+import village.sillicon.apidemo.models.Transacao.TipoTransacao;
+import village.sillicon.apidemo.services.FluxoMovimentos;
+import village.sillicon.apidemo.services.TransacaoService;
+
+// Saque, depósito e transferência sem bloquear thread: o mesmo UPDATE condicional do modo ATOMICO
+// e, quando ele não altera nenhuma linha, a conta é relida e passa por
+// TransacaoService.validarTransacao para dizer o motivo da recusa.
+// As escritas não passam pelo Hibernate, então as contas alteradas são removidas do cache da
+// API depois do commit, e os movimentos vão para os streams de FluxoMovimentos.
+public class TransacaoReativaService {
+
+    private final BancoReativo banco;
+    private final TransacaoService transacaoService;
+    private final FluxoMovimentos fluxoMovimentos;
+    private final Paginacao paginacao;
+    private final Cache contasEmCache;
+    private final MeterRegistry meterRegistry;
+
+    public TransacaoReativaService(BancoReativo banco, TransacaoService transacaoService,
+            FluxoMovimentos fluxoMovimentos, Paginacao paginacao, CacheManager cacheManager,
+            MeterRegistry meterRegistry) {
+        this.banco = banco;
+        this.transacaoService = transacaoService;
+        this.fluxoMovimentos = fluxoMovimentos;
+        this.paginacao = paginacao;
+        this.contasEmCache = cacheManager.getCache(CacheConfig.CONTAS);
+        this.meterRegistry = meterRegistry;
+    }
+
+    public Mono<TransacaoDTO> saque(int idConta, BigDecimal valor) {
+        Mono<TransacaoDTO> saque = banco.sacar(idConta, valor, LocalDate.now())
+                .flatMap(alteradas -> alteradas == 0
+                        ? recusar(idConta, TipoTransacao.SAQUE, valor, "Não foi possível realizar saque")
+                        : banco.inserirTransacao(idConta, valor, TipoTransacao.SAQUE));
+        return medir("saque", banco.emTransacao(saque).doOnSuccess(this::concluir));
+    }
+
+    public Mono<TransacaoDTO> deposito(int idConta, BigDecimal valor) {
+        Mono<TransacaoDTO> deposito = banco.creditar(idConta, valor)
+                .flatMap(alteradas -> alteradas == 0
+                        ? recusar(idConta, TipoTransacao.DEPOSITO, valor, "Não foi possível realizar deposito")
+                        : banco.inserirTransacao(idConta, valor, TipoTransacao.DEPOSITO));
+        return medir("deposito", banco.emTransacao(deposito).doOnSuccess(this::concluir));
+    }
+
+    // Débito e crédito na ordem de id das contas, como em TransacaoService.transferenciaAtomica
+    public Mono<TransacaoDTO> transferencia(int idContaEnvia, int idContaRecebe, BigDecimal valor) {
+        if (idContaEnvia == idContaRecebe) {
+            return Mono.error(new RuntimeException("Conta de destino inválida"));
+        }
+        Mono<Void> debito = banco.debitar(idContaEnvia, valor)
+                .flatMap(alteradas -> alteradas == 0
+                        ? recusar(idContaEnvia, TipoTransacao.TRANSFERENCIA_ENVIADA, valor,
+                                "Não foi possível realizar transação")
+                        : Mono.empty());
+        Mono<Void> credito = banco.creditar(idContaRecebe, valor)
+                .flatMap(alteradas -> alteradas == 0
+                        ? recusar(idContaRecebe, TipoTransacao.TRANSFERENCIA_RECEBIDA, valor,
+                                "Não foi possível realizar transação")
+                        : Mono.empty());
+        Mono<List<TransacaoDTO>> transferencia = (idContaEnvia < idContaRecebe ? debito.then(credito)
+                : credito.then(debito))
+                .then(banco.inserirTransacao(idContaEnvia, valor, TipoTransacao.TRANSFERENCIA_ENVIADA))
+                // a perna recebida só depois do débito e da enviada, nunca em paralelo com elas
+                .flatMap(enviada -> banco.inserirTransacao(idContaRecebe, valor,
+                        TipoTransacao.TRANSFERENCIA_RECEBIDA).map(recebida -> List.of(enviada, recebida)));
+        return medir("transferencia", banco.emTransacao(transferencia)
+                .doOnSuccess(pernas -> pernas.forEach(this::concluir))
+                .map(pernas -> pernas.get(1)));
+    }
+
+    public Mono<ContaDTO> buscarConta(int idConta) {
+        return banco.buscarConta(idConta)
+                .switchIfEmpty(Mono.error(() -> new EntityNotFoundException("Conta não encontrada")));
+    }
+
+    public Flux<ContaDTO> listarContas(int after, Integer limit) {
+        return banco.listarContas(after, paginacao.limite(limit).max());
+    }
+
+    public Mono<TransacaoDTO> buscarTransacao(int idTransacao) {
+        return banco.buscarTransacao(idTransacao)
+                .switchIfEmpty(Mono.error(() -> new EntityNotFoundException("Transacao não encontrada")));
+    }
+
+    public Flux<TransacaoDTO> listarTransacoes(int after, Integer limit) {
+        return banco.listarTransacoes(after, paginacao.limite(limit).max());
+    }
+
+    // Só roda quando o UPDATE atômico não afetou nenhuma linha: relê a conta para dizer o motivo
+    private <T> Mono<T> recusar(int idConta, TipoTransacao tipoTransacao, BigDecimal valor, String mensagem) {
+        return banco.buscarParaValidar(idConta)
+                .switchIfEmpty(Mono.error(() -> new EntityNotFoundException("Conta não encontrada")))
+                .flatMap(conta -> {
+                    transacaoService.validarTransacao(conta, tipoTransacao, valor);
+                    return Mono.error(new RuntimeException(mensagem));
+                });
+    }
+
+    // Depois do commit de cada transação criada
+    private void concluir(TransacaoDTO transacao) {
+        contasEmCache.evict(transacao.idConta());
+        fluxoMovimentos.publicar(transacao);
+    }
+
+    // Mesmas tags de apidemo.transacoes, num timer separado para comparar as duas pilhas
+    private <T> Mono<T> medir(String operacao, Mono<T> movimentacao) {
+        return Mono.defer(() -> {
+            Timer.Sample amostra = Timer.start(meterRegistry);
+            return movimentacao
+                    .doOnSuccess(transacao -> parar(amostra, operacao, "sucesso", "nenhum"))
+                    .doOnError(erro -> {
+                        if (erro instanceof MovimentacaoRecusadaException recusada) {
+                            meterRegistry.counter("apidemo.transacoes.recusadas", "tipo",
+                                    recusada.getTipoTransacao().name(), "motivo", recusada.getMotivo()).increment();
+                            parar(amostra, operacao, "recusada", recusada.getMotivo());
+                        } else {
+                            parar(amostra, operacao, "erro", erro.getClass().getSimpleName());
+                        }
+                    });
+        });
+    }
+
+    private void parar(Timer.Sample amostra, String operacao, String resultado, String motivo) {
+        amostra.stop(meterRegistry.timer("apidemo.transacoes.reativas", "operacao", operacao, "resultado",
+                resultado, "motivo", motivo));
+    }
+}
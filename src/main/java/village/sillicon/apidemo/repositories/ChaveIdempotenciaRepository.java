@@ -0,0 +1,30 @@
+package village.sillicon.apidemo.repositories;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import village.sillicon.apidemo.models.ChaveIdempotencia;
+
+import java.time.LocalDateTime;
+
+public interface ChaveIdempotenciaRepository extends JpaRepository<ChaveIdempotencia, String> {
+
+    // INSERT direto em vez de save(): com o id já preenchido o save() faria um SELECT antes (merge).
+    // Uma chave repetida falha aqui, pela chave primária, e desfaz a movimentação junto.
+    @Modifying
+    @Query("INSERT INTO ChaveIdempotencia (chave, operacao, idTransacao, dataCriacao) VALUES (:chave, :operacao, :idTransacao, :dataCriacao)")
+    int registrar(@Param("chave") String chave, @Param("operacao") String operacao,
+            @Param("idTransacao") int idTransacao, @Param("dataCriacao") LocalDateTime dataCriacao);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ChaveIdempotencia c WHERE c.dataCriacao < :limite")
+    int removerCriadasAntesDe(@Param("limite") LocalDateTime limite);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ChaveIdempotencia c WHERE c.chave = :chave AND c.dataCriacao < :limite")
+    int removerSeVencida(@Param("chave") String chave, @Param("limite") LocalDateTime limite);
+}
@@ -1,9 +1,87 @@
 package village.sillicon.apidemo.repositories;
 
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import village.sillicon.apidemo.dtos.ContaArquivo;
+import village.sillicon.apidemo.dtos.ContaDTO;
+import village.sillicon.apidemo.dtos.SaldoConta;
 import village.sillicon.apidemo.models.Conta;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
 public interface ContaRepository extends JpaRepository<Conta, Integer> {
 
+    // Leituras da API em projeção: uma única consulta com o join na pessoa, sem N+1
+    // Paginação por cursor: usa a chave primária, sem OFFSET
+    @Query("SELECT new village.sillicon.apidemo.dtos.ContaDTO(c.idConta, p.idPessoa, p.nome, c.saldo, c.limiteSaqueDiario, c.flagAtivo, c.tipoConta, c.dataCriacao, c.saqueDiarioAcumulado, c.dataSaqueDiario) FROM Conta c JOIN c.pessoa p WHERE c.idConta > :after ORDER BY c.idConta")
+    List<ContaDTO> listarDTO(@Param("after") int after, Limit limit);
+
+    @Query("SELECT new village.sillicon.apidemo.dtos.ContaDTO(c.idConta, p.idPessoa, p.nome, c.saldo, c.limiteSaqueDiario, c.flagAtivo, c.tipoConta, c.dataCriacao, c.saqueDiarioAcumulado, c.dataSaqueDiario) FROM Conta c JOIN c.pessoa p WHERE c.idConta = :idConta")
+    Optional<ContaDTO> buscarDTO(@Param("idConta") int idConta);
+
+    // Exportação em streaming: o driver traz as linhas aos poucos, já no formato do arquivo
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new village.sillicon.apidemo.dtos.ContaArquivo(c.idConta, p.idPessoa, p.nome, p.cpf, p.dataNascimento, c.saldo, c.limiteSaqueDiario, c.tipoConta, c.flagAtivo) FROM Conta c JOIN c.pessoa p ORDER BY c.idConta")
+    Stream<ContaArquivo> streamArquivo();
+
+    // Conciliação: percorre as contas em lotes de ids e lê saldo e versão sem carregar a entidade
+    @Query("SELECT c.idConta FROM Conta c WHERE c.idConta > :after ORDER BY c.idConta")
+    List<Integer> listarIds(@Param("after") int after, Limit limit);
+
+    @Query("SELECT new village.sillicon.apidemo.dtos.SaldoConta(c.idConta, c.saldo, c.versao) FROM Conta c WHERE c.idConta IN :ids")
+    List<SaldoConta> saldos(@Param("ids") Collection<Integer> ids);
+
+    // SELECT ... FOR UPDATE: segura a linha até o fim da transação
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Conta c WHERE c.idConta = :idConta")
+    Optional<Conta> findByIdParaAtualizar(@Param("idConta") int idConta);
+
+    // Trava várias contas de uma vez, sempre em ordem de id
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Conta c WHERE c.idConta IN :ids ORDER BY c.idConta")
+    List<Conta> findAllByIdParaAtualizar(@Param("ids") Collection<Integer> ids);
+
+    // Reconstrói o acumulado de saques de todas as contas a partir das transações do dia
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Conta c SET c.versao = c.versao + 1, c.saqueDiarioAcumulado = (SELECT COALESCE(SUM(t.valor), 0) FROM Transacao t WHERE t.conta = c AND t.tipoTransacao = 'SAQUE' AND t.dataTransacao >= :inicio AND t.dataTransacao < :fim), c.dataSaqueDiario = :dia")
+    int recalcularSaquesDiarios(@Param("inicio") LocalDateTime inicio, @Param("fim") LocalDateTime fim,
+            @Param("dia") LocalDate dia);
+
+    // Débitos e créditos atômicos: a condição do WHERE é a validação, o retorno é o número de linhas afetadas
+    @Modifying
+    @Query("UPDATE Conta c SET c.saldo = c.saldo - :valor, c.saqueDiarioAcumulado = (CASE WHEN c.dataSaqueDiario = :dia THEN c.saqueDiarioAcumulado ELSE 0 END) + :valor, c.dataSaqueDiario = :dia, c.versao = c.versao + 1 WHERE c.idConta = :idConta AND c.flagAtivo = true AND c.saldo >= :valor AND (CASE WHEN c.dataSaqueDiario = :dia THEN c.saqueDiarioAcumulado ELSE 0 END) + :valor <= c.limiteSaqueDiario")
+    int sacar(@Param("idConta") int idConta, @Param("valor") BigDecimal valor, @Param("dia") LocalDate dia);
+
+    @Modifying
+    @Query("UPDATE Conta c SET c.saldo = c.saldo - :valor, c.versao = c.versao + 1 WHERE c.idConta = :idConta AND c.flagAtivo = true AND c.saldo >= :valor")
+    int debitar(@Param("idConta") int idConta, @Param("valor") BigDecimal valor);
+
+    @Modifying
+    @Query("UPDATE Conta c SET c.saldo = c.saldo + :valor, c.versao = c.versao + 1 WHERE c.idConta = :idConta AND c.flagAtivo = true")
+    int creditar(@Param("idConta") int idConta, @Param("valor") BigDecimal valor);
+
+    // Gravação do motor de saldos: a validação já foi feita em memória, aqui só entra a variação líquida
+    @Modifying
+    @Query("UPDATE Conta c SET c.saldo = c.saldo + :variacao, c.versao = c.versao + 1 WHERE c.idConta = :idConta")
+    int aplicarMovimento(@Param("idConta") int idConta, @Param("variacao") BigDecimal variacao);
+
+    @Modifying
+    @Query("UPDATE Conta c SET c.saldo = c.saldo + :variacao, c.saqueDiarioAcumulado = :saqueDia, c.dataSaqueDiario = :dia, c.versao = c.versao + 1 WHERE c.idConta = :idConta")
+    int aplicarMovimentoComSaque(@Param("idConta") int idConta, @Param("variacao") BigDecimal variacao,
+            @Param("saqueDia") BigDecimal saqueDia, @Param("dia") LocalDate dia);
 }
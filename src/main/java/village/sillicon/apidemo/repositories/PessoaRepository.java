@@ -1,9 +1,53 @@
 package village.sillicon.apidemo.repositories;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import village.sillicon.apidemo.config.CacheSegundoNivelConfig;
+import village.sillicon.apidemo.dtos.PessoaDTO;
+import village.sillicon.apidemo.dtos.ResumoPessoa;
 import village.sillicon.apidemo.models.Pessoa;
 
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 public interface PessoaRepository extends JpaRepository<Pessoa, Integer> {
+    // Paginação por cursor: usa a chave primária, sem OFFSET
+    List<Pessoa> findByIdPessoaGreaterThanOrderByIdPessoa(int idPessoa, Limit limit);
+
+    // Leitura da API direto em record, sem entidade gerenciada nem cópia
+    @QueryHints({ @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = CacheSegundoNivelConfig.REGIAO_CONSULTAS_PESSOAS) })
+    @Query("SELECT new village.sillicon.apidemo.dtos.PessoaDTO(p.idPessoa, p.nome, p.cpf, p.dataNascimento) FROM Pessoa p WHERE p.idPessoa = :idPessoa")
+    Optional<PessoaDTO> buscarDTO(@Param("idPessoa") int idPessoa);
+
+    // Resumo por pessoa num único GROUP BY sobre Contas. Os saques do dia vêm do acumulado que cada
+    // movimentação já mantém na conta, sem varrer Transacoes.
+    @Query("SELECT new village.sillicon.apidemo.dtos.ResumoPessoa(p.idPessoa, p.nome, COALESCE(SUM(c.saldo), 0), COALESCE(SUM(CASE WHEN c.flagAtivo = true THEN 1 ELSE 0 END), 0), COALESCE(SUM(CASE WHEN c.dataSaqueDiario = :hoje THEN c.saqueDiarioAcumulado ELSE 0 END), 0)) FROM Pessoa p LEFT JOIN Conta c ON c.pessoa = p WHERE p.idPessoa = :idPessoa GROUP BY p.idPessoa, p.nome")
+    Optional<ResumoPessoa> resumo(@Param("idPessoa") int idPessoa, @Param("hoje") LocalDate hoje);
+
+    // Paginação por cursor, como nas listagens
+    @Query("SELECT new village.sillicon.apidemo.dtos.ResumoPessoa(p.idPessoa, p.nome, COALESCE(SUM(c.saldo), 0), COALESCE(SUM(CASE WHEN c.flagAtivo = true THEN 1 ELSE 0 END), 0), COALESCE(SUM(CASE WHEN c.dataSaqueDiario = :hoje THEN c.saqueDiarioAcumulado ELSE 0 END), 0)) FROM Pessoa p LEFT JOIN Conta c ON c.pessoa = p WHERE p.idPessoa > :after GROUP BY p.idPessoa, p.nome ORDER BY p.idPessoa")
+    List<ResumoPessoa> listarResumos(@Param("after") int after, @Param("hoje") LocalDate hoje, Limit limit);
+
+    // Ambas resolvidas pelo índice único de cpf. Com o cache de consultas, repetir a busca só vai
+    // ao banco depois de alguma escrita em Pessoas.
+    @QueryHints({ @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = CacheSegundoNivelConfig.REGIAO_CONSULTAS_PESSOAS) })
+    Optional<Pessoa> findByCpf(String cpf);
+
+    @QueryHints({ @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = CacheSegundoNivelConfig.REGIAO_CONSULTAS_PESSOAS) })
+    boolean existsByCpf(String cpf);
 
+    // Importação: os CPFs de um lote que já existem, numa consulta só
+    @Query("SELECT p.cpf FROM Pessoa p WHERE p.cpf IN :cpfs")
+    List<String> cpfsExistentes(@Param("cpfs") Collection<String> cpfs);
 }
@@ -0,0 +1,29 @@
+package village.sillicon.apidemo.repositories;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import village.sillicon.apidemo.models.SnapshotSaldo;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface SnapshotSaldoRepository extends JpaRepository<SnapshotSaldo, Long> {
+
+    // O snapshot mais recente de cada conta do lote
+    @Query("SELECT s FROM SnapshotSaldo s WHERE s.idConta IN :ids AND s.dataCorte = (SELECT MAX(s2.dataCorte) FROM SnapshotSaldo s2 WHERE s2.idConta = s.idConta)")
+    List<SnapshotSaldo> ultimosDasContas(@Param("ids") Collection<Integer> ids);
+
+    // A base de cada conta (o primeiro snapshot), usada para refazer a conta com todo o histórico
+    @Query("SELECT s FROM SnapshotSaldo s WHERE s.idConta IN :ids AND s.dataCorte = (SELECT MIN(s2.dataCorte) FROM SnapshotSaldo s2 WHERE s2.idConta = s.idConta)")
+    List<SnapshotSaldo> basesDasContas(@Param("ids") Collection<Integer> ids);
+
+    // Remove os antigos, mas nunca a base nem o último de cada conta
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM SnapshotSaldo s WHERE s.dataSnapshot < :limite AND s.dataCorte < (SELECT MAX(s2.dataCorte) FROM SnapshotSaldo s2 WHERE s2.idConta = s.idConta) AND s.dataCorte > (SELECT MIN(s3.dataCorte) FROM SnapshotSaldo s3 WHERE s3.idConta = s.idConta)")
+    int removerAnterioresA(@Param("limite") LocalDateTime limite);
+}
@@ -0,0 +1,10 @@
+package village.sillicon.apidemo.repositories;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import village.sillicon.apidemo.models.TransacaoArquivada;
+
+public interface TransacaoArquivadaRepository extends JpaRepository<TransacaoArquivada, Integer> {
+
+    // A exclusão da conta confere também o histórico arquivado
+    boolean existsByIdConta(int idConta);
+}
@@ -1,14 +1,84 @@
 package village.sillicon.apidemo.repositories;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import village.sillicon.apidemo.dtos.ExtratoItem;
+import village.sillicon.apidemo.dtos.TransacaoDTO;
+import village.sillicon.apidemo.dtos.VariacaoSaldo;
 import village.sillicon.apidemo.models.Transacao;
+import village.sillicon.apidemo.models.Transacao.TipoTransacao;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
+// Transacoes é particionada por mês de dataTransacao: consultas com intervalo de datas leem só as
+// partições do intervalo; as demais percorrem as partições quentes (as antigas vão para o arquivo)
 public interface TransacaoRepository extends JpaRepository<Transacao, Integer> {
-    @Query("SELECT COALESCE(SUM(t.valor), 0) FROM Transacao t WHERE t.conta.idConta = :idConta AND t.tipoTransacao = 'SAQUE' AND DATE(t.dataTransacao) = CURRENT_DATE")
-    BigDecimal totalSaquesDoDia(@Param("idConta") int idConta);
+    // Leituras da API em projeção: só as colunas de Transacoes, sem carregar Conta e Pessoa
+    // Paginação por cursor: usa a chave primária, sem OFFSET
+    @Query("SELECT new village.sillicon.apidemo.dtos.TransacaoDTO(t.idTransacao, t.conta.idConta, t.valor, t.tipoTransacao, t.dataTransacao) FROM Transacao t WHERE t.idTransacao > :after ORDER BY t.idTransacao")
+    List<TransacaoDTO> listarDTO(@Param("after") int after, Limit limit);
+
+    // Reenvio dos streams, paginado pelo par (dataTransacao, idTransacao) do último item
+    @Query("SELECT new village.sillicon.apidemo.dtos.TransacaoDTO(t.idTransacao, t.conta.idConta, t.valor, t.tipoTransacao, t.dataTransacao) FROM Transacao t WHERE t.dataTransacao > :cursorData OR (t.dataTransacao = :cursorData AND t.idTransacao > :cursorId) ORDER BY t.dataTransacao, t.idTransacao")
+    List<TransacaoDTO> listarDTODesde(@Param("cursorData") LocalDateTime cursorData, @Param("cursorId") int cursorId,
+            Limit limit);
+
+    @Query("SELECT new village.sillicon.apidemo.dtos.TransacaoDTO(t.idTransacao, t.conta.idConta, t.valor, t.tipoTransacao, t.dataTransacao) FROM Transacao t WHERE t.conta.idConta = :idConta AND (t.dataTransacao > :cursorData OR (t.dataTransacao = :cursorData AND t.idTransacao > :cursorId)) ORDER BY t.dataTransacao, t.idTransacao")
+    List<TransacaoDTO> listarDTOPorContaDesde(@Param("idConta") int idConta,
+            @Param("cursorData") LocalDateTime cursorData, @Param("cursorId") int cursorId, Limit limit);
+
+    // Sem FK de Transacoes para Contas no banco, a exclusão da conta confere aqui
+    boolean existsByContaIdConta(int idConta);
+
+    @Query("SELECT new village.sillicon.apidemo.dtos.TransacaoDTO(t.idTransacao, t.conta.idConta, t.valor, t.tipoTransacao, t.dataTransacao) FROM Transacao t WHERE t.idTransacao = :idTransacao")
+    Optional<TransacaoDTO> buscarDTO(@Param("idTransacao") int idTransacao);
+
+    // Leitura em streaming: o driver traz as linhas aos poucos em vez de materializar a tabela inteira
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new village.sillicon.apidemo.dtos.TransacaoDTO(t.idTransacao, t.conta.idConta, t.valor, t.tipoTransacao, t.dataTransacao) FROM Transacao t ORDER BY t.idTransacao")
+    Stream<TransacaoDTO> streamTodas();
+
+    // Intervalo em vez de DATE(dataTransacao) para que a consulta possa usar índice
+    @Query("SELECT COALESCE(SUM(t.valor), 0) FROM Transacao t WHERE t.conta.idConta = :idConta AND t.tipoTransacao = 'SAQUE' AND t.dataTransacao >= :inicio AND t.dataTransacao < :fim")
+    BigDecimal totalSaquesEntre(@Param("idConta") int idConta, @Param("inicio") LocalDateTime inicio,
+            @Param("fim") LocalDateTime fim);
+
+    default BigDecimal totalSaquesDoDia(int idConta, LocalDate dia) {
+        return totalSaquesEntre(idConta, dia.atStartOfDay(), dia.plusDays(1).atStartOfDay());
+    }
+
+    // Só as transações a partir do corte do snapshot da conta: percorre o índice por conta e data, não o
+    // histórico. Separa o que vem depois do novo corte, que fica de fora do próximo snapshot
+    @Query("SELECT new village.sillicon.apidemo.dtos.VariacaoSaldo(COALESCE(SUM(CASE WHEN t.tipoTransacao IN ('SAQUE', 'TRANSFERENCIA_ENVIADA') THEN -t.valor ELSE t.valor END), 0), COALESCE(SUM(CASE WHEN t.dataTransacao < :corte THEN 0 WHEN t.tipoTransacao IN ('SAQUE', 'TRANSFERENCIA_ENVIADA') THEN -t.valor ELSE t.valor END), 0), COUNT(CASE WHEN t.dataTransacao < :corte THEN 1 END)) FROM Transacao t WHERE t.conta.idConta = :idConta AND t.dataTransacao >= :desde")
+    VariacaoSaldo variacaoDesde(@Param("idConta") int idConta, @Param("desde") LocalDateTime desde,
+            @Param("corte") LocalDateTime corte);
+
+    // Soma desde a base da conta, que pode ser mais antiga que o arquivamento: inclui transacoes_arquivo.
+    // Numa consulta só, e com UNION, uma linha copiada para o arquivo e ainda não removida conta uma vez
+    @Query(value = "SELECT COALESCE(SUM(CASE WHEN t.tipo_transacao IN ('SAQUE', 'TRANSFERENCIA_ENVIADA') THEN -t.valor ELSE t.valor END), 0) FROM ("
+            + "SELECT id_transacao, valor, tipo_transacao FROM transacoes WHERE id_conta = :idConta AND data_transacao >= :desde "
+            + "UNION SELECT id_transacao, valor, tipo_transacao FROM transacoes_arquivo WHERE id_conta = :idConta AND data_transacao >= :desde) t",
+            nativeQuery = true)
+    BigDecimal variacaoComArquivoDesde(@Param("idConta") int idConta, @Param("desde") LocalDateTime desde);
+
+    // Extrato do mais recente para o mais antigo, paginado pelo par (dataTransacao, idTransacao) do último item
+    @Query("SELECT new village.sillicon.apidemo.dtos.ExtratoItem(t.idTransacao, t.valor, t.tipoTransacao, t.dataTransacao) FROM Transacao t WHERE t.conta.idConta = :idConta AND t.dataTransacao >= :inicio AND (t.dataTransacao < :cursorData OR (t.dataTransacao = :cursorData AND t.idTransacao < :cursorId)) ORDER BY t.dataTransacao DESC, t.idTransacao DESC")
+    List<ExtratoItem> extrato(@Param("idConta") int idConta, @Param("inicio") LocalDateTime inicio,
+            @Param("cursorData") LocalDateTime cursorData, @Param("cursorId") int cursorId, Limit limit);
+
+    @Query("SELECT new village.sillicon.apidemo.dtos.ExtratoItem(t.idTransacao, t.valor, t.tipoTransacao, t.dataTransacao) FROM Transacao t WHERE t.conta.idConta = :idConta AND t.tipoTransacao = :tipo AND t.dataTransacao >= :inicio AND (t.dataTransacao < :cursorData OR (t.dataTransacao = :cursorData AND t.idTransacao < :cursorId)) ORDER BY t.dataTransacao DESC, t.idTransacao DESC")
+    List<ExtratoItem> extratoPorTipo(@Param("idConta") int idConta, @Param("tipo") TipoTransacao tipo,
+            @Param("inicio") LocalDateTime inicio, @Param("cursorData") LocalDateTime cursorData,
+            @Param("cursorId") int cursorId, Limit limit);
 }
@@ -0,0 +1,264 @@
+package village.sillicon.apidemo.services;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import village.sillicon.apidemo.dtos.ResultadoConciliacao;
+import village.sillicon.apidemo.dtos.ResultadoConciliacao.Divergencia;
+import village.sillicon.apidemo.dtos.SaldoConta;
+import village.sillicon.apidemo.dtos.VariacaoSaldo;
+import village.sillicon.apidemo.models.SnapshotSaldo;
+import village.sillicon.apidemo.repositories.ContaRepository;
+import village.sillicon.apidemo.repositories.SnapshotSaldoRepository;
+import village.sillicon.apidemo.repositories.TransacaoRepository;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Confere se o saldo de cada conta bate com as transações sem somar o histórico inteiro: parte do
+// último snapshot da conta e soma só as transações a partir do corte dele. Conta que bate ganha um
+// novo snapshot; a que não bate é conferida de novo desde a base e, se ainda assim não bater, é
+// reportada e mantém o snapshot antigo. Na primeira conciliação de uma conta o saldo vira a base
+// (contas são criadas com saldo inicial, sem transação).
+// O corte é uma data e não um id: com sequências em blocos os ids não seguem a ordem de commit. Só
+// entram no snapshot as transações mais antigas que a janela de segurança, que precisa cobrir a
+// duração de uma transação no banco. As contas são processadas em lotes de ids, em paralelo.
+@Service
+public class ConciliacaoService {
+
+    private static final Logger log = LoggerFactory.getLogger(ConciliacaoService.class);
+
+    @Autowired
+    private ContaRepository contaRepository;
+    @Autowired
+    private TransacaoRepository transacaoRepository;
+    @Autowired
+    private SnapshotSaldoRepository snapshotSaldoRepository;
+    @Autowired
+    private DiarioTransacoes diarioTransacoes;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${apidemo.conciliacao.threads:4}")
+    private int threads;
+    @Value("${apidemo.conciliacao.lote:500}")
+    private int tamanhoLote;
+    // Contas movimentadas durante a conferência são lidas de novo até esse número de vezes
+    @Value("${apidemo.conciliacao.tentativas:3}")
+    private int tentativas;
+    // Snapshots mais antigos que isso são removidos, menos o último de cada conta
+    @Value("${apidemo.conciliacao.retencao:90d}")
+    private Duration retencao;
+    // Transações mais novas que isso podem ainda não ter feito commit e ficam fora do snapshot
+    @Value("${apidemo.conciliacao.janela-seguranca:5m}")
+    private Duration janelaSeguranca;
+
+    private final ReentrantLock emAndamento = new ReentrantLock();
+
+    // Totais de um lote
+    private record Parcial(int conferidas, int adiadas, List<SnapshotSaldo> snapshots, List<Divergencia> divergencias) {
+    }
+
+    // Conta que não bateu com o último snapshot, como foi lida
+    private record Suspeita(SaldoConta saldo, BigDecimal saldoCalculado) {
+    }
+
+    @Scheduled(initialDelayString = "${apidemo.conciliacao.intervalo-ms:3600000}",
+            fixedDelayString = "${apidemo.conciliacao.intervalo-ms:3600000}")
+    public void conciliarPeriodicamente() {
+        ResultadoConciliacao resultado = conciliar();
+        log.info("Conciliação: {} contas conferidas, {} snapshots, {} adiadas, {} divergências",
+                resultado.contasConferidas(), resultado.snapshotsGravados(), resultado.contasAdiadas(),
+                resultado.divergencias().size());
+    }
+
+    public ResultadoConciliacao conciliar() {
+        if (!emAndamento.tryLock()) {
+            throw new RuntimeException("Conciliação já em andamento");
+        }
+        try {
+            return Timer.builder("apidemo.conciliacao")
+                    .description("Duração de cada conciliação de saldos")
+                    .register(meterRegistry)
+                    .record(this::conciliarEmLotes);
+        } finally {
+            emAndamento.unlock();
+        }
+    }
+
+    private ResultadoConciliacao conciliarEmLotes() {
+        LocalDateTime corte = LocalDateTime.now().minus(janelaSeguranca);
+        List<Future<Parcial>> lotes = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            int after = 0;
+            while (true) {
+                List<Integer> ids = contaRepository.listarIds(after, Limit.of(tamanhoLote));
+                if (ids.isEmpty()) {
+                    break;
+                }
+                lotes.add(executor.submit(() -> conferirLote(ids, corte)));
+                after = ids.get(ids.size() - 1);
+            }
+        }
+
+        int conferidas = 0;
+        int adiadas = 0;
+        int snapshots = 0;
+        List<Divergencia> divergencias = new ArrayList<>();
+        for (Future<Parcial> lote : lotes) {
+            Parcial parcial;
+            try {
+                parcial = lote.get();
+            } catch (ExecutionException e) {
+                throw new RuntimeException("Falha ao conciliar um lote de contas", e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Conciliação interrompida", e);
+            }
+            conferidas += parcial.conferidas();
+            adiadas += parcial.adiadas();
+            snapshots += parcial.snapshots().size();
+            divergencias.addAll(parcial.divergencias());
+        }
+        snapshotSaldoRepository.removerAnterioresA(LocalDateTime.now().minus(retencao));
+        for (Divergencia divergencia : divergencias) {
+            log.error("Saldo da conta {} diverge das transações: {} na conta, {} calculado desde {}",
+                    divergencia.idConta(), divergencia.saldoConta(), divergencia.saldoCalculado(),
+                    divergencia.dataCorte());
+        }
+        meterRegistry.counter("apidemo.conciliacao.divergencias").increment(divergencias.size());
+        return new ResultadoConciliacao(conferidas, snapshots, adiadas, divergencias);
+    }
+
+    // Sem travar as contas: lê saldo e versão, soma as transações novas e relê a versão. Se uma
+    // movimentação fez commit no meio, a versão mudou e a conta é lida de novo.
+    private Parcial conferirLote(List<Integer> ids, LocalDateTime corte) {
+        Map<Integer, SnapshotSaldo> ultimos = new HashMap<>();
+        for (SnapshotSaldo snapshot : snapshotSaldoRepository.ultimosDasContas(ids)) {
+            ultimos.put(snapshot.getIdConta(), snapshot);
+        }
+        int conferidas = 0;
+        List<SnapshotSaldo> novos = new ArrayList<>();
+        List<Suspeita> suspeitas = new ArrayList<>();
+        List<Integer> restantes = ids;
+        for (int tentativa = 1; tentativa <= tentativas && !restantes.isEmpty(); tentativa++) {
+            List<SaldoConta> saldos = contaRepository.saldos(restantes);
+            // Na gravação assíncrona a transação pode estar só no diário, com a conta já alterada
+            Set<Integer> noDiario = diarioTransacoes.contasPendentes();
+            Map<Integer, VariacaoSaldo> variacoes = new HashMap<>();
+            for (SaldoConta saldo : saldos) {
+                if (!noDiario.contains(saldo.idConta())) {
+                    SnapshotSaldo ultimo = ultimos.get(saldo.idConta());
+                    variacoes.put(saldo.idConta(), transacaoRepository.variacaoDesde(saldo.idConta(),
+                            ultimo != null ? ultimo.getDataCorte() : corte, corte));
+                }
+            }
+            Map<Integer, Long> versoes = versoes(variacoes.keySet());
+
+            List<Integer> alteradas = new ArrayList<>();
+            for (SaldoConta saldo : saldos) {
+                VariacaoSaldo variacao = variacoes.get(saldo.idConta());
+                if (variacao == null || !Long.valueOf(saldo.versao()).equals(versoes.get(saldo.idConta()))) {
+                    alteradas.add(saldo.idConta());
+                    continue;
+                }
+                SnapshotSaldo ultimo = ultimos.get(saldo.idConta());
+                if (ultimo == null) {
+                    conferidas++;
+                    novos.add(new SnapshotSaldo(saldo.idConta(), corte, saldo.saldo().subtract(variacao.variacaoAposCorte())));
+                } else if (ultimo.getSaldo().add(variacao.variacao()).compareTo(saldo.saldo()) != 0) {
+                    suspeitas.add(new Suspeita(saldo, ultimo.getSaldo().add(variacao.variacao())));
+                } else {
+                    conferidas++;
+                    if (variacao.antesDoCorte() > 0 && corte.isAfter(ultimo.getDataCorte())) {
+                        novos.add(new SnapshotSaldo(saldo.idConta(), corte,
+                                saldo.saldo().subtract(variacao.variacaoAposCorte())));
+                    }
+                }
+            }
+            restantes = alteradas;
+        }
+
+        List<Divergencia> divergencias = new ArrayList<>();
+        int adiadas = restantes.size();
+        if (!suspeitas.isEmpty()) {
+            int refeitas = refazerDesdeABase(suspeitas, ultimos, corte, novos, divergencias);
+            conferidas += refeitas;
+            adiadas += suspeitas.size() - refeitas;
+        }
+        snapshotSaldoRepository.saveAll(novos);
+        return new Parcial(conferidas, adiadas, novos, divergencias);
+    }
+
+    // Um snapshot errado faria a conta divergir para sempre: antes de reportar, soma todo o histórico
+    // desde a base da conta, inclusive o já arquivado. Se bater, o último snapshot é que estava errado e
+    // um novo o substitui. Devolve quantas contas foram conferidas; as movimentadas nesse meio tempo
+    // ficam para a próxima.
+    private int refazerDesdeABase(List<Suspeita> suspeitas, Map<Integer, SnapshotSaldo> ultimos,
+            LocalDateTime corte, List<SnapshotSaldo> novos, List<Divergencia> divergencias) {
+        Map<Integer, SnapshotSaldo> bases = new HashMap<>();
+        for (SnapshotSaldo base : snapshotSaldoRepository.basesDasContas(
+                suspeitas.stream().map(suspeita -> suspeita.saldo().idConta()).toList())) {
+            bases.put(base.getIdConta(), base);
+        }
+        Set<Integer> noDiario = diarioTransacoes.contasPendentes();
+        Map<Integer, VariacaoSaldo> variacoes = new HashMap<>();
+        for (Suspeita suspeita : suspeitas) {
+            int idConta = suspeita.saldo().idConta();
+            if (!noDiario.contains(idConta)) {
+                LocalDateTime desde = bases.get(idConta).getDataCorte();
+                VariacaoSaldo recentes = transacaoRepository.variacaoDesde(idConta, corte, corte);
+                variacoes.put(idConta, new VariacaoSaldo(transacaoRepository.variacaoComArquivoDesde(idConta, desde),
+                        recentes.variacaoAposCorte(), recentes.antesDoCorte()));
+            }
+        }
+        Map<Integer, Long> versoes = versoes(variacoes.keySet());
+
+        int conferidas = 0;
+        for (Suspeita suspeita : suspeitas) {
+            SaldoConta saldo = suspeita.saldo();
+            VariacaoSaldo variacao = variacoes.get(saldo.idConta());
+            if (variacao == null || !Long.valueOf(saldo.versao()).equals(versoes.get(saldo.idConta()))) {
+                continue;
+            }
+            conferidas++;
+            if (bases.get(saldo.idConta()).getSaldo().add(variacao.variacao()).compareTo(saldo.saldo()) == 0) {
+                if (corte.isAfter(ultimos.get(saldo.idConta()).getDataCorte())) {
+                    log.warn("Snapshot da conta {} não batia com o histórico e foi refeito", saldo.idConta());
+                    novos.add(new SnapshotSaldo(saldo.idConta(), corte,
+                            saldo.saldo().subtract(variacao.variacaoAposCorte())));
+                }
+            } else {
+                divergencias.add(new Divergencia(saldo.idConta(), saldo.saldo(), suspeita.saldoCalculado(),
+                        ultimos.get(saldo.idConta()).getDataCorte()));
+            }
+        }
+        return conferidas;
+    }
+
+    private Map<Integer, Long> versoes(Set<Integer> ids) {
+        Map<Integer, Long> versoes = new HashMap<>();
+        for (SaldoConta releitura : contaRepository.saldos(ids)) {
+            versoes.put(releitura.idConta(), releitura.versao());
+        }
+        return versoes;
+    }
+}
@@ -1,15 +1,24 @@
 package village.sillicon.apidemo.services;
 
-import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.*;
 
 import jakarta.persistence.EntityNotFoundException;
+import village.sillicon.apidemo.config.CacheConfig;
+import village.sillicon.apidemo.config.Paginacao;
+import village.sillicon.apidemo.dtos.ContaDTO;
 import village.sillicon.apidemo.models.Conta;
 import village.sillicon.apidemo.models.Pessoa;
+import village.sillicon.apidemo.motor.MotorSaldos;
 import village.sillicon.apidemo.repositories.ContaRepository;
+import village.sillicon.apidemo.repositories.TransacaoArquivadaRepository;
+import village.sillicon.apidemo.repositories.TransacaoRepository;
 
 import java.util.List;
 import java.util.Optional;
@@ -19,13 +28,36 @@ public class ContaService {
 
     @Autowired
     private ContaRepository contaRepository;
+    @Autowired
+    private TransacaoRepository transacaoRepository;
+    @Autowired
+    private TransacaoArquivadaRepository transacaoArquivadaRepository;
+    @Autowired
+    private Paginacao paginacao;
+    @Autowired
+    private MotorSaldos motorSaldos;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
 
     public Conta criar(Conta conta) {
         return contaRepository.save(conta);
     }
 
-    public List<Conta> listar() {
-        return contaRepository.findAll();
+    @Transactional(readOnly = true)
+    public List<ContaDTO> listar(int after, Integer limit) {
+        return contaRepository.listarDTO(after, paginacao.limite(limit));
+    }
+
+    @Transactional(readOnly = true)
+    @Cacheable(cacheNames = CacheConfig.CONTAS, key = "#id")
+    public ContaDTO buscarPorId(int id) {
+        return buscarPorIdSemCache(id);
+    }
+
+    // Para quem precisa do saldo atual, sem passar pelo cache nem pela réplica
+    public ContaDTO buscarPorIdSemCache(int id) {
+        return contaRepository.buscarDTO(id)
+                .orElseThrow(() -> new EntityNotFoundException("Conta não encontrada"));
     }
 
     public Conta acharPorId(int id) {
@@ -33,20 +65,40 @@ public class ContaService {
                 .orElseThrow(() -> new EntityNotFoundException("Conta não encontrada"));
     }
 
+    @CacheEvict(cacheNames = CacheConfig.CONTAS, key = "#id")
     public Conta atualizar(int id, Conta contaAtualizada) {
-        Conta contaExistente = acharPorId(id);
+        // No modo PARTICIONADO o saldo absoluto só pode ser gravado pela partição da conta, entre
+        // dois comandos dela; ela relê a conta na próxima movimentação
+        if (motorSaldos.ativo()) {
+            return motorSaldos.alterarConta(id, () -> gravarAlteracao(id, contaAtualizada));
+        }
+        return gravarAlteracao(id, contaAtualizada);
+    }
+
+    // Na transação de quem chamou, se houver (modos OTIMISTA e PESSIMISTA)
+    private Conta gravarAlteracao(int id, Conta contaAtualizada) {
+        return transactionTemplate.execute(status -> {
+            Conta contaExistente = acharPorId(id);
 
-        contaExistente.setFlagAtivo(contaAtualizada.getFlagAtivo());
-        contaExistente.setSaldo(contaAtualizada.getSaldo());
-        contaExistente.setLimiteSaqueDiario(contaAtualizada.getLimiteSaqueDiario());
-        contaExistente.setTipoConta(contaAtualizada.getTipoConta());
+            contaExistente.setFlagAtivo(contaAtualizada.getFlagAtivo());
+            contaExistente.setSaldo(contaAtualizada.getSaldo());
+            contaExistente.setLimiteSaqueDiario(contaAtualizada.getLimiteSaqueDiario());
+            contaExistente.setTipoConta(contaAtualizada.getTipoConta());
 
-        return contaRepository.save(contaExistente);
+            return contaRepository.save(contaExistente);
+        });
     }
 
+    @CacheEvict(cacheNames = CacheConfig.CONTAS, key = "#id")
     public void deletar(int id) {
         if (contaRepository.existsById(id)) {
+            // Era a FK de Transacoes que impedia; a tabela particionada não tem mais, e os meses antigos
+            // estão em transacoes_arquivo
+            if (transacaoRepository.existsByContaIdConta(id) || transacaoArquivadaRepository.existsByIdConta(id)) {
+                throw new RuntimeException("Conta possui transações e não pode ser excluída");
+            }
             contaRepository.deleteById(id);
+            motorSaldos.descartar(id);
         }
     }
 }
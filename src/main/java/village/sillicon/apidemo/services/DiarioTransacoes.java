@@ -0,0 +1,339 @@
+package village.sillicon.apidemo.services;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.persister.entity.EntityPersister;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import village.sillicon.apidemo.dtos.TransacaoDTO;
+import village.sillicon.apidemo.models.Transacao;
+import village.sillicon.apidemo.models.Transacao.TipoTransacao;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+// Gravação das transações em segundo plano (apidemo.transacoes.gravacao=ASSINCRONA).
+// A movimentação não insere em Transacoes: a Transacao vai para transacoes_pendentes, uma tabela
+// estreita e sem índices secundários, no mesmo commit que altera a Conta. Uma thread insere as
+// pendentes em lote em Transacoes e as apaga na mesma transação, então uma movimentação confirmada
+// está sempre em uma das duas tabelas. Na subida, o que ficou em transacoes_pendentes é inserido.
+@Service
+public class DiarioTransacoes implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(DiarioTransacoes.class);
+
+    private static final String COLUNAS = "id_transacao, id_conta, valor, tipo_transacao, data_transacao";
+    private static final String INSERIR = "INSERT INTO transacoes (" + COLUNAS + ") VALUES (?, ?, ?, ?, ?)";
+    private static final String INSERIR_PENDENTE = "INSERT INTO transacoes_pendentes (" + COLUNAS + ") VALUES (?, ?, ?, ?, ?)";
+    private static final String REMOVER_PENDENTES = "DELETE FROM transacoes_pendentes WHERE id_transacao IN (:ids)";
+    private static final String BUSCAR_PENDENTE = "SELECT " + COLUNAS + " FROM transacoes_pendentes WHERE id_transacao = ?";
+    private static final String LISTAR_PENDENTES = "SELECT " + COLUNAS + " FROM transacoes_pendentes WHERE id_transacao > ? ORDER BY id_transacao LIMIT ?";
+    private static final String EXISTENTES = "SELECT id_transacao FROM transacoes WHERE id_transacao IN (:ids)";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private FluxoMovimentos fluxoMovimentos;
+
+    // Transações aceitas e ainda não gravadas em Transacoes; acima disso a movimentação espera ou é recusada
+    @Value("${apidemo.diario.capacidade:10000}")
+    private int capacidade;
+    @Value("${apidemo.diario.espera-maxima-ms:2000}")
+    private long esperaMaximaMs;
+    @Value("${apidemo.diario.lote-maximo:500}")
+    private int loteMaximo;
+    @Value("${apidemo.diario.intervalo-ms:50}")
+    private long intervaloMs;
+
+    private record Entrada(int idTransacao, int idConta, BigDecimal valor, TipoTransacao tipoTransacao,
+            LocalDateTime dataTransacao, long registradaEm) {
+    }
+
+    private static final RowMapper<Entrada> ENTRADA = (linha, numero) -> new Entrada(linha.getInt("id_transacao"),
+            linha.getInt("id_conta"), linha.getBigDecimal("valor"), TipoTransacao.valueOf(linha.getString("tipo_transacao")),
+            linha.getTimestamp("data_transacao").toLocalDateTime(), System.nanoTime());
+
+    // Pendentes desta instância já confirmadas; as linhas de transacoes_pendentes são a cópia durável
+    private final Map<Integer, Entrada> pendentes = new ConcurrentHashMap<>();
+    private final BlockingQueue<Entrada> fila = new LinkedBlockingQueue<>();
+    private Semaphore vagas;
+    private Thread gravador;
+    private Timer atraso;
+    private volatile boolean ativo;
+
+    // Chamado dentro da transação da movimentação, no lugar do save(). Reserva o id pela mesma
+    // sequência do Hibernate, para que a resposta já tenha o idTransacao definitivo.
+    public Transacao registrar(Transacao transacao) {
+        List<Entrada> entradas = entradasDaTransacao();
+        try {
+            if (!vagas.tryAcquire(esperaMaximaMs, TimeUnit.MILLISECONDS)) {
+                throw new RuntimeException("Diário de transações cheio, tente novamente");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Movimentação interrompida", e);
+        }
+        try {
+            transacao.setIdTransacao(gerarId(transacao));
+        } catch (RuntimeException e) {
+            vagas.release();
+            throw e;
+        }
+        entradas.add(new Entrada(transacao.getIdTransacao(), transacao.getConta().getIdConta(), transacao.getValor(),
+                transacao.getTipoTransacao(), transacao.getDataTransacao(), System.nanoTime()));
+        return transacao;
+    }
+
+    // Transação já aceita mas ainda não inserida em Transacoes, desta ou de outra instância
+    public Optional<TransacaoDTO> buscarPendente(int idTransacao) {
+        Entrada entrada = pendentes.get(idTransacao);
+        if (entrada != null) {
+            return Optional.of(dto(entrada));
+        }
+        return jdbcTemplate.query(BUSCAR_PENDENTE, ENTRADA, idTransacao).stream().findFirst()
+                .map(DiarioTransacoes::dto);
+    }
+
+    private static TransacaoDTO dto(Entrada entrada) {
+        return new TransacaoDTO(entrada.idTransacao(), entrada.idConta(), entrada.valor(), entrada.tipoTransacao(),
+                entrada.dataTransacao());
+    }
+
+    public int pendentes() {
+        return pendentes.size();
+    }
+
+    // Contas com transações aceitas que ainda não estão em Transacoes
+    public Set<Integer> contasPendentes() {
+        Set<Integer> contas = new HashSet<>();
+        for (Entrada entrada : pendentes.values()) {
+            contas.add(entrada.idConta());
+        }
+        return contas;
+    }
+
+    private int gerarId(Transacao transacao) {
+        SharedSessionContractImplementor sessao = entityManager.unwrap(SharedSessionContractImplementor.class);
+        EntityPersister persister = sessao.getEntityPersister(null, transacao);
+        Object id = ((BeforeExecutionGenerator) persister.getGenerator()).generate(sessao, transacao, null,
+                EventType.INSERT);
+        return ((Number) id).intValue();
+    }
+
+    // Uma lista por transação do banco: todas as entradas vão para transacoes_pendentes num só lote
+    @SuppressWarnings("unchecked")
+    private List<Entrada> entradasDaTransacao() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Gravação assíncrona exige uma transação ativa");
+        }
+        List<Entrada> entradas = (List<Entrada>) TransactionSynchronizationManager.getResource(this);
+        if (entradas == null) {
+            List<Entrada> novas = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(this, novas);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    inserir(INSERIR_PENDENTE, novas);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(DiarioTransacoes.this);
+                    if (status == STATUS_COMMITTED) {
+                        for (Entrada entrada : novas) {
+                            pendentes.put(entrada.idTransacao(), entrada);
+                        }
+                        fila.addAll(novas);
+                    } else {
+                        vagas.release(novas.size());
+                    }
+                }
+            });
+            entradas = novas;
+        }
+        return entradas;
+    }
+
+    private void inserir(String sql, List<Entrada> entradas) {
+        jdbcTemplate.batchUpdate(sql, entradas, entradas.size(), (comando, entrada) -> {
+            comando.setInt(1, entrada.idTransacao());
+            comando.setInt(2, entrada.idConta());
+            comando.setBigDecimal(3, entrada.valor());
+            comando.setString(4, entrada.tipoTransacao().name());
+            comando.setTimestamp(5, Timestamp.valueOf(entrada.dataTransacao()));
+        });
+    }
+
+    // Thread de gravação: junta o que chegou em até intervalo-ms e insere em lote
+    private void gravarPendentes() {
+        List<Entrada> lote = new ArrayList<>(loteMaximo);
+        while (ativo || !fila.isEmpty()) {
+            try {
+                Entrada primeira = fila.poll(intervaloMs, TimeUnit.MILLISECONDS);
+                if (primeira == null) {
+                    continue;
+                }
+                lote.add(primeira);
+                fila.drainTo(lote, loteMaximo - 1);
+                gravarComNovasTentativas(lote);
+                long agora = System.nanoTime();
+                for (Entrada entrada : lote) {
+                    atraso.record(agora - entrada.registradaEm(), TimeUnit.NANOSECONDS);
+                    pendentes.remove(entrada.idTransacao());
+                }
+                vagas.release(lote.size());
+                lote.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    // O banco fora do ar não pode perder transações: o lote fica retido e é tentado de novo
+    private void gravarComNovasTentativas(List<Entrada> lote) throws InterruptedException {
+        for (long espera = 100;; espera = Math.min(espera * 2, 5000)) {
+            try {
+                gravarSeparandoRecusadas(lote);
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Falha ao gravar {} transações do diário, nova tentativa em {} ms", lote.size(), espera, e);
+                Thread.sleep(espera);
+            }
+        }
+    }
+
+    // Uma entrada que o banco recusa (ex.: conta excluída nesse meio tempo) é separada e descartada com log
+    private int gravarSeparandoRecusadas(List<Entrada> lote) {
+        try {
+            return gravar(lote, false);
+        } catch (DataIntegrityViolationException e) {
+            int gravadas = 0;
+            for (Entrada entrada : lote) {
+                try {
+                    gravadas += gravar(List.of(entrada), true);
+                } catch (DataIntegrityViolationException recusada) {
+                    log.error("Transação {} do diário recusada pelo banco e descartada: {}", entrada,
+                            recusada.getMessage());
+                    namedParameterJdbcTemplate.update(REMOVER_PENDENTES, ids(List.of(entrada)));
+                }
+            }
+            return gravadas;
+        }
+    }
+
+    // INSERT em Transacoes e DELETE em transacoes_pendentes no mesmo commit. Na recuperação, ou com
+    // outra instância recuperando ao mesmo tempo, algumas entradas podem já estar em Transacoes.
+    // Só aqui, com a linha em Transacoes, o movimento vai para os streams, depois do commit do INSERT.
+    private int gravar(List<Entrada> lote, boolean ignorarExistentes) {
+        return transactionTemplate.execute(status -> {
+            List<Entrada> novas = lote;
+            if (ignorarExistentes) {
+                Set<Integer> existentes = new HashSet<>(namedParameterJdbcTemplate.queryForList(EXISTENTES,
+                        ids(lote), Integer.class));
+                novas = lote.stream().filter(entrada -> !existentes.contains(entrada.idTransacao())).toList();
+            }
+            inserir(INSERIR, novas);
+            namedParameterJdbcTemplate.update(REMOVER_PENDENTES, ids(lote));
+            novas.forEach(entrada -> fluxoMovimentos.publicar(dto(entrada)));
+            return novas.size();
+        });
+    }
+
+    private static MapSqlParameterSource ids(List<Entrada> entradas) {
+        return new MapSqlParameterSource("ids", entradas.stream().map(Entrada::idTransacao).toList());
+    }
+
+    // Insere em Transacoes tudo o que está em transacoes_pendentes: movimentações confirmadas cuja
+    // gravação não terminou antes de uma queda
+    public int recuperar() {
+        int gravadas = 0;
+        int ultimo = Integer.MIN_VALUE;
+        for (List<Entrada> lote = jdbcTemplate.query(LISTAR_PENDENTES, ENTRADA, ultimo, loteMaximo); !lote.isEmpty();
+                lote = jdbcTemplate.query(LISTAR_PENDENTES, ENTRADA, ultimo, loteMaximo)) {
+            ultimo = lote.get(lote.size() - 1).idTransacao();
+            gravadas += gravarSeparandoRecusadas(lote);
+        }
+        return gravadas;
+    }
+
+    // Roda antes do servidor web aceitar requisições (fase menor que a do Tomcat)
+    @Override
+    public void start() {
+        int recuperadas = recuperar();
+        if (recuperadas > 0) {
+            log.info("{} transações pendentes recuperadas em Transacoes", recuperadas);
+        }
+        vagas = new Semaphore(capacidade, true);
+        atraso = Timer.builder("apidemo.diario.atraso")
+                .description("Tempo entre a movimentação e o INSERT da transação em Transacoes")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        Gauge.builder("apidemo.diario.pendentes", pendentes, Map::size)
+                .description("Transações aceitas ainda não gravadas em Transacoes")
+                .register(meterRegistry);
+        ativo = true;
+        gravador = Thread.ofPlatform().name("diario-transacoes").daemon().start(this::gravarPendentes);
+    }
+
+    // Desligamento: espera a fila esvaziar; o que sobrar fica em transacoes_pendentes para a próxima subida
+    @Override
+    public void stop() {
+        ativo = false;
+        try {
+            gravador.join(Duration.ofSeconds(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return ativo;
+    }
+
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+}
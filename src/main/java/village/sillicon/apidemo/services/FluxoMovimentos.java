@@ -0,0 +1,327 @@
+package village.sillicon.apidemo.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityNotFoundException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import village.sillicon.apidemo.config.LimiteBancoFilter;
+import village.sillicon.apidemo.config.Paginacao;
+import village.sillicon.apidemo.dtos.TransacaoDTO;
+import village.sillicon.apidemo.repositories.ContaRepository;
+import village.sillicon.apidemo.repositories.TransacaoRepository;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// Movimentos em tempo real por server-sent events, no lugar de consultar /transacoes/listar de tempos
+// em tempos. As transações são publicadas depois do commit e repassadas a cada assinante por uma fila
+// limitada; quem não acompanha é desconectado e, ao reconectar com Last-Event-ID, recupera o que
+// perdeu pelo banco. Os ids vêm de blocos da sequência e não seguem a ordem de commit, então o reenvio
+// parte da data do último evento recebido, voltando uma janela, e a entrega é pelo menos uma vez: o
+// cliente descarta ids repetidos.
+@Service
+public class FluxoMovimentos implements SmartLifecycle {
+
+    @Autowired
+    private TransacaoRepository transacaoRepository;
+    @Autowired
+    private ContaRepository contaRepository;
+    @Autowired
+    private Paginacao paginacao;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private LimiteBancoFilter limiteBanco;
+
+    // Movimentos aguardando envio por assinante; com a fila cheia o assinante é desconectado
+    @Value("${apidemo.movimentos.fila:256}")
+    private int capacidadeFila;
+    // Comentário vazio enviado sem movimentos, para manter a conexão e perceber clientes que saíram
+    @Value("${apidemo.movimentos.batimento-ms:15000}")
+    private long batimentoMs;
+    // Depois desse tempo a conexão é encerrada e o cliente reconecta de onde parou
+    @Value("${apidemo.movimentos.duracao-maxima:30m}")
+    private Duration duracaoMaxima;
+    // Movimentos recuperados do banco por conexão; acima disso o cliente reconecta para continuar
+    @Value("${apidemo.movimentos.reenvio-maximo:10000}")
+    private int reenvioMaximo;
+    // Espera sugerida ao EventSource antes de reconectar
+    @Value("${apidemo.movimentos.reconexao-ms:1000}")
+    private long reconexaoMs;
+    // Quanto o reenvio volta antes da data do último evento: uma transação com data anterior pode ter
+    // feito commit depois dele. Precisa cobrir a duração de uma transação e o atraso do diário.
+    // Pelo mesmo motivo, um reenviado mais antigo que a janela não chega mais pela fila
+    @Value("${apidemo.movimentos.janela-reenvio:1m}")
+    private Duration janelaReenvio;
+
+    // Reenvio com um id que não está mais no banco
+    private static final LocalDateTime INICIO = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final List<Assinante> assinantes = new CopyOnWriteArrayList<>();
+    private Counter atrasados;
+    private volatile boolean ativo;
+
+    @PostConstruct
+    void registrarMetricas() {
+        Gauge.builder("apidemo.movimentos.assinantes", assinantes, List::size)
+                .description("Conexões abertas nos streams de movimentos")
+                .register(meterRegistry);
+        atrasados = Counter.builder("apidemo.movimentos.atrasados")
+                .description("Assinantes desconectados por não acompanhar os movimentos")
+                .register(meterRegistry);
+    }
+
+    // Dentro de uma transação, a entrega fica para depois do commit, uma vez por transação;
+    // num rollback nada é entregue. Fora de transação (motor, API reativa) entrega na hora.
+    public void publicar(TransacaoDTO transacao) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            entregar(List.of(transacao));
+            return;
+        }
+        movimentosDaTransacao().add(transacao);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<TransacaoDTO> movimentosDaTransacao() {
+        List<TransacaoDTO> movimentos = (List<TransacaoDTO>) TransactionSynchronizationManager.getResource(this);
+        if (movimentos == null) {
+            List<TransacaoDTO> novos = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(this, novos);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    entregar(novos);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(FluxoMovimentos.this);
+                }
+            });
+            movimentos = novos;
+        }
+        return movimentos;
+    }
+
+    // Não bloqueia quem publicou: só coloca na fila de cada assinante interessado
+    private void entregar(List<TransacaoDTO> movimentos) {
+        for (Assinante assinante : assinantes) {
+            for (TransacaoDTO movimento : movimentos) {
+                if (assinante.idConta != null && assinante.idConta != movimento.idConta()) {
+                    continue;
+                }
+                if (!assinante.fila.offer(movimento)) {
+                    assinantes.remove(assinante);
+                    assinante.atrasado = true;
+                    atrasados.increment();
+                    break;
+                }
+            }
+        }
+    }
+
+    // idConta null assina todas as contas. Com "after", reenvia primeiro o que está no banco a partir
+    // da data dessa transação, menos a janela de reenvio, e então passa aos movimentos novos, sem
+    // repetir os já reenviados. A ordem é a da data da transação. O reenvio roda na thread do
+    // assinante, depois que a requisição já devolveu a permissão do LimiteBancoFilter.
+    public SseEmitter assinar(Integer idConta, Integer after) {
+        if (idConta != null && !contaRepository.existsById(idConta)) {
+            throw new EntityNotFoundException("Conta não encontrada");
+        }
+        SseEmitter emissor = new SseEmitter(duracaoMaxima.toMillis());
+        Assinante assinante = new Assinante(idConta, emissor, capacidadeFila);
+        emissor.onCompletion(() -> encerrar(assinante));
+        emissor.onTimeout(() -> encerrar(assinante));
+        emissor.onError(erro -> encerrar(assinante));
+        // Assina antes de ler o banco: o que for commitado durante o reenvio já cai na fila
+        assinantes.add(assinante);
+        try {
+            // Primeiro evento: já libera os cabeçalhos da resposta, sem esperar um movimento
+            emissor.send(SseEmitter.event().reconnectTime(reconexaoMs));
+        } catch (IOException | RuntimeException e) {
+            assinantes.remove(assinante);
+            emissor.completeWithError(e);
+            return emissor;
+        }
+        assinante.thread = Thread.ofVirtual().name("movimentos-" + (idConta != null ? idConta : "todas"))
+                .start(() -> acompanhar(assinante, after));
+        return emissor;
+    }
+
+    private void acompanhar(Assinante assinante, Integer after) {
+        try {
+            if (after != null && !reenviar(assinante, after)) {
+                encerrar(assinante);
+                assinante.emissor.complete();
+                return;
+            }
+        } catch (IOException | RuntimeException e) {
+            // Inclusive banco ocupado: o cliente reconecta com o mesmo Last-Event-ID
+            encerrar(assinante);
+            assinante.emissor.completeWithError(e);
+            return;
+        }
+        enviarNovos(assinante);
+    }
+
+    // Lê do primário (fora de transação readOnly): a réplica pode ainda não ter os últimos movimentos.
+    // Devolve false se parou no limite de reenvio e o cliente deve reconectar para continuar.
+    private boolean reenviar(Assinante assinante, int after) throws IOException {
+        Limit limite = paginacao.limite(Integer.MAX_VALUE);
+        LocalDateTime cursorData = consultar(() -> transacaoRepository.buscarDTO(after))
+                .map(ultimo -> ultimo.dataTransacao().minus(janelaReenvio))
+                .orElse(INICIO);
+        int cursorId = Integer.MIN_VALUE;
+        int enviados = 0;
+        while (true) {
+            LocalDateTime desde = cursorData;
+            int desdeId = cursorId;
+            List<TransacaoDTO> pagina = consultar(() -> assinante.idConta == null
+                    ? transacaoRepository.listarDTODesde(desde, desdeId, limite)
+                    : transacaoRepository.listarDTOPorContaDesde(assinante.idConta, desde, desdeId, limite));
+            for (TransacaoDTO movimento : pagina) {
+                // o próprio Last-Event-ID o cliente já tem
+                if (movimento.idTransacao() != after) {
+                    enviar(assinante.emissor, movimento);
+                    assinante.reenviados.put(movimento.idTransacao(), movimento.dataTransacao());
+                }
+                cursorData = movimento.dataTransacao();
+                cursorId = movimento.idTransacao();
+            }
+            enviados += pagina.size();
+            if (pagina.size() < limite.max()) {
+                return true;
+            }
+            if (enviados >= reenvioMaximo) {
+                return false;
+            }
+        }
+    }
+
+    // Fora da requisição o LimiteBancoFilter não conta a conexão; a permissão vale só para a consulta,
+    // não para o envio ao cliente
+    private <T> T consultar(Supplier<T> consulta) {
+        if (!limiteBanco.reservar()) {
+            throw new RuntimeException("Banco de dados ocupado, tente novamente");
+        }
+        try {
+            return consulta.get();
+        } finally {
+            limiteBanco.liberar();
+        }
+    }
+
+    private void enviarNovos(Assinante assinante) {
+        try {
+            while (!assinante.encerrado) {
+                if (assinante.atrasado && assinante.fila.isEmpty()) {
+                    assinante.emissor.complete();
+                    return;
+                }
+                TransacaoDTO movimento = assinante.fila.poll(batimentoMs, TimeUnit.MILLISECONDS);
+                if (movimento == null) {
+                    assinante.emissor.send(SseEmitter.event().comment(""));
+                } else if (!assinante.jaReenviado(movimento, janelaReenvio)) {
+                    enviar(assinante.emissor, movimento);
+                }
+            }
+        } catch (IOException | IllegalStateException e) {
+            // Cliente desconectou ou a conexão já foi encerrada pelo container
+            encerrar(assinante);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void enviar(SseEmitter emissor, TransacaoDTO movimento) throws IOException {
+        emissor.send(SseEmitter.event().id(String.valueOf(movimento.idTransacao())).data(movimento));
+    }
+
+    private void encerrar(Assinante assinante) {
+        assinantes.remove(assinante);
+        assinante.encerrado = true;
+        Thread thread = assinante.thread;
+        if (thread != null && thread != Thread.currentThread()) {
+            thread.interrupt();
+        }
+    }
+
+    public int assinantes() {
+        return assinantes.size();
+    }
+
+    @Override
+    public void start() {
+        ativo = true;
+    }
+
+    // Antes do desligamento gracioso do servidor, que esperaria as conexões abertas até o fim do prazo;
+    // os clientes reconectam (em outra instância) com Last-Event-ID
+    @Override
+    public void stop() {
+        ativo = false;
+        for (Assinante assinante : assinantes) {
+            encerrar(assinante);
+            assinante.emissor.complete();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return ativo;
+    }
+
+    private static final class Assinante {
+        final Integer idConta;
+        final SseEmitter emissor;
+        final BlockingQueue<TransacaoDTO> fila;
+        // Ids (e datas) que já saíram pelo reenvio e podem chegar de novo pela fila, na ordem do reenvio.
+        // Só usado pela thread do assinante
+        final Map<Integer, LocalDateTime> reenviados = new LinkedHashMap<>();
+        volatile boolean atrasado;
+        volatile boolean encerrado;
+        volatile Thread thread;
+
+        Assinante(Integer idConta, SseEmitter emissor, int capacidade) {
+            this.idConta = idConta;
+            this.emissor = emissor;
+            this.fila = new ArrayBlockingQueue<>(capacidade);
+        }
+
+        // Esquece os reenviados com data anterior à janela antes do movimento que chegou ao vivo: a
+        // partir dele, nenhum desses pode mais vir pela fila
+        boolean jaReenviado(TransacaoDTO movimento, Duration janela) {
+            if (reenviados.isEmpty()) {
+                return false;
+            }
+            boolean repetido = reenviados.remove(movimento.idTransacao()) != null;
+            LocalDateTime corte = movimento.dataTransacao().minus(janela);
+            Iterator<LocalDateTime> datas = reenviados.values().iterator();
+            while (datas.hasNext() && datas.next().isBefore(corte)) {
+                datas.remove();
+            }
+            return repetido;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package village.sillicon.apidemo.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jakarta.persistence.EntityNotFoundException;
+import village.sillicon.apidemo.config.CacheConfig;
+import village.sillicon.apidemo.dtos.TransacaoDTO;
+import village.sillicon.apidemo.models.ChaveIdempotencia;
+import village.sillicon.apidemo.repositories.ChaveIdempotenciaRepository;
+import village.sillicon.apidemo.repositories.TransacaoRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+// Guarda a primeira resposta de cada Idempotency-Key: um LRU em memória na frente da tabela
+// ChavesIdempotencia. Uma nova tentativa do cliente devolve essa resposta sem tocar na Conta.
+@Service
+public class IdempotenciaService {
+
+    public static final String CABECALHO = "Idempotency-Key";
+    private static final int TAMANHO_MAXIMO_CHAVE = 100;
+
+    @Autowired
+    private ChaveIdempotenciaRepository chaveIdempotenciaRepository;
+    @Autowired
+    private TransacaoRepository transacaoRepository;
+    @Autowired
+    private CacheManager cacheManager;
+    @Autowired
+    private DiarioTransacoes diarioTransacoes;
+
+    // Por quanto tempo uma chave vale, contada da criação; a spec do cache só limita a memória
+    @Value("${apidemo.idempotencia.validade:24h}")
+    private Duration validade;
+
+    private record Resposta(String operacao, TransacaoDTO transacao, LocalDateTime dataCriacao) {
+    }
+
+    public void validarChave(String chave) {
+        if (chave.isBlank() || chave.length() > TAMANHO_MAXIMO_CHAVE) {
+            throw new RuntimeException("Idempotency-Key inválida");
+        }
+    }
+
+    // Resposta já registrada para a chave, primeiro na memória e depois no banco.
+    // A mesma chave com outra operação ou outros parâmetros é recusada.
+    public Optional<TransacaoDTO> buscar(String chave, String operacao) {
+        Cache cache = cacheManager.getCache(CacheConfig.IDEMPOTENCIA);
+        Resposta resposta = cache.get(chave, Resposta.class);
+        // O expireAfterWrite conta de quando entrou no cache, que para uma chave lida do banco é
+        // bem depois da criação
+        if (resposta != null && resposta.dataCriacao().isBefore(LocalDateTime.now().minus(validade))) {
+            cache.evict(chave);
+            resposta = null;
+        }
+        if (resposta == null) {
+            resposta = buscarNoBanco(chave);
+            if (resposta == null) {
+                return Optional.empty();
+            }
+            cache.put(chave, resposta);
+        }
+        if (!resposta.operacao().equals(operacao)) {
+            throw new RuntimeException("Idempotency-Key já usada em outra operação");
+        }
+        return Optional.of(resposta.transacao());
+    }
+
+    private Resposta buscarNoBanco(String chave) {
+        Optional<ChaveIdempotencia> registro = chaveIdempotenciaRepository.findById(chave);
+        if (registro.isEmpty()) {
+            return null;
+        }
+        ChaveIdempotencia chaveIdempotencia = registro.get();
+        LocalDateTime limite = LocalDateTime.now().minus(validade);
+        if (chaveIdempotencia.getDataCriacao().isBefore(limite)) {
+            // Vencida e ainda não removida pela limpeza: libera a chave para um novo uso
+            chaveIdempotenciaRepository.removerSeVencida(chave, limite);
+            return null;
+        }
+        // Na gravação assíncrona a transação pode ainda estar em transacoes_pendentes; se o diário a
+        // inseriu entre as duas buscas, a segunda ida a Transacoes a encontra
+        int idTransacao = chaveIdempotencia.getIdTransacao();
+        TransacaoDTO transacao = transacaoRepository.buscarDTO(idTransacao)
+                .or(() -> diarioTransacoes.buscarPendente(idTransacao))
+                .or(() -> transacaoRepository.buscarDTO(idTransacao))
+                .orElseThrow(() -> new EntityNotFoundException("Transacao não encontrada"));
+        return new Resposta(chaveIdempotencia.getOperacao(), transacao, chaveIdempotencia.getDataCriacao());
+    }
+
+    // Chamado dentro da transação da movimentação. O cache só recebe a resposta depois do commit.
+    public void registrar(String chave, String operacao, TransacaoDTO transacao) {
+        LocalDateTime agora = LocalDateTime.now();
+        chaveIdempotenciaRepository.registrar(chave, operacao, transacao.idTransacao(), agora);
+        cacheManager.getCache(CacheConfig.IDEMPOTENCIA).put(chave, new Resposta(operacao, transacao, agora));
+    }
+
+    @Scheduled(initialDelayString = "${apidemo.idempotencia.limpeza-ms:600000}",
+            fixedDelayString = "${apidemo.idempotencia.limpeza-ms:600000}")
+    public void removerVencidas() {
+        chaveIdempotenciaRepository.removerCriadasAntesDe(LocalDateTime.now().minus(validade));
+    }
+}
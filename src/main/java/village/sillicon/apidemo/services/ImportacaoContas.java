@@ -0,0 +1,504 @@
+package village.sillicon.apidemo.services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import village.sillicon.apidemo.config.CacheConfig;
+import village.sillicon.apidemo.config.CacheSegundoNivelConfig;
+import village.sillicon.apidemo.config.LimiteBancoFilter;
+import village.sillicon.apidemo.dtos.ContaArquivo;
+import village.sillicon.apidemo.dtos.ResultadoImportacao;
+import village.sillicon.apidemo.dtos.ResultadoImportacao.LinhaRecusada;
+import village.sillicon.apidemo.models.Dinheiro;
+import village.sillicon.apidemo.repositories.ContaRepository;
+import village.sillicon.apidemo.repositories.PessoaRepository;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+// Cadastro em massa de pessoas com uma conta cada, no lugar de um /pessoas/criar e um /contas/criar
+// por linha. O arquivo é lido aos poucos: cada lote de linhas é validado em memória (CPF repetido no
+// lote, CPFs já cadastrados numa consulta só) e gravado com INSERTs em lote, em paralelo com a
+// leitura dos lotes seguintes. Linhas recusadas não impedem as demais; um lote que falha (banco fora
+// do ar, limite de conexões) interrompe a leitura, e o resultado traz o que já foi gravado e onde parou.
+@Service
+public class ImportacaoContas {
+
+    private static final Logger log = LoggerFactory.getLogger(ImportacaoContas.class);
+
+    private static final String INSERIR_PESSOA = "INSERT INTO pessoas (nome, cpf, data_nascimento) VALUES (?, ?, ?)";
+    private static final String IDS_PESSOAS = "SELECT id_pessoa, cpf FROM pessoas WHERE cpf IN (:cpfs)";
+    private static final String INSERIR_CONTA = "INSERT INTO contas (id_pessoa, saldo, limite_saque_diario, flag_ativo, tipo_conta, data_criacao, saque_diario_acumulado, versao) VALUES (?, ?, ?, ?, ?, ?, 0, 0)";
+    private static final List<String> COLUNAS_OBRIGATORIAS = List.of("nome", "cpf", "dataNascimento", "saldo",
+            "limiteSaqueDiario", "tipoConta");
+
+    @Autowired
+    private PessoaRepository pessoaRepository;
+    @Autowired
+    private ContaRepository contaRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private CacheManager cacheManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private LimiteBancoFilter limiteBanco;
+
+    @Value("${apidemo.importacao.lote:1000}")
+    private int tamanhoLote;
+    // Lotes gravados ao mesmo tempo, cada um com a sua conexão do pool, contada no limite de
+    // apidemo.banco.concorrencia-maxima como uma requisição
+    @Value("${apidemo.importacao.threads:4}")
+    private int threads;
+
+    public enum Formato {
+        CSV("text/csv"),
+        NDJSON("application/x-ndjson");
+
+        private final MediaType tipo;
+
+        Formato(String tipo) {
+            this.tipo = MediaType.parseMediaType(tipo);
+        }
+
+        public MediaType tipo() {
+            return tipo;
+        }
+
+        // Pelo Content-Type da requisição, ignorando charset
+        public static Formato doTipo(String contentType) {
+            MediaType tipo = MediaType.parseMediaType(contentType);
+            for (Formato formato : values()) {
+                if (formato.tipo.isCompatibleWith(tipo)) {
+                    return formato;
+                }
+            }
+            throw new RuntimeException("Formato não suportado: " + contentType);
+        }
+    }
+
+    // Linha lida do arquivo: a conta ou o motivo de não ter sido possível ler
+    private record Linha(long numero, ContaArquivo conta, String erro) {
+    }
+
+    // Totais de um lote
+    private record Parcial(int importadas, List<LinhaRecusada> recusadas) {
+    }
+
+    // Lote enviado para gravação; o resultado é null se ele foi descartado por causa da falha de outro
+    private record Envio(long primeiraLinha, Future<Parcial> resultado) {
+    }
+
+    // Não é @Transactional: cada lote é gravado na sua própria transação
+    public ResultadoImportacao importar(InputStream entrada, Formato formato) throws IOException {
+        BufferedReader leitor = new BufferedReader(new InputStreamReader(entrada, StandardCharsets.UTF_8));
+        // Lotes lidos e ainda não gravados; com todos ocupados a leitura para e o resto do arquivo
+        // espera na conexão, sem acumular em memória
+        Semaphore pendentes = new Semaphore(threads * 2);
+        // Primeira falha de um lote: a leitura para e os lotes que ainda não começaram são descartados
+        AtomicReference<Throwable> falha = new AtomicReference<>();
+        List<Envio> lotes = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            Map<String, Integer> colunas = formato == Formato.CSV ? lerCabecalho(leitor) : null;
+            long numero = colunas != null ? 1 : 0;
+            List<Linha> lote = new ArrayList<>(tamanhoLote);
+            String texto;
+            while (falha.get() == null && (texto = leitor.readLine()) != null) {
+                numero++;
+                if (texto.isBlank()) {
+                    continue;
+                }
+                lote.add(colunas != null ? lerCsv(numero, texto, colunas) : lerJson(numero, texto));
+                if (lote.size() == tamanhoLote) {
+                    lotes.add(enviar(executor, pendentes, falha, lote));
+                    lote = new ArrayList<>(tamanhoLote);
+                }
+            }
+            if (!lote.isEmpty() && falha.get() == null) {
+                lotes.add(enviar(executor, pendentes, falha, lote));
+            }
+        }
+        // Os lotes gravam em paralelo: depois do que falhou, os que já tinham começado terminam e
+        // entram nos totais; a importação parou na primeira linha de lote que falhou ou foi descartado
+        int importadas = 0;
+        List<LinhaRecusada> recusadas = new ArrayList<>();
+        Long interrompidaNaLinha = null;
+        for (Envio lote : lotes) {
+            Parcial parcial;
+            try {
+                parcial = lote.resultado().get();
+            } catch (ExecutionException e) {
+                parcial = null;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Importação interrompida", e);
+            }
+            if (parcial == null) {
+                if (interrompidaNaLinha == null || lote.primeiraLinha() < interrompidaNaLinha) {
+                    interrompidaNaLinha = lote.primeiraLinha();
+                }
+                continue;
+            }
+            importadas += parcial.importadas();
+            recusadas.addAll(parcial.recusadas());
+        }
+        // As linhas foram inseridas fora do Hibernate: as consultas por CPF em cache não sabem delas
+        entityManagerFactory.unwrap(SessionFactory.class).getCache()
+                .evictQueryRegion(CacheSegundoNivelConfig.REGIAO_CONSULTAS_PESSOAS);
+        if (falha.get() != null) {
+            log.error("Importação de contas interrompida na linha {}: {} importadas, {} recusadas",
+                    interrompidaNaLinha, importadas, recusadas.size(), falha.get());
+            String erro = falha.get().getMessage() != null ? falha.get().getMessage() : falha.get().toString();
+            return new ResultadoImportacao(importadas, recusadas, interrompidaNaLinha, erro);
+        }
+        log.info("Importação de contas: {} importadas, {} recusadas", importadas, recusadas.size());
+        return new ResultadoImportacao(importadas, recusadas);
+    }
+
+    private Envio enviar(ExecutorService executor, Semaphore pendentes, AtomicReference<Throwable> falha,
+            List<Linha> lote) {
+        try {
+            pendentes.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Importação interrompida", e);
+        }
+        return new Envio(lote.get(0).numero(), executor.submit(() -> {
+            try {
+                if (falha.get() != null) {
+                    return null;
+                }
+                if (!limiteBanco.reservar()) {
+                    throw new RuntimeException("Banco de dados ocupado, tente novamente");
+                }
+                try {
+                    return gravarLote(lote);
+                } finally {
+                    limiteBanco.liberar();
+                }
+            } catch (RuntimeException e) {
+                falha.compareAndSet(null, e);
+                throw e;
+            } finally {
+                pendentes.release();
+            }
+        }));
+    }
+
+    private Parcial gravarLote(List<Linha> lote) {
+        List<LinhaRecusada> recusadas = new ArrayList<>();
+        List<Linha> validas = new ArrayList<>(lote.size());
+        Set<String> cpfs = new HashSet<>();
+        for (Linha linha : lote) {
+            String erro = linha.erro() != null ? linha.erro() : validar(linha.conta());
+            if (erro == null && !cpfs.add(linha.conta().cpf())) {
+                erro = "CPF repetido no arquivo";
+            }
+            if (erro != null) {
+                recusadas.add(new LinhaRecusada(linha.numero(), linha.conta() != null ? linha.conta().cpf() : null, erro));
+            } else {
+                validas.add(linha);
+            }
+        }
+        if (validas.isEmpty()) {
+            return new Parcial(0, recusadas);
+        }
+
+        Set<String> existentes = new HashSet<>(pessoaRepository.cpfsExistentes(cpfs));
+        List<Linha> novas = new ArrayList<>(validas.size());
+        for (Linha linha : validas) {
+            if (existentes.contains(linha.conta().cpf())) {
+                recusadas.add(new LinhaRecusada(linha.numero(), linha.conta().cpf(), "CPF já cadastrado"));
+            } else {
+                novas.add(linha);
+            }
+        }
+
+        if (novas.isEmpty()) {
+            return new Parcial(0, recusadas);
+        }
+        int importadas = 0;
+        try {
+            transactionTemplate.executeWithoutResult(status -> inserir(novas));
+            importadas = novas.size();
+        } catch (DataIntegrityViolationException e) {
+            // CPF que também está em outro lote do arquivo ou foi cadastrado enquanto isso: grava
+            // linha a linha para saber qual foi recusada
+            for (Linha linha : novas) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> inserir(List.of(linha)));
+                    importadas++;
+                } catch (DataIntegrityViolationException recusa) {
+                    recusadas.add(new LinhaRecusada(linha.numero(), linha.conta().cpf(),
+                            recusa instanceof DuplicateKeyException ? "CPF já cadastrado" : "Dados recusados pelo banco"));
+                }
+            }
+        }
+        Cache inexistentes = cacheManager.getCache(CacheConfig.CPFS_INEXISTENTES);
+        novas.forEach(linha -> inexistentes.evict(linha.conta().cpf()));
+        return new Parcial(importadas, recusadas);
+    }
+
+    // Pessoas em lote, os ids delas pelo CPF (único) e as contas em lote
+    private void inserir(List<Linha> linhas) {
+        jdbcTemplate.batchUpdate(INSERIR_PESSOA, linhas, linhas.size(), (comando, linha) -> {
+            comando.setString(1, linha.conta().nome());
+            comando.setString(2, linha.conta().cpf());
+            comando.setDate(3, Date.valueOf(linha.conta().dataNascimento()));
+        });
+        Map<String, Integer> idsPessoas = new HashMap<>();
+        namedParameterJdbcTemplate.query(IDS_PESSOAS,
+                new MapSqlParameterSource("cpfs", linhas.stream().map(linha -> linha.conta().cpf()).toList()),
+                linha -> {
+                    idsPessoas.put(linha.getString(2), linha.getInt(1));
+                });
+        Timestamp agora = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERIR_CONTA, linhas, linhas.size(), (comando, linha) -> {
+            ContaArquivo conta = linha.conta();
+            comando.setInt(1, idsPessoas.get(conta.cpf()));
+            comando.setBigDecimal(2, Dinheiro.normalizar(conta.saldo()));
+            comando.setBigDecimal(3, Dinheiro.normalizar(conta.limiteSaqueDiario()));
+            comando.setBoolean(4, conta.flagAtivo() == null || conta.flagAtivo());
+            comando.setInt(5, conta.tipoConta());
+            comando.setTimestamp(6, agora);
+        });
+    }
+
+    // Motivo da recusa, ou null se a linha pode ser gravada
+    private static String validar(ContaArquivo conta) {
+        if (conta.nome() == null || conta.nome().isBlank()) {
+            return "Nome obrigatório";
+        }
+        if (conta.cpf() == null) {
+            return "CPF inválido";
+        }
+        try {
+            PessoaService.validarCpf(conta.cpf());
+        } catch (RuntimeException e) {
+            return e.getMessage();
+        }
+        if (conta.dataNascimento() == null) {
+            return "Data de nascimento obrigatória";
+        }
+        if (!valorValido(conta.saldo())) {
+            return "Saldo inválido";
+        }
+        if (!valorValido(conta.limiteSaqueDiario())) {
+            return "Limite de saque diário inválido";
+        }
+        if (conta.tipoConta() == null) {
+            return "Tipo de conta obrigatório";
+        }
+        return null;
+    }
+
+    // Sem sinal e cabendo em DECIMAL(15,2), sem casas sobrando
+    private static boolean valorValido(BigDecimal valor) {
+        if (valor == null || valor.signum() < 0) {
+            return false;
+        }
+        try {
+            return Dinheiro.normalizar(valor).precision() <= 15;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    private Linha lerJson(long numero, String texto) {
+        try {
+            return new Linha(numero, objectMapper.readValue(texto, ContaArquivo.class), null);
+        } catch (JsonProcessingException e) {
+            return new Linha(numero, null, "JSON inválido");
+        }
+    }
+
+    private static Map<String, Integer> lerCabecalho(BufferedReader leitor) throws IOException {
+        String cabecalho = leitor.readLine();
+        if (cabecalho == null) {
+            throw new RuntimeException("Arquivo CSV vazio");
+        }
+        Map<String, Integer> colunas = new HashMap<>();
+        List<String> campos = campos(cabecalho);
+        for (int i = 0; i < campos.size(); i++) {
+            colunas.put(campos.get(i).strip(), i);
+        }
+        for (String coluna : COLUNAS_OBRIGATORIAS) {
+            if (!colunas.containsKey(coluna)) {
+                throw new RuntimeException("Coluna " + coluna + " ausente no cabeçalho do CSV");
+            }
+        }
+        return colunas;
+    }
+
+    // Colunas pelo nome do cabeçalho, em qualquer ordem; as que não são da conta são ignoradas
+    private static Linha lerCsv(long numero, String texto, Map<String, Integer> colunas) {
+        List<String> campos = campos(texto);
+        String coluna = null;
+        try {
+            coluna = "cpf";
+            String cpf = campo(campos, colunas, coluna);
+            coluna = "nome";
+            String nome = campo(campos, colunas, coluna);
+            coluna = "dataNascimento";
+            String data = campo(campos, colunas, coluna);
+            LocalDate dataNascimento = data != null ? LocalDate.parse(data) : null;
+            coluna = "saldo";
+            String saldo = campo(campos, colunas, coluna);
+            coluna = "limiteSaqueDiario";
+            String limite = campo(campos, colunas, coluna);
+            coluna = "tipoConta";
+            String tipoConta = campo(campos, colunas, coluna);
+            coluna = "flagAtivo";
+            String flagAtivo = campo(campos, colunas, coluna);
+            if (flagAtivo != null && !flagAtivo.equalsIgnoreCase("true") && !flagAtivo.equalsIgnoreCase("false")) {
+                throw new IllegalArgumentException();
+            }
+            return new Linha(numero, new ContaArquivo(null, null, nome, cpf, dataNascimento,
+                    saldo != null ? new BigDecimal(saldo) : null,
+                    limite != null ? new BigDecimal(limite) : null,
+                    tipoConta != null ? Integer.valueOf(tipoConta) : null,
+                    flagAtivo != null ? Boolean.valueOf(flagAtivo) : null), null);
+        } catch (RuntimeException e) {
+            return new Linha(numero, null, "Valor inválido na coluna " + coluna);
+        }
+    }
+
+    // Campo vazio ou coluna que não veio na linha contam como ausentes
+    private static String campo(List<String> campos, Map<String, Integer> colunas, String coluna) {
+        Integer indice = colunas.get(coluna);
+        if (indice == null || indice >= campos.size()) {
+            return null;
+        }
+        String valor = campos.get(indice).strip();
+        return valor.isEmpty() ? null : valor;
+    }
+
+    // Separa por vírgula; campos entre aspas podem ter vírgula e "" para aspas (sem quebra de linha)
+    private static List<String> campos(String linha) {
+        List<String> campos = new ArrayList<>();
+        StringBuilder atual = new StringBuilder();
+        boolean entreAspas = false;
+        for (int i = 0; i < linha.length(); i++) {
+            char c = linha.charAt(i);
+            if (entreAspas) {
+                if (c == '"' && i + 1 < linha.length() && linha.charAt(i + 1) == '"') {
+                    atual.append('"');
+                    i++;
+                } else if (c == '"') {
+                    entreAspas = false;
+                } else {
+                    atual.append(c);
+                }
+            } else if (c == '"') {
+                entreAspas = true;
+            } else if (c == ',') {
+                campos.add(atual.toString());
+                atual.setLength(0);
+            } else {
+                atual.append(c);
+            }
+        }
+        campos.add(atual.toString());
+        return campos;
+    }
+
+    // Todas as contas com o titular, no mesmo formato aceito pela importação. As linhas são
+    // projeções lidas por cursor e escritas direto na resposta, sem montar listas.
+    @Transactional(readOnly = true)
+    public void exportar(OutputStream saida, Formato formato) throws IOException {
+        try (Stream<ContaArquivo> contas = contaRepository.streamArquivo()) {
+            if (formato == Formato.NDJSON) {
+                exportarJson(contas, saida);
+            } else {
+                exportarCsv(contas, saida);
+            }
+        }
+    }
+
+    private void exportarJson(Stream<ContaArquivo> contas, OutputStream saida) throws IOException {
+        try (JsonGenerator gerador = objectMapper.createGenerator(saida)) {
+            int escritas = 0;
+            for (ContaArquivo conta : (Iterable<ContaArquivo>) contas::iterator) {
+                gerador.writeObject(conta);
+                gerador.writeRaw('\n');
+                if (++escritas % 500 == 0) {
+                    gerador.flush();
+                }
+            }
+        }
+    }
+
+    private static void exportarCsv(Stream<ContaArquivo> contas, OutputStream saida) throws IOException {
+        Writer escritor = new BufferedWriter(new OutputStreamWriter(saida, StandardCharsets.UTF_8));
+        escritor.write(String.join(",", ContaArquivo.COLUNAS));
+        escritor.write('\n');
+        int escritas = 0;
+        for (ContaArquivo conta : (Iterable<ContaArquivo>) contas::iterator) {
+            escritor.write(conta.idConta() + "," + conta.idPessoa() + "," + csv(conta.nome()) + "," + conta.cpf()
+                    + "," + conta.dataNascimento() + "," + conta.saldo().toPlainString() + ","
+                    + conta.limiteSaqueDiario().toPlainString() + "," + conta.tipoConta() + "," + conta.flagAtivo());
+            escritor.write('\n');
+            if (++escritas % 500 == 0) {
+                escritor.flush();
+            }
+        }
+        escritor.flush();
+    }
+
+    private static String csv(String valor) {
+        if (valor.indexOf(',') < 0 && valor.indexOf('"') < 0) {
+            return valor;
+        }
+        return '"' + valor.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,110 @@
+package village.sillicon.apidemo.services;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import village.sillicon.apidemo.migracoes.ParticoesMensais;
+
+import java.time.YearMonth;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Manutenção das partições mensais de Transacoes (migração V7): cria as dos próximos meses antes que
+// as transações caiam em pfuturo e move os meses fora da janela quente para transacoes_arquivo.
+// Com só os meses quentes em Transacoes, as consultas por id percorrem poucas partições e as por
+// período (extrato, saques do dia) leem só as do período. Fora do MariaDB/MySQL, ou com a tabela
+// sem partições (H2 dos testes, banco sem a V7), não faz nada.
+@Service
+public class ParticoesTransacoes {
+
+    private static final Logger log = LoggerFactory.getLogger(ParticoesTransacoes.class);
+
+    private static final String PARTICOES = "SELECT PARTITION_NAME FROM information_schema.PARTITIONS WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'transacoes' AND PARTITION_NAME IS NOT NULL ORDER BY PARTITION_ORDINAL_POSITION";
+    private static final String COLUNAS = "id_transacao, id_conta, valor, tipo_transacao, data_transacao";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Partições criadas à frente do mês atual
+    @Value("${apidemo.particoes.meses-futuros:3}")
+    private int mesesFuturos;
+    // Meses que ficam em Transacoes, o atual incluído; os anteriores vão para transacoes_arquivo
+    @Value("${apidemo.particoes.meses-quentes:12}")
+    private int mesesQuentes;
+
+    private final ReentrantLock emAndamento = new ReentrantLock();
+
+    // Também na subida da aplicação, para não depender de ela ficar de pé até a primeira execução
+    @Scheduled(fixedDelayString = "${apidemo.particoes.manutencao-ms:86400000}")
+    public void manterPeriodicamente() {
+        if (!emAndamento.tryLock()) {
+            return;
+        }
+        try {
+            manter(YearMonth.now());
+        } catch (RuntimeException e) {
+            log.error("Falha na manutenção das partições de Transacoes", e);
+        } finally {
+            emAndamento.unlock();
+        }
+    }
+
+    private void manter(YearMonth atual) {
+        List<String> particoes = particoes();
+        if (particoes.isEmpty()) {
+            return;
+        }
+        YearMonth ultima = particoes.stream().map(ParticoesMensais::mes)
+                .filter(mes -> mes != null).max(YearMonth::compareTo).orElse(atual.minusMonths(1));
+        List<YearMonth> novas = ParticoesMensais.aCriar(ultima, atual, mesesFuturos);
+        if (!novas.isEmpty()) {
+            jdbcTemplate.execute("ALTER TABLE transacoes " + ParticoesMensais.reorganizarFuturo(novas));
+            log.info("Partições criadas em Transacoes: {}", novas.stream().map(ParticoesMensais::nome).toList());
+        }
+
+        for (String particao : ParticoesMensais.aArquivar(particoes, atual, mesesQuentes)) {
+            arquivar(particao);
+        }
+    }
+
+    // INSERT IGNORE: se a cópia já foi feita numa execução interrompida antes do DROP, não duplica. Mas
+    // ele também pula, sem erro, um id que já esteja no arquivo com outro conteúdo; e cópia e DROP não
+    // são atômicos. Antes do DROP cada linha da partição precisa estar igual em transacoes_arquivo,
+    // senão a partição fica onde está. Fora da janela quente nada mais grava na partição.
+    private void arquivar(String particao) {
+        jdbcTemplate.update("INSERT IGNORE INTO transacoes_arquivo (" + COLUNAS + ") SELECT "
+                + COLUNAS + " FROM transacoes PARTITION (" + particao + ")");
+        int total = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM transacoes PARTITION (" + particao + ")", Integer.class);
+        int faltando = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transacoes PARTITION (" + particao + ") t"
+                + " WHERE NOT EXISTS (SELECT 1 FROM transacoes_arquivo a WHERE a.id_transacao = t.id_transacao"
+                + " AND a.id_conta = t.id_conta AND a.valor = t.valor AND a.tipo_transacao = t.tipo_transacao"
+                + " AND a.data_transacao = t.data_transacao)", Integer.class);
+        if (faltando > 0) {
+            throw new RuntimeException("Partição " + particao + " de Transacoes não arquivada: " + faltando + " de "
+                    + total + " transações não conferem com transacoes_arquivo");
+        }
+        jdbcTemplate.execute("ALTER TABLE transacoes DROP PARTITION " + particao);
+        meterRegistry.counter("apidemo.transacoes.arquivadas").increment(total);
+        log.info("Partição {} de Transacoes arquivada: {} transações movidas para transacoes_arquivo",
+                particao, total);
+    }
+
+    private List<String> particoes() {
+        String banco = jdbcTemplate.execute(
+                (ConnectionCallback<String>) conexao -> conexao.getMetaData().getDatabaseProductName());
+        if (banco == null || !(banco.equalsIgnoreCase("MariaDB") || banco.equalsIgnoreCase("MySQL"))) {
+            return List.of();
+        }
+        return jdbcTemplate.queryForList(PARTICOES, String.class);
+    }
+}
@@ -1,15 +1,26 @@
 package village.sillicon.apidemo.services;
 
-import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 
 import jakarta.persistence.EntityNotFoundException;
+import village.sillicon.apidemo.config.CacheConfig;
+import village.sillicon.apidemo.config.Paginacao;
+import village.sillicon.apidemo.dtos.PessoaDTO;
+import village.sillicon.apidemo.dtos.ResumoPessoa;
 import village.sillicon.apidemo.models.Pessoa;
 import village.sillicon.apidemo.repositories.PessoaRepository;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,35 +29,115 @@ public class PessoaService {
 
     @Autowired
     private PessoaRepository pessoaRepository;
+    @Autowired
+    private Paginacao paginacao;
+    @Autowired
+    private CacheManager cacheManager;
 
+    // CPF repetido é recusado antes do INSERT; a constraint única continua valendo para cadastros simultâneos
     public Pessoa criar(Pessoa pessoa) {
-        return pessoaRepository.save(pessoa);
+        String cpf = pessoa.getCpf();
+        if (cpf == null) {
+            return pessoaRepository.save(pessoa);
+        }
+        if (cpfExiste(cpf)) {
+            throw new RuntimeException("CPF já cadastrado");
+        }
+        try {
+            return pessoaRepository.save(pessoa);
+        } catch (DataIntegrityViolationException e) {
+            throw new RuntimeException("CPF já cadastrado", e);
+        } finally {
+            cpfsInexistentes().evict(cpf);
+        }
     }
 
-    public List<Pessoa> listar() {
-        return pessoaRepository.findAll();
+    @Transactional(readOnly = true)
+    public PessoaDTO buscarPorCpf(String cpf) {
+        validarCpf(cpf);
+        Cache inexistentes = cpfsInexistentes();
+        if (inexistentes.get(cpf) != null) {
+            throw new EntityNotFoundException("Pessoa não encontrada");
+        }
+        return pessoaRepository.findByCpf(cpf).map(PessoaDTO::of).orElseThrow(() -> {
+            inexistentes.put(cpf, Boolean.TRUE);
+            return new EntityNotFoundException("Pessoa não encontrada");
+        });
     }
 
-    public Pessoa acharPorId(int id) {
-        var pessoaExistente = pessoaRepository.findById(id)
+    @Transactional(readOnly = true)
+    public ResumoPessoa resumo(int id) {
+        return pessoaRepository.resumo(id, LocalDate.now())
                 .orElseThrow(() -> new EntityNotFoundException("Pessoa não encontrada"));
+    }
 
-        Pessoa pessoa = new Pessoa();
-        BeanUtils.copyProperties(pessoaExistente, pessoa);
+    @Transactional(readOnly = true)
+    public List<ResumoPessoa> listarResumos(int after, Integer limit) {
+        return pessoaRepository.listarResumos(after, LocalDate.now(), paginacao.limite(limit));
+    }
 
-        return pessoa;
+    // Em rajadas de cadastro o mesmo CPF inexistente é consultado várias vezes: a resposta negativa
+    // fica em cache por pouco tempo (apidemo.cache.cpfs-inexistentes.spec) e é removida quando o CPF é cadastrado
+    @Transactional(readOnly = true)
+    public boolean cpfExiste(String cpf) {
+        Cache inexistentes = cpfsInexistentes();
+        if (inexistentes.get(cpf) != null) {
+            return false;
+        }
+        boolean existe = pessoaRepository.existsByCpf(cpf);
+        if (!existe) {
+            inexistentes.put(cpf, Boolean.TRUE);
+        }
+        return existe;
     }
 
+    static void validarCpf(String cpf) {
+        if (cpf.length() != 11 || !cpf.chars().allMatch(Character::isDigit)) {
+            throw new RuntimeException("CPF inválido");
+        }
+    }
+
+    private Cache cpfsInexistentes() {
+        return cacheManager.getCache(CacheConfig.CPFS_INEXISTENTES);
+    }
+
+    @Transactional(readOnly = true)
+    public List<Pessoa> listar(int after, Integer limit) {
+        return pessoaRepository.findByIdPessoaGreaterThanOrderByIdPessoa(after, paginacao.limite(limit));
+    }
+
+    @Transactional(readOnly = true)
+    @Cacheable(cacheNames = CacheConfig.PESSOAS, key = "#id")
+    public PessoaDTO acharPorId(int id) {
+        return pessoaRepository.buscarDTO(id)
+                .orElseThrow(() -> new EntityNotFoundException("Pessoa não encontrada"));
+    }
+
+    // O nome da pessoa também aparece nas contas em cache
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.PESSOAS, key = "#id"),
+            @CacheEvict(cacheNames = CacheConfig.CONTAS, allEntries = true)
+    })
     public Pessoa atualizar(int id, Pessoa pessoaAtualizada) {
-        Pessoa pessoaExistente = acharPorId(id);
+        Pessoa pessoaExistente = pessoaRepository.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Pessoa não encontrada"));
+        String cpf = pessoaAtualizada.getCpf();
+        if (cpf != null && !cpf.equals(pessoaExistente.getCpf()) && cpfExiste(cpf)) {
+            throw new RuntimeException("CPF já cadastrado");
+        }
 
         pessoaExistente.setNome(pessoaAtualizada.getNome());
         pessoaExistente.setCpf(pessoaAtualizada.getCpf());
         pessoaExistente.setDataNascimento(pessoaAtualizada.getDataNascimento());
 
-        return pessoaRepository.save(pessoaExistente);
+        Pessoa salva = pessoaRepository.save(pessoaExistente);
+        if (cpf != null) {
+            cpfsInexistentes().evict(cpf);
+        }
+        return salva;
     }
 
+    @CacheEvict(cacheNames = CacheConfig.PESSOAS, key = "#id")
     public void deletar(int id) {
         if (pessoaRepository.existsById(id)) {
             pessoaRepository.deleteById(id);
@@ -1,22 +1,62 @@
 package village.sillicon.apidemo.services;
 
-import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.data.domain.Limit;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.*;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.persistence.EntityNotFoundException;
+import village.sillicon.apidemo.config.CacheConfig;
+import village.sillicon.apidemo.config.Paginacao;
+import village.sillicon.apidemo.dtos.ContaDTO;
+import village.sillicon.apidemo.dtos.ExtratoItem;
+import village.sillicon.apidemo.dtos.ExtratoPagina;
+import village.sillicon.apidemo.dtos.OperacaoLote;
+import village.sillicon.apidemo.dtos.ResultadoLote;
+import village.sillicon.apidemo.dtos.TransacaoDTO;
+import village.sillicon.apidemo.exceptions.ContaBloqueadaException;
+import village.sillicon.apidemo.exceptions.LimiteDiarioExcedidoException;
+import village.sillicon.apidemo.exceptions.MovimentacaoRecusadaException;
+import village.sillicon.apidemo.exceptions.SaldoInsuficienteException;
 import village.sillicon.apidemo.models.Conta;
+import village.sillicon.apidemo.models.Dinheiro;
 import village.sillicon.apidemo.models.Pessoa;
 import village.sillicon.apidemo.models.Transacao;
 import village.sillicon.apidemo.models.Transacao.TipoTransacao;
+import village.sillicon.apidemo.motor.MotorSaldos;
+import village.sillicon.apidemo.motor.MotorSaldos.Idempotencia;
 import village.sillicon.apidemo.repositories.ContaRepository;
 import village.sillicon.apidemo.repositories.TransacaoRepository;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 @Service
 public class TransacaoService {
@@ -24,16 +64,93 @@ public class TransacaoService {
     @Autowired
     private TransacaoRepository transacaoRepository;
     @Autowired
+    private Paginacao paginacao;
+    @Autowired
     private ContaService contaService;
+    @Autowired
+    private ContaRepository contaRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private CacheManager cacheManager;
+    @Autowired
+    private IdempotenciaService idempotenciaService;
+    @Autowired
+    private DiarioTransacoes diarioTransacoes;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private MotorSaldos motorSaldos;
+    @Autowired
+    private FluxoMovimentos fluxoMovimentos;
+
+    // ATOMICO usa um UPDATE condicional por conta; OTIMISTA usa @Version com novas tentativas;
+    // PESSIMISTA usa SELECT ... FOR UPDATE; PARTICIONADO usa o MotorSaldos, com os saldos em memória
+    @Value("${apidemo.transacoes.concorrencia:ATOMICO}")
+    private ModoConcorrencia modoConcorrencia;
+    @Value("${apidemo.transacoes.gravacao:SINCRONA}")
+    private ModoGravacao modoGravacao;
+    @Value("${apidemo.transacoes.tentativas-otimistas:5}")
+    private int tentativasOtimistas;
+    @Value("${apidemo.transacoes.lote.tamanho-maximo:10000}")
+    private int tamanhoMaximoLote;
+
+    // Limites usados quando o extrato não informa período
+    private static final LocalDateTime INICIO_EXTRATO = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime FIM_EXTRATO = LocalDateTime.of(9999, 12, 31, 0, 0);
+
+    public enum ModoConcorrencia {
+        ATOMICO,
+        OTIMISTA,
+        PESSIMISTA,
+        PARTICIONADO
+    }
+
+    public enum ModoGravacao {
+        SINCRONA,
+        ASSINCRONA
+    }
 
+    // Na gravação assíncrona a Transacao vai para transacoes_pendentes, no mesmo commit da Conta, e o
+    // diário a publica nos streams quando a insere em Transacoes. Na síncrona, depois do commit.
     public Transacao criar(Transacao transacao) {
-        return transacaoRepository.save(transacao);
+        if (modoGravacao == ModoGravacao.ASSINCRONA) {
+            return diarioTransacoes.registrar(transacao);
+        }
+        Transacao criada = transacaoRepository.save(transacao);
+        fluxoMovimentos.publicar(TransacaoDTO.of(criada));
+        return criada;
     }
 
+    // O acumulado de saques do dia é gravado na mesma transação que o saque
+    @CacheEvict(cacheNames = CacheConfig.CONTAS, key = "#idConta")
     public Transacao saque(int idConta, BigDecimal valor) {
-        Conta conta = contaService.acharPorId(idConta);
+        if (modoConcorrencia == ModoConcorrencia.PARTICIONADO) {
+            return medir("saque", () -> motorSaldos.movimentar(TipoTransacao.SAQUE, idConta, valor, null));
+        }
+        return medir("saque", () -> executar(() -> realizarSaque(idConta, valor)));
+    }
+
+    @CacheEvict(cacheNames = CacheConfig.CONTAS, key = "#idConta")
+    public TransacaoDTO saque(int idConta, BigDecimal valor, String chaveIdempotencia) {
+        return medir("saque", () -> executarIdempotente(chaveIdempotencia,
+                "saque/" + idConta + "/" + texto(valor), () -> realizarSaque(idConta, valor),
+                idempotencia -> motorSaldos.movimentar(TipoTransacao.SAQUE, idConta, valor, idempotencia)));
+    }
+
+    private Transacao realizarSaque(int idConta, BigDecimal valor) {
+        if (modoConcorrencia == ModoConcorrencia.ATOMICO) {
+            if (contaRepository.sacar(idConta, valor, LocalDate.now()) == 0) {
+                recusar(idConta, TipoTransacao.SAQUE, valor, "Não foi possível realizar saque");
+            }
+            return criar(new Transacao(contaRepository.getReferenceById(idConta), valor, TipoTransacao.SAQUE));
+        }
+        Conta conta = carregarConta(idConta);
         if (validarTransacao(conta, TipoTransacao.SAQUE, valor) == true) {
             conta.setSaldo(conta.getSaldo().subtract(valor));
+            conta.registrarSaque(valor, LocalDate.now());
             contaService.atualizar(idConta, conta);
             Transacao transacao = new Transacao(conta, valor, TipoTransacao.SAQUE);
             return criar(transacao);
@@ -41,8 +158,29 @@ public class TransacaoService {
         throw new RuntimeException("Não foi possível realizar saque");
     }
 
+    @CacheEvict(cacheNames = CacheConfig.CONTAS, key = "#idConta")
     public Transacao deposito(int idConta, BigDecimal valor) {
-        Conta conta = contaService.acharPorId(idConta);
+        if (modoConcorrencia == ModoConcorrencia.PARTICIONADO) {
+            return medir("deposito", () -> motorSaldos.movimentar(TipoTransacao.DEPOSITO, idConta, valor, null));
+        }
+        return medir("deposito", () -> executar(() -> realizarDeposito(idConta, valor)));
+    }
+
+    @CacheEvict(cacheNames = CacheConfig.CONTAS, key = "#idConta")
+    public TransacaoDTO deposito(int idConta, BigDecimal valor, String chaveIdempotencia) {
+        return medir("deposito", () -> executarIdempotente(chaveIdempotencia,
+                "deposito/" + idConta + "/" + texto(valor), () -> realizarDeposito(idConta, valor),
+                idempotencia -> motorSaldos.movimentar(TipoTransacao.DEPOSITO, idConta, valor, idempotencia)));
+    }
+
+    private Transacao realizarDeposito(int idConta, BigDecimal valor) {
+        if (modoConcorrencia == ModoConcorrencia.ATOMICO) {
+            if (contaRepository.creditar(idConta, valor) == 0) {
+                recusar(idConta, TipoTransacao.DEPOSITO, valor, "Não foi possível realizar deposito");
+            }
+            return criar(new Transacao(contaRepository.getReferenceById(idConta), valor, TipoTransacao.DEPOSITO));
+        }
+        Conta conta = carregarConta(idConta);
         if (validarTransacao(conta, TipoTransacao.DEPOSITO, valor) == true) {
             conta.setSaldo(conta.getSaldo().add(valor));
             contaService.atualizar(idConta, conta);
@@ -52,9 +190,45 @@ public class TransacaoService {
         throw new RuntimeException("Não foi possível realizar deposito");
     }
 
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.CONTAS, key = "#idContaEnvia"),
+            @CacheEvict(cacheNames = CacheConfig.CONTAS, key = "#idContaRecebe")
+    })
     public Transacao transferencia(int idContaEnvia, int idContaRecebe, BigDecimal valor) {
-        Conta contaEnvia = contaService.acharPorId(idContaEnvia);
-        Conta contaRecebe = contaService.acharPorId(idContaRecebe);
+        if (modoConcorrencia == ModoConcorrencia.PARTICIONADO) {
+            return medir("transferencia",
+                    () -> motorSaldos.transferir(idContaEnvia, idContaRecebe, valor, null));
+        }
+        return medir("transferencia",
+                () -> executar(() -> realizarTransferencia(idContaEnvia, idContaRecebe, valor)));
+    }
+
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.CONTAS, key = "#idContaEnvia"),
+            @CacheEvict(cacheNames = CacheConfig.CONTAS, key = "#idContaRecebe")
+    })
+    public TransacaoDTO transferencia(int idContaEnvia, int idContaRecebe, BigDecimal valor,
+            String chaveIdempotencia) {
+        return medir("transferencia", () -> executarIdempotente(chaveIdempotencia,
+                "transferencia/" + idContaEnvia + "/" + idContaRecebe + "/" + texto(valor),
+                () -> realizarTransferencia(idContaEnvia, idContaRecebe, valor),
+                idempotencia -> motorSaldos.transferir(idContaEnvia, idContaRecebe, valor, idempotencia)));
+    }
+
+    private Transacao realizarTransferencia(int idContaEnvia, int idContaRecebe, BigDecimal valor) {
+        if (modoConcorrencia == ModoConcorrencia.ATOMICO) {
+            return transferenciaAtomica(idContaEnvia, idContaRecebe, valor);
+        }
+        // Trava sempre a conta de menor id primeiro para evitar deadlock entre transferências opostas
+        Conta contaEnvia;
+        Conta contaRecebe;
+        if (idContaEnvia < idContaRecebe) {
+            contaEnvia = carregarConta(idContaEnvia);
+            contaRecebe = carregarConta(idContaRecebe);
+        } else {
+            contaRecebe = carregarConta(idContaRecebe);
+            contaEnvia = carregarConta(idContaEnvia);
+        }
         if ((validarTransacao(contaEnvia, TipoTransacao.TRANSFERENCIA_ENVIADA, valor) == true)
                 && (validarTransacao(contaRecebe, TipoTransacao.TRANSFERENCIA_RECEBIDA, valor) == true)) {
             // Conta que vai enviar o dinheiro
@@ -72,32 +246,323 @@ public class TransacaoService {
         throw new RuntimeException("Não foi possível realizar transação");
     }
 
+    // Aplica o lote numa única transação: cada conta é travada e gravada uma vez só, com o saldo líquido,
+    // e as transações são inseridas em lote. Uma operação recusada não impede as demais.
+    public List<ResultadoLote> processarLote(List<OperacaoLote> operacoes) {
+        if (operacoes.size() > tamanhoMaximoLote) {
+            throw new RuntimeException("Lote excede o tamanho máximo de " + tamanhoMaximoLote + " operações");
+        }
+        TreeSet<Integer> ids = new TreeSet<>();
+        for (OperacaoLote operacao : operacoes) {
+            ids.add(operacao.idConta());
+            if (operacao.idContaDestino() != null) {
+                ids.add(operacao.idContaDestino());
+            }
+        }
+        if (modoConcorrencia == ModoConcorrencia.PARTICIONADO) {
+            List<ResultadoLote> resultados = medir("lote", () -> processarLoteNoMotor(operacoes));
+            Cache contasEmCache = cacheManager.getCache(CacheConfig.CONTAS);
+            ids.forEach(contasEmCache::evict);
+            return resultados;
+        }
+        List<ResultadoLote> resultadosLote = medir("lote", () -> executar(() -> {
+            Map<Integer, Conta> contas = new HashMap<>();
+            for (Conta conta : contaRepository.findAllByIdParaAtualizar(ids)) {
+                contas.put(conta.getIdConta(), conta);
+            }
+
+            LocalDate hoje = LocalDate.now();
+            List<Transacao> novas = new ArrayList<>();
+            Transacao[] retornadas = new Transacao[operacoes.size()];
+            String[] erros = new String[operacoes.size()];
+            for (int i = 0; i < operacoes.size(); i++) {
+                try {
+                    retornadas[i] = aplicarOperacao(operacoes.get(i), contas, hoje, novas);
+                } catch (MovimentacaoRecusadaException e) {
+                    contarRecusa(e);
+                    erros[i] = e.getMessage();
+                } catch (RuntimeException e) {
+                    erros[i] = e.getMessage();
+                }
+            }
+            transacaoRepository.saveAll(novas);
+            novas.forEach(transacao -> fluxoMovimentos.publicar(TransacaoDTO.of(transacao)));
+
+            List<ResultadoLote> resultados = new ArrayList<>(operacoes.size());
+            for (int i = 0; i < operacoes.size(); i++) {
+                resultados.add(erros[i] == null
+                        ? ResultadoLote.sucesso(i, retornadas[i].getIdTransacao())
+                        : ResultadoLote.falha(i, erros[i]));
+            }
+            return resultados;
+        }));
+        Cache contasEmCache = cacheManager.getCache(CacheConfig.CONTAS);
+        ids.forEach(contasEmCache::evict);
+        return resultadosLote;
+    }
+
+    // No motor de saldos cada operação do lote é uma movimentação independente: as aceitas
+    // não são desfeitas se outra for recusada
+    private List<ResultadoLote> processarLoteNoMotor(List<OperacaoLote> operacoes) {
+        List<ResultadoLote> resultados = new ArrayList<>(operacoes.size());
+        for (int i = 0; i < operacoes.size(); i++) {
+            try {
+                resultados.add(ResultadoLote.sucesso(i, operacaoNoMotor(operacoes.get(i)).getIdTransacao()));
+            } catch (MovimentacaoRecusadaException e) {
+                contarRecusa(e);
+                resultados.add(ResultadoLote.falha(i, e.getMessage()));
+            } catch (RuntimeException e) {
+                resultados.add(ResultadoLote.falha(i, e.getMessage()));
+            }
+        }
+        return resultados;
+    }
+
+    private Transacao operacaoNoMotor(OperacaoLote operacao) {
+        if (operacao.tipo() == null || operacao.valor() == null || operacao.valor().signum() <= 0) {
+            throw new RuntimeException("Operação inválida");
+        }
+        BigDecimal valor = Dinheiro.normalizar(operacao.valor());
+        switch (operacao.tipo()) {
+            case SAQUE:
+            case DEPOSITO:
+                return motorSaldos.movimentar(operacao.tipo(), operacao.idConta(), valor, null);
+
+            case TRANSFERENCIA_ENVIADA:
+                if (operacao.idContaDestino() == null || operacao.idContaDestino() == operacao.idConta()) {
+                    throw new RuntimeException("Conta de destino inválida");
+                }
+                return motorSaldos.transferir(operacao.idConta(), operacao.idContaDestino(), valor, null);
+
+            default:
+                throw new RuntimeException("Tipo de operação não suportado no lote");
+        }
+    }
+
+    private Transacao aplicarOperacao(OperacaoLote operacao, Map<Integer, Conta> contas, LocalDate hoje,
+            List<Transacao> novas) {
+        if (operacao.tipo() == null || operacao.valor() == null || operacao.valor().signum() <= 0) {
+            throw new RuntimeException("Operação inválida");
+        }
+        BigDecimal valor = Dinheiro.normalizar(operacao.valor());
+        Conta conta = contaDoLote(contas, operacao.idConta());
+        switch (operacao.tipo()) {
+            case SAQUE:
+                validarTransacao(conta, TipoTransacao.SAQUE, valor);
+                conta.setSaldo(conta.getSaldo().subtract(valor));
+                conta.registrarSaque(valor, hoje);
+                return adicionar(novas, new Transacao(conta, valor, TipoTransacao.SAQUE));
+
+            case DEPOSITO:
+                validarTransacao(conta, TipoTransacao.DEPOSITO, valor);
+                conta.setSaldo(conta.getSaldo().add(valor));
+                return adicionar(novas, new Transacao(conta, valor, TipoTransacao.DEPOSITO));
+
+            case TRANSFERENCIA_ENVIADA:
+                if (operacao.idContaDestino() == null || operacao.idContaDestino() == operacao.idConta()) {
+                    throw new RuntimeException("Conta de destino inválida");
+                }
+                Conta destino = contaDoLote(contas, operacao.idContaDestino());
+                validarTransacao(conta, TipoTransacao.TRANSFERENCIA_ENVIADA, valor);
+                validarTransacao(destino, TipoTransacao.TRANSFERENCIA_RECEBIDA, valor);
+                conta.setSaldo(conta.getSaldo().subtract(valor));
+                destino.setSaldo(destino.getSaldo().add(valor));
+                adicionar(novas, new Transacao(conta, valor, TipoTransacao.TRANSFERENCIA_ENVIADA));
+                return adicionar(novas, new Transacao(destino, valor, TipoTransacao.TRANSFERENCIA_RECEBIDA));
+
+            default:
+                throw new RuntimeException("Tipo de operação não suportado no lote");
+        }
+    }
+
+    private Conta contaDoLote(Map<Integer, Conta> contas, int idConta) {
+        Conta conta = contas.get(idConta);
+        if (conta == null) {
+            throw new EntityNotFoundException("Conta não encontrada");
+        }
+        return conta;
+    }
+
+    private Transacao adicionar(List<Transacao> novas, Transacao transacao) {
+        novas.add(transacao);
+        return transacao;
+    }
+
+    // Atualiza as contas na ordem do id, como no modo pessimista; se a segunda falhar, a primeira é desfeita
+    private Transacao transferenciaAtomica(int idContaEnvia, int idContaRecebe, BigDecimal valor) {
+        if (idContaEnvia < idContaRecebe) {
+            debitarTransferencia(idContaEnvia, valor);
+            creditarTransferencia(idContaRecebe, valor);
+        } else {
+            creditarTransferencia(idContaRecebe, valor);
+            debitarTransferencia(idContaEnvia, valor);
+        }
+        criar(new Transacao(contaRepository.getReferenceById(idContaEnvia), valor,
+                TipoTransacao.TRANSFERENCIA_ENVIADA));
+        return criar(new Transacao(contaRepository.getReferenceById(idContaRecebe), valor,
+                TipoTransacao.TRANSFERENCIA_RECEBIDA));
+    }
+
+    private void debitarTransferencia(int idConta, BigDecimal valor) {
+        if (contaRepository.debitar(idConta, valor) == 0) {
+            recusar(idConta, TipoTransacao.TRANSFERENCIA_ENVIADA, valor, "Não foi possível realizar transação");
+        }
+    }
+
+    private void creditarTransferencia(int idConta, BigDecimal valor) {
+        if (contaRepository.creditar(idConta, valor) == 0) {
+            recusar(idConta, TipoTransacao.TRANSFERENCIA_RECEBIDA, valor, "Não foi possível realizar transação");
+        }
+    }
+
+    // Só roda quando o UPDATE atômico não afetou nenhuma linha: relê a conta para dizer o motivo
+    private void recusar(int idConta, TipoTransacao tipoTransacao, BigDecimal valor, String mensagem) {
+        validarTransacao(contaService.acharPorId(idConta), tipoTransacao, valor);
+        throw new RuntimeException(mensagem);
+    }
+
+    // Tempo de cada operação por resultado (sucesso, recusada, erro) e motivo da recusa
+    private <T> T medir(String operacao, Supplier<T> movimentacao) {
+        Timer.Sample amostra = Timer.start(meterRegistry);
+        String resultado = "sucesso";
+        String motivo = "nenhum";
+        try {
+            return movimentacao.get();
+        } catch (MovimentacaoRecusadaException e) {
+            resultado = "recusada";
+            motivo = e.getMotivo();
+            contarRecusa(e);
+            throw e;
+        } catch (RuntimeException e) {
+            resultado = "erro";
+            motivo = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            amostra.stop(meterRegistry.timer("apidemo.transacoes", "operacao", operacao, "resultado", resultado,
+                    "motivo", motivo));
+        }
+    }
+
+    private void contarRecusa(MovimentacaoRecusadaException e) {
+        meterRegistry.counter("apidemo.transacoes.recusadas", "tipo", e.getTipoTransacao().name(), "motivo",
+                e.getMotivo()).increment();
+    }
+
+    // Executa a movimentação numa transação; no modo otimista, repete em caso de conflito de versão
+    private <T> T executar(Supplier<T> operacao) {
+        if (modoConcorrencia != ModoConcorrencia.OTIMISTA) {
+            return transactionTemplate.execute(status -> operacao.get());
+        }
+        for (int tentativa = 1;; tentativa++) {
+            try {
+                return transactionTemplate.execute(status -> operacao.get());
+            } catch (OptimisticLockingFailureException e) {
+                if (tentativa >= tentativasOtimistas) {
+                    throw e;
+                }
+                aguardarNovaTentativa(tentativa);
+            }
+        }
+    }
+
+    // Com Idempotency-Key: uma chave já registrada devolve a primeira resposta sem tocar na conta.
+    // A chave é gravada na transação da movimentação; se outra requisição com a mesma chave
+    // gravar antes, esta é desfeita pela chave primária e devolve a resposta da outra.
+    private TransacaoDTO executarIdempotente(String chave, String operacao, Supplier<Transacao> movimentacao,
+            Function<Idempotencia, Transacao> noMotor) {
+        if (modoConcorrencia == ModoConcorrencia.PARTICIONADO) {
+            return executarNoMotor(chave, operacao, noMotor);
+        }
+        if (chave == null) {
+            return TransacaoDTO.of(executar(movimentacao));
+        }
+        idempotenciaService.validarChave(chave);
+        Optional<TransacaoDTO> anterior = idempotenciaService.buscar(chave, operacao);
+        if (anterior.isPresent()) {
+            return anterior.get();
+        }
+        try {
+            return executar(() -> {
+                TransacaoDTO resposta = TransacaoDTO.of(movimentacao.get());
+                idempotenciaService.registrar(chave, operacao, resposta);
+                return resposta;
+            });
+        } catch (DataIntegrityViolationException e) {
+            return idempotenciaService.buscar(chave, operacao).orElseThrow(() -> e);
+        }
+    }
+
+    // No motor a chave é gravada pelo gravador, no mesmo commit da movimentação. Repetições
+    // concorrentes na mesma instância esperam a primeira em vez de competir pela chave primária.
+    private TransacaoDTO executarNoMotor(String chave, String operacao, Function<Idempotencia, Transacao> movimentacao) {
+        if (chave == null) {
+            return TransacaoDTO.of(movimentacao.apply(null));
+        }
+        idempotenciaService.validarChave(chave);
+        Optional<TransacaoDTO> anterior = idempotenciaService.buscar(chave, operacao);
+        if (anterior.isPresent()) {
+            return anterior.get();
+        }
+        try {
+            return motorSaldos.executarUmaVez(chave,
+                    () -> TransacaoDTO.of(movimentacao.apply(new Idempotencia(chave, operacao))),
+                    () -> executarNoMotor(chave, operacao, movimentacao));
+        } catch (DataIntegrityViolationException e) {
+            return idempotenciaService.buscar(chave, operacao).orElseThrow(() -> e);
+        }
+    }
+
+    // Valor como texto estável para comparar a operação repetida com a original
+    private static String texto(BigDecimal valor) {
+        return valor.stripTrailingZeros().toPlainString();
+    }
+
+    // Espera curta e aleatória para que as tentativas concorrentes não colidam de novo
+    private void aguardarNovaTentativa(int tentativa) {
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(1, 2L << Math.min(tentativa, 6)));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Movimentação interrompida", e);
+        }
+    }
+
+    private Conta carregarConta(int idConta) {
+        if (modoConcorrencia == ModoConcorrencia.PESSIMISTA) {
+            return contaRepository.findByIdParaAtualizar(idConta)
+                    .orElseThrow(() -> new EntityNotFoundException("Conta não encontrada"));
+        }
+        return contaService.acharPorId(idConta);
+    }
+
     // valida se a conta está bloqueada ou não
     // valida limite diario, se há uma um saque no dia subtrai do limite diario
     // valida se há saldo suficiente
     // valida a conta que irá enviar a transferência
     public Boolean validarTransacao(Conta conta, TipoTransacao tipoTransacao, BigDecimal valor) {
         if (conta.getFlagAtivo() == false) {
-            throw new RuntimeException("Conta bloqueada");
+            throw new ContaBloqueadaException(tipoTransacao);
         }
 
+        // Comparações em centavos (long), sem criar BigDecimal intermediário
+        long centavos = Dinheiro.centavos(valor);
         switch (tipoTransacao) {
 
             // checar limite e se há dinheiro suficiente
             case SAQUE:
-                if (valor.compareTo(conta.getSaldo()) > 0) {
-                    throw new RuntimeException("Valor maior que saldo");
+                if (centavos > Dinheiro.centavos(conta.getSaldo())) {
+                    throw new SaldoInsuficienteException(tipoTransacao);
                 }
 
-                BigDecimal totalSaquesHoje = transacaoRepository.totalSaquesDoDia(conta.getIdConta());
-                if (totalSaquesHoje.add(valor).compareTo(conta.getLimiteSaqueDiario()) > 0) {
-                    throw new RuntimeException("Limite de saque diário excedido");
+                long totalSaquesHoje = Dinheiro.centavos(conta.totalSaquesDoDia(LocalDate.now()));
+                if (totalSaquesHoje + centavos > Dinheiro.centavos(conta.getLimiteSaqueDiario())) {
+                    throw new LimiteDiarioExcedidoException(tipoTransacao);
                 }
                 break;
 
             case TRANSFERENCIA_ENVIADA:
-                if (valor.compareTo(conta.getSaldo()) > 0) {
-                    throw new RuntimeException("Valor maior que saldo");
+                if (centavos > Dinheiro.centavos(conta.getSaldo())) {
+                    throw new SaldoInsuficienteException(tipoTransacao);
                 }
                 break;
 
@@ -108,18 +573,91 @@ public class TransacaoService {
         return true;
     }
 
-    public List<Transacao> listar() {
-        return transacaoRepository.findAll();
+    // Reconstrói o acumulado de saques do dia a partir do histórico (ex.: após uma queda)
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfig.CONTAS, key = "#idConta")
+    public ContaDTO recalcularSaqueDiario(int idConta) {
+        Conta conta = contaService.acharPorId(idConta);
+        LocalDate hoje = LocalDate.now();
+        conta.definirSaqueDiario(transacaoRepository.totalSaquesDoDia(idConta, hoje), hoje);
+        motorSaldos.descartar(idConta);
+        return ContaDTO.of(conta);
     }
 
-    public Transacao acharPorId(int id) {
-        var transacaoExistente = transacaoRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException("Transacao não encontrada"));
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfig.CONTAS, allEntries = true)
+    public int recalcularSaquesDiarios() {
+        LocalDate hoje = LocalDate.now();
+        motorSaldos.descartarTodas();
+        return contaRepository.recalcularSaquesDiarios(hoje.atStartOfDay(), hoje.plusDays(1).atStartOfDay(), hoje);
+    }
 
-        Transacao transacao = new Transacao();
-        BeanUtils.copyProperties(transacaoExistente, transacao);
+    @Transactional(readOnly = true)
+    public List<TransacaoDTO> listar(int after, Integer limit) {
+        return transacaoRepository.listarDTO(after, paginacao.limite(limit));
+    }
 
-        return transacao;
+    // Extrato da conta entre as datas (inclusive), do mais recente para o mais antigo.
+    // O cursor é "<dataTransacao>_<idTransacao>" do último item da página anterior.
+    @Transactional(readOnly = true)
+    public ExtratoPagina extrato(int idConta, LocalDate de, LocalDate ate, TipoTransacao tipo, Integer limit,
+            String cursor) {
+        if (!contaRepository.existsById(idConta)) {
+            throw new EntityNotFoundException("Conta não encontrada");
+        }
+        LocalDateTime inicio = de != null ? de.atStartOfDay() : INICIO_EXTRATO;
+        LocalDateTime cursorData = ate != null ? ate.plusDays(1).atStartOfDay() : FIM_EXTRATO;
+        int cursorId = Integer.MIN_VALUE;
+        if (cursor != null && !cursor.isBlank()) {
+            int separador = cursor.lastIndexOf('_');
+            try {
+                cursorData = LocalDateTime.parse(cursor.substring(0, separador));
+                cursorId = Integer.parseInt(cursor.substring(separador + 1));
+            } catch (RuntimeException e) {
+                throw new RuntimeException("Cursor inválido");
+            }
+        }
+
+        Limit limite = paginacao.limite(limit);
+        List<ExtratoItem> itens = tipo == null
+                ? transacaoRepository.extrato(idConta, inicio, cursorData, cursorId, limite)
+                : transacaoRepository.extratoPorTipo(idConta, tipo, inicio, cursorData, cursorId, limite);
+
+        String proximoCursor = null;
+        if (itens.size() == limite.max()) {
+            ExtratoItem ultimo = itens.get(itens.size() - 1);
+            proximoCursor = ultimo.dataTransacao() + "_" + ultimo.idTransacao();
+        }
+        return new ExtratoPagina(itens, proximoCursor);
+    }
+
+    // Escreve todas as transações como um array JSON, linha a linha. As linhas são projeções,
+    // não entidades gerenciadas, então a memória não cresce com o tamanho da tabela.
+    @Transactional(readOnly = true)
+    public void escreverTodas(OutputStream saida) throws IOException {
+        try (Stream<TransacaoDTO> transacoes = transacaoRepository.streamTodas();
+                JsonGenerator gerador = objectMapper.createGenerator(saida)) {
+            gerador.writeStartArray();
+            int escritas = 0;
+            for (TransacaoDTO transacao : (Iterable<TransacaoDTO>) transacoes::iterator) {
+                gerador.writeObject(transacao);
+                if (++escritas % 500 == 0) {
+                    gerador.flush();
+                }
+            }
+            gerador.writeEndArray();
+        }
+    }
+
+    // Na gravação assíncrona a transação já confirmada pode estar só em transacoes_pendentes. A busca
+    // começa por lá: a linha só passa de uma tabela para a outra nesse sentido
+    @Transactional(readOnly = true)
+    public TransacaoDTO acharPorId(int id) {
+        Optional<TransacaoDTO> pendente = modoGravacao == ModoGravacao.ASSINCRONA
+                ? diarioTransacoes.buscarPendente(id)
+                : Optional.empty();
+        return pendente.or(() -> transacaoRepository.buscarDTO(id))
+                .orElseThrow(() -> new EntityNotFoundException("Transacao não encontrada"));
     }
 
     public void deletar(int id) {
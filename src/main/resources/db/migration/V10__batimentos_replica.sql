@@ -0,0 +1,7 @@
+-- Batimento gravado no primário por MonitorReplica para medir o atraso da réplica de leitura.
+-- IF NOT EXISTS: versões anteriores da API criavam a tabela na subida
+CREATE TABLE IF NOT EXISTS batimentos_replica (
+    id INTEGER NOT NULL,
+    instante BIGINT NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE=InnoDB;
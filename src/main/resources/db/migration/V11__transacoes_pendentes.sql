@@ -0,0 +1,10 @@
+-- Gravação assíncrona: a transação aceita fica aqui, gravada no mesmo commit da conta, até a thread
+-- de DiarioTransacoes inseri-la em transacoes. Substitui o diário em arquivo.
+CREATE TABLE transacoes_pendentes (
+    id_transacao INTEGER NOT NULL,
+    id_conta INTEGER NOT NULL,
+    valor DECIMAL(15,2) NOT NULL,
+    tipo_transacao ENUM ('DEPOSITO','SAQUE','TRANSFERENCIA_ENVIADA','TRANSFERENCIA_RECEBIDA') NOT NULL,
+    data_transacao DATETIME(6) NOT NULL,
+    PRIMARY KEY (id_transacao)
+) ENGINE=InnoDB;
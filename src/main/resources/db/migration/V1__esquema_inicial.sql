@@ -0,0 +1,34 @@
+-- Esquema como o ddl-auto=update o deixava antes das migrações: ids por AUTO_INCREMENT e só as
+-- colunas originais. Bancos já existentes entram nesta versão pelo baseline
+-- (spring.flyway.baseline-on-migrate) e recebem as migrações seguintes.
+
+CREATE TABLE pessoas (
+    id_pessoa INTEGER NOT NULL AUTO_INCREMENT,
+    cpf VARCHAR(11) NOT NULL,
+    data_nascimento DATE NOT NULL,
+    nome VARCHAR(255) NOT NULL,
+    PRIMARY KEY (id_pessoa),
+    CONSTRAINT UKc7pqbmo6e96slvonilywsb8oe UNIQUE (cpf)
+) ENGINE=InnoDB;
+
+CREATE TABLE contas (
+    id_conta INTEGER NOT NULL AUTO_INCREMENT,
+    data_criacao DATETIME(6),
+    flag_ativo BIT NOT NULL,
+    id_pessoa INTEGER NOT NULL,
+    limite_saque_diario DECIMAL(15,2) NOT NULL,
+    saldo DECIMAL(15,2) NOT NULL,
+    tipo_conta INTEGER NOT NULL,
+    PRIMARY KEY (id_conta),
+    CONSTRAINT FKhe5cjiel7g0899m8nhdklk1o6 FOREIGN KEY (id_pessoa) REFERENCES pessoas (id_pessoa)
+) ENGINE=InnoDB;
+
+CREATE TABLE transacoes (
+    id_transacao INTEGER NOT NULL AUTO_INCREMENT,
+    data_transacao DATETIME(6),
+    id_conta INTEGER NOT NULL,
+    tipo_transacao ENUM ('DEPOSITO','SAQUE','TRANSFERENCIA_ENVIADA','TRANSFERENCIA_RECEBIDA') NOT NULL,
+    valor DECIMAL(15,2) NOT NULL,
+    PRIMARY KEY (id_transacao),
+    CONSTRAINT FKg2vq8axujqynj50txh49lda0y FOREIGN KEY (id_conta) REFERENCES contas (id_conta)
+) ENGINE=InnoDB;
@@ -0,0 +1,5 @@
+-- Acumulado de saques do dia na própria conta e versão para a concorrência OTIMISTA
+ALTER TABLE contas
+    ADD COLUMN saque_diario_acumulado DECIMAL(15,2) DEFAULT 0 NOT NULL,
+    ADD COLUMN data_saque_diario DATE,
+    ADD COLUMN versao BIGINT DEFAULT 0 NOT NULL;
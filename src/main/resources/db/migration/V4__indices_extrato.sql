@@ -0,0 +1,3 @@
+-- Extrato por período/tipo e soma dos saques do dia
+CREATE INDEX idx_transacoes_conta_data ON transacoes (id_conta, data_transacao);
+CREATE INDEX idx_transacoes_conta_tipo_data ON transacoes (id_conta, tipo_transacao, data_transacao);
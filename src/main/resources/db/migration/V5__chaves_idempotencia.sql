@@ -0,0 +1,10 @@
+-- Primeira resposta de cada Idempotency-Key (saque, deposito e transferencia)
+CREATE TABLE chaves_idempotencia (
+    chave VARCHAR(100) NOT NULL,
+    operacao VARCHAR(100) NOT NULL,
+    id_transacao INTEGER NOT NULL,
+    data_criacao DATETIME(6) NOT NULL,
+    PRIMARY KEY (chave)
+) ENGINE=InnoDB;
+
+CREATE INDEX idx_chaves_idempotencia_data ON chaves_idempotencia (data_criacao);
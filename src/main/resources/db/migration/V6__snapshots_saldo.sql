@@ -0,0 +1,14 @@
+-- Snapshots de saldo da conciliação incremental e as transações da conta depois de um id
+CREATE SEQUENCE snapshots_saldo_seq START WITH 1 INCREMENT BY 50 NOCACHE;
+
+CREATE TABLE snapshots_saldo (
+    id_snapshot BIGINT NOT NULL,
+    id_conta INTEGER NOT NULL,
+    id_ultima_transacao INTEGER NOT NULL,
+    saldo DECIMAL(15,2) NOT NULL,
+    data_snapshot DATETIME(6) NOT NULL,
+    PRIMARY KEY (id_snapshot)
+) ENGINE=InnoDB;
+
+CREATE INDEX idx_snapshots_saldo_conta ON snapshots_saldo (id_conta, id_ultima_transacao);
+CREATE INDEX idx_transacoes_conta_id ON transacoes (id_conta, id_transacao);
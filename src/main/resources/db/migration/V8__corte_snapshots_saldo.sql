@@ -0,0 +1,12 @@
+-- Snapshots de saldo passam a valer até uma data de corte em vez de um id de transação: com
+-- sequências em blocos (várias instâncias, API reativa) os ids não seguem a ordem de commit.
+-- Os snapshots antigos não dizem quais transações somaram e são descartados; a próxima
+-- conciliação grava uma nova base para cada conta.
+DELETE FROM snapshots_saldo;
+
+ALTER TABLE snapshots_saldo
+    DROP INDEX idx_snapshots_saldo_conta,
+    DROP COLUMN id_ultima_transacao,
+    ADD COLUMN data_corte DATETIME(6) NOT NULL AFTER id_conta;
+
+CREATE INDEX idx_snapshots_saldo_conta ON snapshots_saldo (id_conta, data_corte);
@@ -0,0 +1,3 @@
+-- A conciliação e o reenvio dos streams partem de uma data, não mais de um id de transação, e usam
+-- idx_transacoes_conta_data
+DROP INDEX idx_transacoes_conta_id ON transacoes;
@@ -33,14 +33,14 @@ const ContaDetails = () => {
   const carregarDados = async () => {
     try {
       setLoading(true);
-      const [contaResponse, transacoesResponse, contasResponse] = await Promise.all([
+      const [contaResponse, extratoResponse, contasResponse] = await Promise.all([
         contaService.buscarPorId(id),
-        transacaoService.listar(),
+        contaService.extrato(id, { limit: 1000 }),
         contaService.listar()
       ]);
       
       setConta(contaResponse.data);
-      setTransacoes(transacoesResponse.data.filter(t => t.conta.idConta === parseInt(id)));
+      setTransacoes(extratoResponse.data.itens);
       setContas(contasResponse.data.filter(c => c.idConta !== parseInt(id)));
       setError('');
     } catch (err) {
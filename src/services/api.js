@@ -35,6 +35,7 @@ export const contaService = {
   criar: (conta) => api.post('/contas/criar', conta),
   atualizar: (id, conta) => api.put(`/contas/atualizar/${id}`, conta),
   deletar: (id) => api.delete(`/contas/deletar/${id}`),
+  extrato: (id, params) => api.get(`/contas/${id}/extrato`, { params }),
 };
 
 // Serviços para Transações
@@ -0,0 +1,172 @@
+package village.sillicon.apidemo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import village.sillicon.apidemo.models.Conta;
+import village.sillicon.apidemo.models.Pessoa;
+import village.sillicon.apidemo.models.Transacao.TipoTransacao;
+import village.sillicon.apidemo.reativo.ServidorReativo;
+import village.sillicon.apidemo.repositories.ContaRepository;
+import village.sillicon.apidemo.repositories.PessoaRepository;
+import village.sillicon.apidemo.repositories.TransacaoRepository;
+import village.sillicon.apidemo.services.ContaService;
+import village.sillicon.apidemo.services.IdempotenciaService;
+import village.sillicon.apidemo.services.TransacaoService;
+
+// A API reativa e o JPA usam o mesmo H2 na memória: um pelo R2DBC, o outro pelo JDBC
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:db_reativo;MODE=MariaDB;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000",
+		"apidemo.reativo.url=r2dbc:h2:mem:///db_reativo?options=MODE=MariaDB;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000",
+		"apidemo.reativo.porta=0"
+})
+class ApiReativaTests {
+
+	@Autowired
+	private ServidorReativo servidorReativo;
+	@Autowired
+	private TransacaoService transacaoService;
+	@Autowired
+	private ContaService contaService;
+	@Autowired
+	private TransacaoRepository transacaoRepository;
+	@Autowired
+	private ContaRepository contaRepository;
+	@Autowired
+	private PessoaRepository pessoaRepository;
+
+	private WebTestClient cliente;
+	private Pessoa pessoa;
+
+	@BeforeEach
+	void limpar() {
+		transacaoRepository.deleteAll();
+		contaRepository.deleteAll();
+		pessoaRepository.deleteAll();
+		pessoa = pessoaRepository.save(new Pessoa("Maria", "12345678901", LocalDate.of(1990, 1, 1)));
+		cliente = WebTestClient.bindToServer().baseUrl("http://localhost:" + servidorReativo.porta()).build();
+	}
+
+	private Conta novaConta(String saldo, boolean ativa) {
+		return contaRepository.save(new Conta(pessoa, new BigDecimal(saldo), new BigDecimal("300.00"), ativa, 1));
+	}
+
+	private BigDecimal saldo(Conta conta) {
+		return contaRepository.findById(conta.getIdConta()).orElseThrow().getSaldo();
+	}
+
+	@Test
+	void movimentacoesReativasEServletUsamAsMesmasContas() {
+		Conta conta = novaConta("100.00", true);
+
+		cliente.post().uri("/transacoes/deposito/{id}/10", conta.getIdConta()).exchange()
+				.expectStatus().isOk()
+				.expectBody().jsonPath("$.idConta").isEqualTo(conta.getIdConta())
+				.jsonPath("$.tipoTransacao").isEqualTo("DEPOSITO");
+		// pela API servlet, com ids da mesma sequência
+		transacaoService.deposito(conta.getIdConta(), BigDecimal.ONE);
+		cliente.post().uri("/transacoes/saque/{id}/20,50", conta.getIdConta()).exchange()
+				.expectStatus().isOk()
+				.expectBody().jsonPath("$.valor").isEqualTo(20.5);
+
+		assertEquals(0, new BigDecimal("90.50").compareTo(saldo(conta)));
+		assertEquals(0, new BigDecimal("20.50").compareTo(
+				contaRepository.findById(conta.getIdConta()).orElseThrow().getSaqueDiarioAcumulado()));
+		assertEquals(3, transacaoRepository.count());
+		cliente.get().uri("/transacoes/listar").exchange()
+				.expectStatus().isOk()
+				.expectBody().jsonPath("$.length()").isEqualTo(3);
+	}
+
+	@Test
+	void recusasSeguemAsRegrasDoTransacaoService() {
+		Conta bloqueada = novaConta("100.00", false);
+		Conta conta = novaConta("1000.00", true);
+
+		cliente.post().uri("/transacoes/deposito/{id}/10", bloqueada.getIdConta()).exchange()
+				.expectStatus().is5xxServerError()
+				.expectBody().jsonPath("$.erro").isEqualTo("Conta bloqueada");
+		cliente.post().uri("/transacoes/saque/{id}/2000", conta.getIdConta()).exchange()
+				.expectStatus().is5xxServerError()
+				.expectBody().jsonPath("$.erro").isEqualTo("Valor maior que saldo");
+		cliente.post().uri("/transacoes/saque/{id}/301", conta.getIdConta()).exchange()
+				.expectStatus().is5xxServerError()
+				.expectBody().jsonPath("$.erro").isEqualTo("Limite de saque diário excedido");
+		cliente.get().uri("/contas/buscarPorId/999999").exchange()
+				.expectStatus().is5xxServerError()
+				.expectBody().jsonPath("$.erro").isEqualTo("Conta não encontrada");
+
+		assertEquals(0, transacaoRepository.count());
+		assertEquals(0, new BigDecimal("1000.00").compareTo(saldo(conta)));
+	}
+
+	@Test
+	void transferenciaRecusadaNoDestinoDesfazODebito() {
+		Conta envia = novaConta("100.00", true);
+		Conta recebe = novaConta("0.00", true);
+		Conta bloqueada = novaConta("0.00", false);
+
+		cliente.post().uri("/transacoes/transferencia/{idRecebe}/{idEnvia}/40", recebe.getIdConta(), envia.getIdConta())
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody().jsonPath("$.tipoTransacao").isEqualTo("TRANSFERENCIA_RECEBIDA");
+		cliente.post().uri("/transacoes/transferencia/{idRecebe}/{idEnvia}/40", bloqueada.getIdConta(),
+				envia.getIdConta()).exchange()
+				.expectStatus().is5xxServerError();
+
+		assertEquals(0, new BigDecimal("60.00").compareTo(saldo(envia)));
+		assertEquals(0, new BigDecimal("40.00").compareTo(saldo(recebe)));
+		assertEquals(2, transacaoRepository.count());
+	}
+
+	@Test
+	void transferenciaSemSaldoNaoGravaAPernaRecebida() {
+		Conta envia = novaConta("10.00", true);
+		Conta recebe = novaConta("0.00", true);
+
+		cliente.post().uri("/transacoes/transferencia/{idRecebe}/{idEnvia}/40", recebe.getIdConta(), envia.getIdConta())
+				.exchange()
+				.expectStatus().is5xxServerError();
+
+		assertEquals(0, new BigDecimal("10.00").compareTo(saldo(envia)));
+		assertEquals(0, new BigDecimal("0.00").compareTo(saldo(recebe)));
+		assertFalse(transacaoRepository.findAll().stream()
+				.anyMatch(transacao -> transacao.getTipoTransacao() == TipoTransacao.TRANSFERENCIA_RECEBIDA));
+	}
+
+	@Test
+	void movimentacaoReativaTiraAContaDosCaches() {
+		Conta conta = novaConta("100.00", true);
+		// preenche o cache da API servlet
+		contaService.buscarPorId(conta.getIdConta());
+		saldo(conta);
+
+		cliente.post().uri("/transacoes/deposito/{id}/5", conta.getIdConta()).exchange().expectStatus().isOk();
+
+		assertEquals(0, new BigDecimal("105.00").compareTo(contaService.buscarPorId(conta.getIdConta()).saldo()));
+		assertEquals(0, new BigDecimal("105.00").compareTo(saldo(conta)));
+		cliente.get().uri("/contas/buscarPorId/{id}", conta.getIdConta()).exchange()
+				.expectStatus().isOk()
+				.expectBody().jsonPath("$.saldo").isEqualTo(105.0)
+				.jsonPath("$.pessoa.nome").isEqualTo("Maria");
+	}
+
+	@Test
+	void idempotencyKeyNaoEAceita() {
+		Conta conta = novaConta("100.00", true);
+
+		cliente.post().uri("/transacoes/saque/{id}/10", conta.getIdConta())
+				.header(IdempotenciaService.CABECALHO, "chave-reativa").exchange()
+				.expectStatus().isBadRequest();
+		assertEquals(0, transacaoRepository.count());
+	}
+}
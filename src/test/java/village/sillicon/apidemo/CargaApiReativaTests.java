@@ -0,0 +1,95 @@
+package village.sillicon.apidemo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import village.sillicon.apidemo.models.Conta;
+import village.sillicon.apidemo.models.Pessoa;
+import village.sillicon.apidemo.reativo.ServidorReativo;
+import village.sillicon.apidemo.repositories.ContaRepository;
+import village.sillicon.apidemo.repositories.PessoaRepository;
+
+// Compara a API servlet (threads virtuais + JPA) com a reativa (WebFlux + R2DBC) na mesma aplicação,
+// com as mesmas contas e a mesma mistura de consultas de saldo (sem cache) e depósitos.
+// Roda só com "mvn test -Pcarga"; para números representativos, aponte as duas para um MariaDB real
+// com -Dspring.datasource.url=... e -Dapidemo.reativo.url=r2dbc:mariadb://...
+@Tag("carga")
+class CargaApiReativaTests {
+
+	private static final int CLIENTES = 400;
+	private static final int REQUISICOES = 10_000;
+
+	@Test
+	void comparaPilhaServletEReativa() throws Exception {
+		try (ConfigurableApplicationContext app = new SpringApplicationBuilder(ApidemoApplication.class)
+				.properties("server.port=0",
+						"apidemo.reativo.porta=0",
+						// o mesmo H2 de src/test/resources/application.properties
+						"apidemo.reativo.url=r2dbc:h2:mem:///db_desafio?options=MODE=MariaDB;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000")
+				.run()) {
+			int portaServlet = app.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+			int portaReativa = app.getBean(ServidorReativo.class).porta();
+			Pessoa pessoa = app.getBean(PessoaRepository.class)
+					.save(new Pessoa("Carga", "99999999998", LocalDate.of(1990, 1, 1)));
+			List<Integer> contas = new ArrayList<>();
+			for (int i = 0; i < 50; i++) {
+				contas.add(app.getBean(ContaRepository.class)
+						.save(new Conta(pessoa, new BigDecimal("1000.00"), new BigDecimal("1000.00"), true, 1))
+						.getIdConta());
+			}
+
+			Resultado servlet = medir(portaServlet, contas);
+			Resultado reativa = medir(portaReativa, contas);
+			System.out.printf("API servlet: %.0f req/s, %d recusadas com 503%n", servlet.vazao(), servlet.ocupado());
+			System.out.printf("API reativa: %.0f req/s, %d recusadas com 503%n", reativa.vazao(), reativa.ocupado());
+		}
+	}
+
+	// 503 é a resposta esperada quando o banco está no limite (LimiteBancoFilter ou pool do R2DBC)
+	private record Resultado(double vazao, int ocupado) {
+	}
+
+	private Resultado medir(int porta, List<Integer> contas) throws Exception {
+		HttpClient cliente = HttpClient.newBuilder().executor(Executors.newVirtualThreadPerTaskExecutor()).build();
+		try (ExecutorService executor = Executors.newFixedThreadPool(CLIENTES)) {
+			long inicio = System.nanoTime();
+			List<Future<Integer>> respostas = new ArrayList<>(REQUISICOES);
+			for (int i = 0; i < REQUISICOES; i++) {
+				int idConta = contas.get(i % contas.size());
+				String caminho = i % 4 == 0
+						? "/transacoes/deposito/" + idConta + "/1"
+						: "/contas/buscarPorId/" + idConta + "?consistente=true";
+				HttpRequest requisicao = HttpRequest.newBuilder(URI.create("http://localhost:" + porta + caminho))
+						.method(i % 4 == 0 ? "POST" : "GET", HttpRequest.BodyPublishers.noBody())
+						.build();
+				respostas.add(executor.submit(
+						() -> cliente.send(requisicao, HttpResponse.BodyHandlers.discarding()).statusCode()));
+			}
+			int sucesso = 0;
+			int ocupado = 0;
+			for (Future<Integer> resposta : respostas) {
+				sucesso += resposta.get() == 200 ? 1 : 0;
+				ocupado += resposta.get() == 503 ? 1 : 0;
+			}
+			double segundos = (System.nanoTime() - inicio) / 1e9;
+			assertEquals(REQUISICOES, sucesso + ocupado);
+			return new Resultado(sucesso / segundos, ocupado);
+		}
+	}
+}
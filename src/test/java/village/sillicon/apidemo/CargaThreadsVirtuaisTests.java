@@ -0,0 +1,87 @@
+package village.sillicon.apidemo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import village.sillicon.apidemo.models.Conta;
+import village.sillicon.apidemo.models.Pessoa;
+import village.sillicon.apidemo.repositories.ContaRepository;
+import village.sillicon.apidemo.repositories.PessoaRepository;
+
+// Compara a vazão da API com threads de plataforma e com threads virtuais.
+// Roda só com "mvn test -Pcarga"; para números representativos, aponte para um MariaDB real
+// com -Dspring.datasource.url=... (em H2 na memória quase não há espera de I/O).
+@Tag("carga")
+class CargaThreadsVirtuaisTests {
+
+	private static final int CLIENTES = 400;
+	private static final int REQUISICOES = 10_000;
+
+	@Test
+	void comparaThreadsDePlataformaEVirtuais() throws Exception {
+		double plataforma = medir(false);
+		double virtuais = medir(true);
+		System.out.printf("Vazão com threads de plataforma: %.0f req/s%n", plataforma);
+		System.out.printf("Vazão com threads virtuais:      %.0f req/s%n", virtuais);
+	}
+
+	private double medir(boolean threadsVirtuais) throws Exception {
+		try (ConfigurableApplicationContext app = new SpringApplicationBuilder(ApidemoApplication.class)
+				.properties("server.port=0",
+						"spring.threads.virtual.enabled=" + threadsVirtuais,
+						"server.tomcat.threads.max=50",
+						"spring.datasource.url=jdbc:h2:mem:carga" + threadsVirtuais
+								+ ";MODE=MariaDB;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000")
+				.run()) {
+			int porta = app.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+			Pessoa pessoa = app.getBean(PessoaRepository.class)
+					.save(new Pessoa("Carga", "99999999999", LocalDate.of(1990, 1, 1)));
+			List<Integer> contas = new ArrayList<>();
+			for (int i = 0; i < 50; i++) {
+				contas.add(app.getBean(ContaRepository.class)
+						.save(new Conta(pessoa, new BigDecimal("1000.00"), new BigDecimal("1000.00"), true, 1))
+						.getIdConta());
+			}
+
+			HttpClient cliente = HttpClient.newBuilder().executor(Executors.newVirtualThreadPerTaskExecutor()).build();
+			try (ExecutorService executor = Executors.newFixedThreadPool(CLIENTES)) {
+				long inicio = System.nanoTime();
+				List<Future<Integer>> respostas = new ArrayList<>(REQUISICOES);
+				for (int i = 0; i < REQUISICOES; i++) {
+					int idConta = contas.get(i % contas.size());
+					String caminho = i % 4 == 0
+							? "/transacoes/deposito/" + idConta + "/1"
+							: "/contas/buscarPorId/" + idConta + "?consistente=true";
+					HttpRequest requisicao = HttpRequest.newBuilder(URI.create("http://localhost:" + porta + caminho))
+							.method(i % 4 == 0 ? "POST" : "GET", HttpRequest.BodyPublishers.noBody())
+							.build();
+					respostas.add(executor.submit(
+							() -> cliente.send(requisicao, HttpResponse.BodyHandlers.discarding()).statusCode()));
+				}
+				int sucesso = 0;
+				for (Future<Integer> resposta : respostas) {
+					sucesso += resposta.get() == 200 ? 1 : 0;
+				}
+				double segundos = (System.nanoTime() - inicio) / 1e9;
+				assertEquals(REQUISICOES, sucesso);
+				return REQUISICOES / segundos;
+			}
+		}
+	}
+}
@@ -0,0 +1,155 @@
+package village.sillicon.apidemo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import village.sillicon.apidemo.dtos.ResultadoConciliacao;
+import village.sillicon.apidemo.models.Conta;
+import village.sillicon.apidemo.models.Pessoa;
+import village.sillicon.apidemo.repositories.ContaRepository;
+import village.sillicon.apidemo.repositories.PessoaRepository;
+import village.sillicon.apidemo.repositories.SnapshotSaldoRepository;
+import village.sillicon.apidemo.repositories.TransacaoRepository;
+import village.sillicon.apidemo.services.ConciliacaoService;
+import village.sillicon.apidemo.services.TransacaoService;
+
+// Lotes de 2 contas em 3 threads para exercitar a divisão em lotes com poucas contas. Sem janela de
+// segurança, para que as transações do teste já entrem no snapshot
+@SpringBootTest(properties = { "apidemo.conciliacao.lote=2", "apidemo.conciliacao.threads=3",
+		"apidemo.conciliacao.janela-seguranca=0s" })
+class ConciliacaoServiceTests {
+
+	@Autowired
+	private ConciliacaoService conciliacaoService;
+	@Autowired
+	private TransacaoService transacaoService;
+	@Autowired
+	private SnapshotSaldoRepository snapshotSaldoRepository;
+	@Autowired
+	private TransacaoRepository transacaoRepository;
+	@Autowired
+	private ContaRepository contaRepository;
+	@Autowired
+	private PessoaRepository pessoaRepository;
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private List<Conta> contas;
+
+	@BeforeEach
+	void criarContas() {
+		snapshotSaldoRepository.deleteAll();
+		jdbcTemplate.update("DELETE FROM transacoes_arquivo");
+		transacaoRepository.deleteAll();
+		contaRepository.deleteAll();
+		pessoaRepository.deleteAll();
+		Pessoa pessoa = pessoaRepository.save(new Pessoa("Maria", "12345678901", LocalDate.of(1990, 1, 1)));
+		contas = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			contas.add(contaRepository.save(
+					new Conta(pessoa, new BigDecimal("100.00"), new BigDecimal("300.00"), true, 1)));
+		}
+	}
+
+	@Test
+	void primeiraConciliacaoViraBaseEADepoisConfereSoAsNovasTransacoes() {
+		transacaoService.deposito(contas.get(0).getIdConta(), new BigDecimal("50.00"));
+		ResultadoConciliacao primeira = conciliacaoService.conciliar();
+		assertEquals(5, primeira.contasConferidas());
+		assertEquals(5, primeira.snapshotsGravados());
+		assertEquals(0, primeira.divergencias().size());
+
+		// uma transação anterior ao snapshot não é mais somada
+		jdbcTemplate.update("UPDATE transacoes SET valor = 999 WHERE id_conta = ?", contas.get(0).getIdConta());
+		transacaoService.saque(contas.get(0).getIdConta(), new BigDecimal("30.00"));
+		transacaoService.transferencia(contas.get(1).getIdConta(), contas.get(2).getIdConta(), BigDecimal.TEN);
+		ResultadoConciliacao segunda = conciliacaoService.conciliar();
+
+		assertEquals(5, segunda.contasConferidas());
+		assertEquals(3, segunda.snapshotsGravados());
+		assertEquals(0, segunda.divergencias().size());
+		assertEquals(8, snapshotSaldoRepository.count());
+	}
+
+	@Test
+	void saldoAlteradoSemTransacaoEReportado() {
+		conciliacaoService.conciliar();
+		int idConta = contas.get(3).getIdConta();
+		transacaoService.deposito(idConta, new BigDecimal("20.00"));
+		jdbcTemplate.update("UPDATE contas SET saldo = saldo + 5 WHERE id_conta = ?", idConta);
+
+		ResultadoConciliacao resultado = conciliacaoService.conciliar();
+
+		assertEquals(1, resultado.divergencias().size());
+		ResultadoConciliacao.Divergencia divergencia = resultado.divergencias().get(0);
+		assertEquals(idConta, divergencia.idConta());
+		assertEquals(0, new BigDecimal("125.00").compareTo(divergencia.saldoConta()));
+		assertEquals(0, new BigDecimal("120.00").compareTo(divergencia.saldoCalculado()));
+		// o snapshot da conta divergente não avança: a próxima conciliação reporta de novo
+		assertEquals(1, conciliacaoService.conciliar().divergencias().size());
+	}
+
+	@Test
+	void transacaoComIdMenorGravadaDepoisDoSnapshotNaoDiverge() {
+		int idConta = contas.get(0).getIdConta();
+		conciliacaoService.conciliar();
+		transacaoService.deposito(idConta, new BigDecimal("10.00"));
+		conciliacaoService.conciliar();
+
+		// outra instância reservou um bloco de ids antes e só fez commit agora
+		jdbcTemplate.update("INSERT INTO transacoes (id_transacao, id_conta, valor, tipo_transacao, data_transacao) "
+				+ "VALUES (-1, ?, 7, 'DEPOSITO', ?)", idConta, LocalDateTime.now());
+		jdbcTemplate.update("UPDATE contas SET saldo = saldo + 7, versao = versao + 1 WHERE id_conta = ?", idConta);
+
+		assertEquals(0, conciliacaoService.conciliar().divergencias().size());
+		assertEquals(0, conciliacaoService.conciliar().divergencias().size());
+	}
+
+	@Test
+	void snapshotErradoERefeitoPeloHistoricoDesdeABase() {
+		int idConta = contas.get(4).getIdConta();
+		conciliacaoService.conciliar();
+		transacaoService.deposito(idConta, new BigDecimal("10.00"));
+		conciliacaoService.conciliar();
+		jdbcTemplate.update("UPDATE snapshots_saldo SET saldo = 111 WHERE id_conta = ? AND saldo = 110", idConta);
+
+		ResultadoConciliacao resultado = conciliacaoService.conciliar();
+
+		assertEquals(0, resultado.divergencias().size());
+		assertEquals(1, resultado.snapshotsGravados());
+		assertEquals(0, conciliacaoService.conciliar().divergencias().size());
+	}
+
+	@Test
+	void historicoArquivadoEntraNaConferenciaDesdeABase() {
+		int idConta = contas.get(2).getIdConta();
+		conciliacaoService.conciliar();
+		transacaoService.deposito(idConta, new BigDecimal("10.00"));
+		conciliacaoService.conciliar();
+
+		// o mês do depósito foi copiado para o arquivo e a partição ainda não foi removida
+		jdbcTemplate.update("INSERT INTO transacoes_arquivo (id_transacao, id_conta, valor, tipo_transacao, data_transacao) "
+				+ "SELECT id_transacao, id_conta, valor, tipo_transacao, data_transacao FROM transacoes WHERE id_conta = ?",
+				idConta);
+		jdbcTemplate.update("UPDATE snapshots_saldo SET saldo = 111 WHERE id_conta = ? AND saldo = 110", idConta);
+		assertEquals(0, conciliacaoService.conciliar().divergencias().size());
+
+		// e depois removida: a base de 100,00 é anterior ao arquivamento
+		jdbcTemplate.update("DELETE FROM transacoes WHERE id_conta = ?", idConta);
+		jdbcTemplate.update("UPDATE snapshots_saldo SET saldo = 111 WHERE id_conta = ? AND saldo = 110", idConta);
+		ResultadoConciliacao resultado = conciliacaoService.conciliar();
+		assertEquals(0, resultado.divergencias().size());
+		assertEquals(1, resultado.snapshotsGravados());
+	}
+}
@@ -0,0 +1,275 @@
+package village.sillicon.apidemo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.EntityNotFoundException;
+import village.sillicon.apidemo.config.CacheConfig;
+import village.sillicon.apidemo.models.Conta;
+import village.sillicon.apidemo.models.Pessoa;
+import village.sillicon.apidemo.repositories.ContaRepository;
+import village.sillicon.apidemo.repositories.PessoaRepository;
+import village.sillicon.apidemo.repositories.TransacaoRepository;
+import village.sillicon.apidemo.services.IdempotenciaService;
+import village.sillicon.apidemo.services.PessoaService;
+import village.sillicon.apidemo.services.TransacaoService;
+
+// Garante que as leituras da API continuam sendo uma consulta por requisição (sem N+1)
+@SpringBootTest
+@AutoConfigureMockMvc
+class ConsultasSqlTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+	@Autowired
+	private TransacaoService transacaoService;
+	@Autowired
+	private TransacaoRepository transacaoRepository;
+	@Autowired
+	private ContaRepository contaRepository;
+	@Autowired
+	private PessoaRepository pessoaRepository;
+	@Autowired
+	private CacheManager cacheManager;
+	@Autowired
+	private PessoaService pessoaService;
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+	@Autowired
+	private IdempotenciaService idempotenciaService;
+
+	private Statistics estatisticas;
+	private Conta primeiraConta;
+
+	@BeforeEach
+	void popular() {
+		transacaoRepository.deleteAll();
+		contaRepository.deleteAll();
+		pessoaRepository.deleteAll();
+		for (int i = 0; i < 5; i++) {
+			Pessoa pessoa = pessoaRepository.save(new Pessoa("Pessoa " + i, "0000000000" + i, LocalDate.of(1990, 1, 1)));
+			Conta conta = contaRepository.save(new Conta(pessoa, new BigDecimal("100.00"), new BigDecimal("100.00"), true, 1));
+			if (i == 0) {
+				primeiraConta = conta;
+			}
+			transacaoService.deposito(conta.getIdConta(), BigDecimal.ONE);
+			transacaoService.deposito(conta.getIdConta(), BigDecimal.TEN);
+		}
+		estatisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		estatisticas.clear();
+	}
+
+	@Test
+	void listarTransacoesFazUmaConsulta() throws Exception {
+		mockMvc.perform(get("/transacoes/listar")).andExpect(status().isOk()).andExpect(jsonPath("$.length()").value(10));
+		assertEquals(1, estatisticas.getPrepareStatementCount());
+	}
+
+	@Test
+	void listarContasFazUmaConsulta() throws Exception {
+		mockMvc.perform(get("/contas/listar")).andExpect(status().isOk())
+				.andExpect(jsonPath("$.length()").value(5))
+				.andExpect(jsonPath("$[0].pessoa.nome").value("Pessoa 0"));
+		assertEquals(1, estatisticas.getPrepareStatementCount());
+	}
+
+	@Test
+	void buscarContaPorIdFazUmaConsulta() throws Exception {
+		mockMvc.perform(get("/contas/buscarPorId/" + primeiraConta.getIdConta())).andExpect(status().isOk());
+		assertEquals(1, estatisticas.getPrepareStatementCount());
+	}
+
+	@Test
+	void buscarPessoaPorIdFazUmaConsulta() throws Exception {
+		cacheManager.getCache(CacheConfig.PESSOAS).clear();
+		mockMvc.perform(get("/pessoas/buscarPorId/" + primeiraConta.getPessoa().getIdPessoa()))
+				.andExpect(status().isOk()).andExpect(jsonPath("$.cpf").value("00000000000"));
+		assertEquals(1, estatisticas.getPrepareStatementCount());
+		assertEquals(0, estatisticas.getEntityLoadCount());
+	}
+
+	@Test
+	void resumoDePessoasFazUmaConsulta() throws Exception {
+		transacaoService.saque(primeiraConta.getIdConta(), new BigDecimal("5.00"));
+		estatisticas.clear();
+		mockMvc.perform(get("/pessoas/" + primeiraConta.getPessoa().getIdPessoa() + "/resumo"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.saldoTotal").value(106.0))
+				.andExpect(jsonPath("$.contasAtivas").value(1))
+				.andExpect(jsonPath("$.saquesHoje").value(5.0));
+		assertEquals(1, estatisticas.getPrepareStatementCount());
+
+		mockMvc.perform(get("/pessoas/resumo").param("limit", "3")).andExpect(status().isOk())
+				.andExpect(jsonPath("$.length()").value(3))
+				.andExpect(jsonPath("$[1].saldoTotal").value(111.0))
+				.andExpect(jsonPath("$[1].saquesHoje").value(0.0));
+		assertEquals(2, estatisticas.getPrepareStatementCount());
+	}
+
+	@Test
+	void extratoFazDuasConsultas() throws Exception {
+		mockMvc.perform(get("/contas/" + primeiraConta.getIdConta() + "/extrato")).andExpect(status().isOk())
+				.andExpect(jsonPath("$.itens.length()").value(2));
+		// verificação de existência da conta + a página do extrato
+		assertEquals(2, estatisticas.getPrepareStatementCount());
+	}
+
+	@Test
+	void cpfInexistenteConsultaOBancoUmaVez() throws Exception {
+		cacheManager.getCache(CacheConfig.CPFS_INEXISTENTES).clear();
+		mockMvc.perform(get("/pessoas/cpf/00000000000")).andExpect(status().isOk())
+				.andExpect(jsonPath("$.nome").value("Pessoa 0"));
+		mockMvc.perform(get("/pessoas/cpf/99999999999/existe")).andExpect(content().string("false"));
+		mockMvc.perform(get("/pessoas/cpf/99999999999/existe")).andExpect(content().string("false"));
+		assertThrows(EntityNotFoundException.class, () -> pessoaService.buscarPorCpf("99999999999"));
+		assertEquals(2, estatisticas.getPrepareStatementCount());
+
+		// O cadastro remove o CPF do cache negativo; a segunda tentativa é recusada sem INSERT
+		pessoaService.criar(new Pessoa("Nova", "99999999999", LocalDate.of(2000, 1, 1)));
+		assertEquals(true, pessoaService.cpfExiste("99999999999"));
+		estatisticas.clear();
+		RuntimeException erro = assertThrows(RuntimeException.class,
+				() -> pessoaService.criar(new Pessoa("Outra", "99999999999", LocalDate.of(2000, 1, 1))));
+		assertEquals("CPF já cadastrado", erro.getMessage());
+		// a verificação vem do cache de consultas, preenchido pelo cpfExiste acima
+		assertEquals(0, estatisticas.getPrepareStatementCount());
+	}
+
+	@Test
+	void pessoaDaContaRelidaVemDoCacheDeSegundoNivel() {
+		entityManagerFactory.getCache().evictAll();
+		String nome = transactionTemplate.execute(status -> contaRepository.findById(primeiraConta.getIdConta())
+				.orElseThrow().getPessoa().getNome());
+		assertEquals(2, estatisticas.getPrepareStatementCount());
+
+		// outra sessão: a conta vai ao banco, a pessoa vem do cache de segundo nível
+		assertEquals(nome, transactionTemplate.execute(status -> contaRepository
+				.findById(primeiraConta.getIdConta()).orElseThrow().getPessoa().getNome()));
+		assertEquals(3, estatisticas.getPrepareStatementCount());
+		assertEquals(1, estatisticas.getSecondLevelCacheHitCount());
+
+		// a conta nunca entra no cache: o saldo alterado pelo UPDATE em massa já aparece na releitura
+		transacaoService.deposito(primeiraConta.getIdConta(), BigDecimal.ONE);
+		assertEquals(0, new BigDecimal("112.00").compareTo(
+				contaRepository.findById(primeiraConta.getIdConta()).orElseThrow().getSaldo()));
+		assertFalse(entityManagerFactory.getCache().contains(Conta.class, primeiraConta.getIdConta()));
+	}
+
+	@Test
+	void buscaPorCpfUsaCacheDeConsultasAteAProximaEscrita() {
+		pessoaRepository.findByCpf("00000000001").orElseThrow();
+		pessoaRepository.findByCpf("00000000001").orElseThrow();
+		assertEquals(1, estatisticas.getPrepareStatementCount());
+		assertEquals(1, estatisticas.getQueryCacheHitCount());
+
+		// qualquer escrita em Pessoas invalida as consultas guardadas
+		pessoaRepository.save(new Pessoa("Nova", "12345678900", LocalDate.of(2000, 1, 1)));
+		estatisticas.clear();
+		pessoaRepository.findByCpf("00000000001").orElseThrow();
+		assertEquals(1, estatisticas.getPrepareStatementCount());
+	}
+
+	@Test
+	void buscarContaUsaCacheAteAProximaMovimentacao() throws Exception {
+		String url = "/contas/buscarPorId/" + primeiraConta.getIdConta();
+		mockMvc.perform(get(url)).andExpect(status().isOk());
+		mockMvc.perform(get(url)).andExpect(status().isOk()).andExpect(jsonPath("$.saldo").value(111.0));
+		assertEquals(1, estatisticas.getPrepareStatementCount());
+
+		transacaoService.deposito(primeiraConta.getIdConta(), BigDecimal.ONE);
+		estatisticas.clear();
+		mockMvc.perform(get(url)).andExpect(status().isOk()).andExpect(jsonPath("$.saldo").value(112.0));
+		assertEquals(1, estatisticas.getPrepareStatementCount());
+
+		mockMvc.perform(get(url).param("consistente", "true")).andExpect(status().isOk());
+		assertEquals(2, estatisticas.getPrepareStatementCount());
+	}
+
+	@Test
+	void saqueRepetidoComMesmaChaveDebitaUmaVez() throws Exception {
+		String url = "/transacoes/saque/" + primeiraConta.getIdConta() + "/10";
+		String primeira = mockMvc.perform(post(url).header(IdempotenciaService.CABECALHO, "saque-repetido"))
+				.andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+		estatisticas.clear();
+
+		String repetida = mockMvc.perform(post(url).header(IdempotenciaService.CABECALHO, "saque-repetido"))
+				.andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+		assertEquals(primeira, repetida);
+		// resposta vem da memória, sem consulta nenhuma
+		assertEquals(0, estatisticas.getPrepareStatementCount());
+		assertEquals(0, new BigDecimal("101.00").compareTo(contaRepository.findById(primeiraConta.getIdConta()).get().getSaldo()));
+	}
+
+	@Test
+	void chaveRegistradaNoBancoNaoTocaNaConta() throws Exception {
+		String url = "/transacoes/deposito/" + primeiraConta.getIdConta() + "/5";
+		int idTransacao = transacaoService.deposito(primeiraConta.getIdConta(), new BigDecimal("5"), "deposito-banco")
+				.idTransacao();
+		cacheManager.getCache(CacheConfig.IDEMPOTENCIA).clear();
+		estatisticas.clear();
+
+		mockMvc.perform(post(url).header(IdempotenciaService.CABECALHO, "deposito-banco"))
+				.andExpect(status().isOk()).andExpect(jsonPath("$.idTransacao").value(idTransacao));
+		// chave + transação original
+		assertEquals(2, estatisticas.getPrepareStatementCount());
+		assertEquals(0, estatisticas.getEntityUpdateCount());
+		assertEquals(0, new BigDecimal("116.00").compareTo(contaRepository.findById(primeiraConta.getIdConta()).get().getSaldo()));
+
+		// mesma chave com outro valor é recusada
+		assertThrows(RuntimeException.class,
+				() -> transacaoService.deposito(primeiraConta.getIdConta(), BigDecimal.ONE, "deposito-banco"));
+	}
+
+	@Test
+	void chaveLidaDoBancoVenceNaDataDeCriacao() {
+		int idConta = primeiraConta.getIdConta();
+		int primeira = transacaoService.deposito(idConta, BigDecimal.ONE, "deposito-vencendo").idTransacao();
+		jdbcTemplate.update("UPDATE chaves_idempotencia SET data_criacao = ? WHERE chave = ?",
+				LocalDateTime.now().minusHours(20), "deposito-vencendo");
+		cacheManager.getCache(CacheConfig.IDEMPOTENCIA).clear();
+
+		// Ainda válida: volta do banco e entra de novo no cache
+		assertEquals(primeira, transacaoService.deposito(idConta, BigDecimal.ONE, "deposito-vencendo").idTransacao());
+
+		Object validade = ReflectionTestUtils.getField(idempotenciaService, "validade");
+		ReflectionTestUtils.setField(idempotenciaService, "validade", Duration.ofHours(12));
+		try {
+			// Vencida pela data de criação, mesmo tendo entrado no cache agora
+			int nova = transacaoService.deposito(idConta, BigDecimal.ONE, "deposito-vencendo").idTransacao();
+			assertNotEquals(primeira, nova);
+			assertEquals(0, new BigDecimal("113.00").compareTo(contaRepository.findById(idConta).get().getSaldo()));
+		} finally {
+			ReflectionTestUtils.setField(idempotenciaService, "validade", validade);
+		}
+	}
+}
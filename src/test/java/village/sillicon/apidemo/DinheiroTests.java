@@ -0,0 +1,36 @@
+package village.sillicon.apidemo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import village.sillicon.apidemo.models.Dinheiro;
+
+class DinheiroTests {
+
+	@Test
+	void converteTextoParaDuasCasas() {
+		assertEquals(new BigDecimal("0.10"), Dinheiro.converter("0.1"));
+		assertEquals(new BigDecimal("10.00"), Dinheiro.converter("10"));
+		assertEquals(new BigDecimal("10.50"), Dinheiro.converter("10,50"));
+		assertEquals(new BigDecimal("9999999999999.99"), Dinheiro.converter("9999999999999.99"));
+		assertEquals(1050, Dinheiro.centavos(Dinheiro.converter("10.5")));
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = { "", "0", "0.00", "-1", "1.001", "1e3", ".5", "5.", "1.2.3", "abc", "1234567890123456" })
+	void recusaValoresInvalidos(String texto) {
+		assertThrows(RuntimeException.class, () -> Dinheiro.converter(texto));
+	}
+
+	@Test
+	void normalizaValorDoLote() {
+		assertEquals(new BigDecimal("5.00"), Dinheiro.normalizar(new BigDecimal("5")));
+		assertThrows(RuntimeException.class, () -> Dinheiro.normalizar(new BigDecimal("5.001")));
+	}
+}
@@ -0,0 +1,216 @@
+package village.sillicon.apidemo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import village.sillicon.apidemo.dtos.ResultadoImportacao;
+import village.sillicon.apidemo.models.Conta;
+import village.sillicon.apidemo.models.Pessoa;
+import village.sillicon.apidemo.repositories.ContaRepository;
+import village.sillicon.apidemo.repositories.PessoaRepository;
+import village.sillicon.apidemo.repositories.TransacaoRepository;
+import village.sillicon.apidemo.services.ImportacaoContas;
+import village.sillicon.apidemo.services.PessoaService;
+
+// Lotes de 2 linhas em 3 threads para exercitar a divisão em lotes com arquivos pequenos
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+		properties = { "apidemo.importacao.lote=2", "apidemo.importacao.threads=3" })
+class ImportacaoContasTests {
+
+	@LocalServerPort
+	private int porta;
+	@Autowired
+	private ImportacaoContas importacaoContas;
+	@Autowired
+	private PessoaService pessoaService;
+	@Autowired
+	private TransacaoRepository transacaoRepository;
+	@Autowired
+	private ContaRepository contaRepository;
+	// Para simular CPFs cadastrados entre a conferência e o INSERT e falhas do banco
+	@MockitoSpyBean
+	private PessoaRepository pessoaRepository;
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	private final HttpClient cliente = HttpClient.newHttpClient();
+
+	@BeforeEach
+	void criarConta() {
+		transacaoRepository.deleteAll();
+		contaRepository.deleteAll();
+		pessoaRepository.deleteAll();
+		Pessoa pessoa = pessoaRepository.save(new Pessoa("Maria", "12345678901", LocalDate.of(1990, 1, 1)));
+		contaRepository.save(new Conta(pessoa, new BigDecimal("100.00"), new BigDecimal("300.00"), true, 1));
+	}
+
+	private HttpResponse<String> requisitar(HttpRequest.Builder requisicao, String caminho) throws Exception {
+		return cliente.send(requisicao.uri(URI.create("http://localhost:" + porta + caminho)).build(),
+				HttpResponse.BodyHandlers.ofString());
+	}
+
+	@Test
+	void importaCsvERecusaCadaLinhaInvalidaComOMotivo() throws Exception {
+		// consulta negativa em cache antes da importação
+		assertFalse(pessoaService.cpfExiste("11111111111"));
+		String csv = """
+				nome,cpf,dataNascimento,saldo,limiteSaqueDiario,tipoConta
+				Ana,11111111111,1990-01-01,100.00,500,1
+				"Silva, Bruno",22222222222,1985-05-05,0,500,2
+				Carla,12345678901,1990-01-01,10,500,1
+				Davi,1234,1990-01-01,10,500,1
+				Eva,33333333333,01/01/1990,10,500,1
+				Gil,44444444444,1990-01-01,10.001,500,1
+				Hugo,55555555555,1990-01-01,10,500,1
+				Iris,55555555555,1990-01-01,10,500,1
+				Joao,11111111111,1990-01-01,10,500,1
+				""";
+
+		HttpResponse<String> resposta = requisitar(HttpRequest.newBuilder()
+				.header("Content-Type", "text/csv; charset=UTF-8")
+				.POST(HttpRequest.BodyPublishers.ofString(csv)), "/contas/importar");
+
+		assertEquals(200, resposta.statusCode());
+		JsonNode resultado = objectMapper.readTree(resposta.body());
+		assertEquals(3, resultado.get("importadas").asInt());
+		Map<Integer, String> erros = new HashMap<>();
+		resultado.get("recusadas").forEach(linha -> erros.put(linha.get("linha").asInt(), linha.get("erro").asText()));
+		assertEquals("CPF já cadastrado", erros.get(4));
+		assertEquals("CPF inválido", erros.get(5));
+		assertEquals("Valor inválido na coluna dataNascimento", erros.get(6));
+		assertEquals("Saldo inválido", erros.get(7));
+		assertEquals("CPF repetido no arquivo", erros.get(9));
+		// o mesmo CPF em lotes gravados em paralelo: um entra, o outro esbarra na chave única
+		assertEquals(1, (erros.containsKey(2) ? 1 : 0) + (erros.containsKey(10) ? 1 : 0));
+		assertEquals(6, erros.size());
+
+		assertEquals("Silva, Bruno", pessoaRepository.findByCpf("22222222222").orElseThrow().getNome());
+		assertTrue(pessoaService.cpfExiste("11111111111"));
+		assertEquals(4, contaRepository.count());
+	}
+
+	@Test
+	void exportacaoPodeSerImportadaDeVolta() throws Exception {
+		importacaoContas.importar(new ByteArrayInputStream("""
+				{"nome":"Silva, Bruno","cpf":"22222222222","dataNascimento":"1985-05-05","saldo":50.5,"limiteSaqueDiario":500,"tipoConta":2,"flagAtivo":false}
+				""".getBytes()), ImportacaoContas.Formato.NDJSON);
+
+		HttpResponse<String> csv = requisitar(HttpRequest.newBuilder().GET(), "/contas/exportar");
+		assertEquals(200, csv.statusCode());
+		assertTrue(csv.headers().firstValue("Content-Type").orElseThrow().startsWith("text/csv"));
+		List<String> linhas = csv.body().lines().toList();
+		assertEquals("idConta,idPessoa,nome,cpf,dataNascimento,saldo,limiteSaqueDiario,tipoConta,flagAtivo", linhas.get(0));
+		assertEquals(3, linhas.size());
+		assertTrue(linhas.get(2).endsWith(",\"Silva, Bruno\",22222222222,1985-05-05,50.50,500.00,2,false"));
+
+		ByteArrayOutputStream ndjson = new ByteArrayOutputStream();
+		importacaoContas.exportar(ndjson, ImportacaoContas.Formato.NDJSON);
+		contaRepository.deleteAll();
+		pessoaRepository.deleteAll();
+
+		ResultadoImportacao resultado = importacaoContas.importar(new ByteArrayInputStream(ndjson.toByteArray()),
+				ImportacaoContas.Formato.NDJSON);
+		assertEquals(2, resultado.importadas());
+		assertEquals(0, resultado.recusadas().size());
+		Conta importada = contaRepository.findAll().stream()
+				.filter(conta -> conta.getTipoConta() == 2).findFirst().orElseThrow();
+		assertEquals(new BigDecimal("50.50"), importada.getSaldo());
+		assertFalse(importada.getFlagAtivo());
+	}
+
+	@Test
+	void cpfRepetidoEmOutroLoteEsbarraNaChaveUnicaESoEssaLinhaERecusada() throws Exception {
+		// os dois lotes passam pela conferência de CPFs cadastrados; o segundo a gravar falha no INSERT
+		doReturn(List.of()).when(pessoaRepository).cpfsExistentes(any());
+		ResultadoImportacao resultado = importacaoContas.importar(new ByteArrayInputStream("""
+				{"nome":"Ana","cpf":"11111111111","dataNascimento":"1990-01-01","saldo":10,"limiteSaqueDiario":500,"tipoConta":1}
+				{"nome":"Bruno","cpf":"22222222222","dataNascimento":"1990-01-01","saldo":10,"limiteSaqueDiario":500,"tipoConta":1}
+				{"nome":"Carla","cpf":"33333333333","dataNascimento":"1990-01-01","saldo":10,"limiteSaqueDiario":500,"tipoConta":1}
+				{"nome":"Ana","cpf":"11111111111","dataNascimento":"1990-01-01","saldo":10,"limiteSaqueDiario":500,"tipoConta":1}
+				""".getBytes()), ImportacaoContas.Formato.NDJSON);
+
+		assertEquals(3, resultado.importadas());
+		assertEquals(1, resultado.recusadas().size());
+		assertEquals("11111111111", resultado.recusadas().get(0).cpf());
+		assertEquals("CPF já cadastrado", resultado.recusadas().get(0).erro());
+		// a outra linha de cada lote foi gravada pela tentativa linha a linha
+		assertTrue(pessoaRepository.findByCpf("22222222222").isPresent());
+		assertTrue(pessoaRepository.findByCpf("33333333333").isPresent());
+		assertEquals(4, contaRepository.count());
+	}
+
+	private static String ndjson(int quantidade) {
+		StringBuilder ndjson = new StringBuilder();
+		for (int i = 0; i < quantidade; i++) {
+			ndjson.append(String.format(
+					"{\"nome\":\"Pessoa %d\",\"cpf\":\"%011d\",\"dataNascimento\":\"1990-01-01\",\"saldo\":10,\"limiteSaqueDiario\":500,\"tipoConta\":1}%n",
+					i, 20000000000L + i));
+		}
+		return ndjson.toString();
+	}
+
+	@Test
+	void loteComFalhaInterrompeALeituraDoArquivo() throws Exception {
+		doThrow(new RuntimeException("Banco fora do ar")).when(pessoaRepository).cpfsExistentes(any());
+		ByteArrayInputStream entrada = new ByteArrayInputStream(ndjson(5000).getBytes());
+
+		ResultadoImportacao resultado = importacaoContas.importar(entrada, ImportacaoContas.Formato.NDJSON);
+
+		assertTrue(resultado.interrompida());
+		assertEquals("Banco fora do ar", resultado.erro());
+		assertEquals(1L, resultado.interrompidaNaLinha());
+		assertEquals(0, resultado.importadas());
+		assertTrue(entrada.available() > 0);
+		assertEquals(1, contaRepository.count());
+	}
+
+	@Test
+	void loteComFalhaDevolveOQueJaFoiGravadoEALinhaOndeParou() throws Exception {
+		// só o lote das linhas 3 e 4 falha, depois de o primeiro já ter começado
+		doAnswer(invocacao -> {
+			Thread.sleep(300);
+			throw new RuntimeException("Banco fora do ar");
+		}).when(pessoaRepository).cpfsExistentes(argThat(cpfs -> cpfs.contains("20000000002")));
+
+		HttpResponse<String> resposta = requisitar(HttpRequest.newBuilder()
+				.header("Content-Type", "application/x-ndjson")
+				.POST(HttpRequest.BodyPublishers.ofString(ndjson(6))), "/contas/importar");
+
+		assertEquals(500, resposta.statusCode());
+		JsonNode resultado = objectMapper.readTree(resposta.body());
+		assertEquals("Banco fora do ar", resultado.get("erro").asText());
+		assertEquals(3, resultado.get("interrompidaNaLinha").asInt());
+		assertTrue(pessoaRepository.findByCpf("20000000000").isPresent());
+		assertTrue(pessoaRepository.findByCpf("20000000001").isPresent());
+		assertFalse(pessoaRepository.findByCpf("20000000002").isPresent());
+		assertEquals(contaRepository.count() - 1, resultado.get("importadas").asInt());
+	}
+}
@@ -0,0 +1,73 @@
+package village.sillicon.apidemo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MariaDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import village.sillicon.apidemo.migracoes.ParticoesMensais;
+import village.sillicon.apidemo.repositories.ContaRepository;
+import village.sillicon.apidemo.services.TransacaoService;
+
+// Banco criado pelo ddl-auto=update antes das migrações (db/banco-legado.sql): o Flyway faz o
+// baseline na V1 e aplica as seguintes por cima dos dados. Sem Docker o teste é ignorado.
+@Testcontainers(disabledWithoutDocker = true)
+@SpringBootTest(properties = { "spring.flyway.enabled=true", "spring.jpa.hibernate.ddl-auto=validate",
+		"apidemo.particoes.meses-quentes=1200" })
+class MigracoesBancoLegadoTests {
+
+	@Container
+	static MariaDBContainer<?> mariadb = new MariaDBContainer<>("mariadb:11.4").withInitScript("db/banco-legado.sql");
+
+	@DynamicPropertySource
+	static void banco(DynamicPropertyRegistry registro) {
+		registro.add("spring.datasource.url", mariadb::getJdbcUrl);
+		registro.add("spring.datasource.username", mariadb::getUsername);
+		registro.add("spring.datasource.password", mariadb::getPassword);
+	}
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+	@Autowired
+	private TransacaoService transacaoService;
+	@Autowired
+	private ContaRepository contaRepository;
+
+	@Test
+	void bancoLegadoEntraPeloBaselineERecebeAsMigracoesSeguintes() {
+		// o contexto só sobe se o ddl-auto=validate aceitar o esquema migrado
+		assertEquals("BASELINE", jdbcTemplate.queryForObject(
+				"SELECT type FROM flyway_schema_history WHERE version = '1'", String.class));
+		assertEquals(0, jdbcTemplate.queryForObject(
+				"SELECT COUNT(*) FROM flyway_schema_history WHERE success = 0", Integer.class));
+		assertEquals(10, jdbcTemplate.queryForObject(
+				"SELECT COUNT(*) FROM flyway_schema_history WHERE type <> 'BASELINE' AND version IS NOT NULL",
+				Integer.class));
+
+		// dados preservados; a transação sem data recebeu uma na V7
+		assertEquals(3, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transacoes", Integer.class));
+		assertEquals(0, jdbcTemplate.queryForObject(
+				"SELECT COUNT(*) FROM transacoes WHERE data_transacao IS NULL", Integer.class));
+		assertEquals(0, new BigDecimal("0.00").compareTo(jdbcTemplate.queryForObject(
+				"SELECT saque_diario_acumulado FROM contas WHERE id_conta = 1", BigDecimal.class)));
+		assertTrue(jdbcTemplate.queryForList("SELECT PARTITION_NAME FROM information_schema.PARTITIONS"
+				+ " WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'transacoes'", String.class)
+				.contains(ParticoesMensais.nome(YearMonth.of(2025, 1))));
+
+		// a sequência começa acima dos ids do AUTO_INCREMENT
+		int idNovo = transacaoService.deposito(1, BigDecimal.TEN).getIdTransacao();
+		assertTrue(idNovo > 7);
+		assertEquals(0, new BigDecimal("180.00").compareTo(contaRepository.findById(1).orElseThrow().getSaldo()));
+	}
+}
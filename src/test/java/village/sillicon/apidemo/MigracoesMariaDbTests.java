@@ -0,0 +1,121 @@
+package village.sillicon.apidemo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.MariaDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import village.sillicon.apidemo.migracoes.ParticoesMensais;
+import village.sillicon.apidemo.models.Conta;
+import village.sillicon.apidemo.models.Pessoa;
+import village.sillicon.apidemo.repositories.ContaRepository;
+import village.sillicon.apidemo.repositories.PessoaRepository;
+import village.sillicon.apidemo.services.ContaService;
+import village.sillicon.apidemo.services.ParticoesTransacoes;
+import village.sillicon.apidemo.services.TransacaoService;
+
+// O H2 dos outros testes não tem partições nem roda as migrações: aqui o esquema sai do Flyway num
+// MariaDB de verdade e o Hibernate só o valida, como em produção. Sem Docker o teste é ignorado.
+@Testcontainers(disabledWithoutDocker = true)
+@SpringBootTest(properties = { "spring.flyway.enabled=true", "spring.jpa.hibernate.ddl-auto=validate",
+		"apidemo.particoes.meses-quentes=1" })
+class MigracoesMariaDbTests {
+
+	@Container
+	static MariaDBContainer<?> mariadb = new MariaDBContainer<>("mariadb:11.4");
+
+	@DynamicPropertySource
+	static void banco(DynamicPropertyRegistry registro) {
+		registro.add("spring.datasource.url", mariadb::getJdbcUrl);
+		registro.add("spring.datasource.username", mariadb::getUsername);
+		registro.add("spring.datasource.password", mariadb::getPassword);
+	}
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+	@Autowired
+	private ParticoesTransacoes particoesTransacoes;
+	@Autowired
+	private TransacaoService transacaoService;
+	@Autowired
+	private ContaService contaService;
+	@Autowired
+	private ContaRepository contaRepository;
+	@Autowired
+	private PessoaRepository pessoaRepository;
+
+	private List<String> particoes() {
+		return jdbcTemplate.queryForList("SELECT PARTITION_NAME FROM information_schema.PARTITIONS"
+				+ " WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'transacoes' AND PARTITION_NAME IS NOT NULL",
+				String.class);
+	}
+
+	@Test
+	void migracoesRodamEOEsquemaBateComAsEntidades() {
+		// o contexto só sobe se o ddl-auto=validate aceitar o esquema das migrações
+		assertEquals(0, jdbcTemplate.queryForObject(
+				"SELECT COUNT(*) FROM flyway_schema_history WHERE success = 0", Integer.class));
+		assertEquals(1, jdbcTemplate.queryForObject(
+				"SELECT COUNT(*) FROM flyway_schema_history WHERE version = '7'", Integer.class));
+		assertTrue(particoes().contains(ParticoesMensais.nome(YearMonth.now())));
+		assertTrue(particoes().contains(ParticoesMensais.FUTURO));
+	}
+
+	@Test
+	void manutencaoArquivaOsMesesAntigosEAContaNaoPodeSerExcluida() {
+		Pessoa pessoa = pessoaRepository.save(new Pessoa("Maria", "12345678901", LocalDate.of(1990, 1, 1)));
+		Conta conta = contaRepository.save(new Conta(pessoa, new BigDecimal("100.00"), new BigDecimal("300.00"), true, 1));
+		transacaoService.deposito(conta.getIdConta(), BigDecimal.TEN);
+		transacaoService.saque(conta.getIdConta(), BigDecimal.ONE);
+		String mesAtual = ParticoesMensais.nome(YearMonth.now());
+
+		// daqui a dois meses, com um mês quente, o mês atual e o seguinte vão para o arquivo
+		ReflectionTestUtils.invokeMethod(particoesTransacoes, "manter", YearMonth.now().plusMonths(2));
+
+		assertFalse(particoes().contains(mesAtual));
+		assertTrue(particoes().contains(ParticoesMensais.nome(YearMonth.now().plusMonths(5))));
+		assertEquals(0, jdbcTemplate.queryForObject(
+				"SELECT COUNT(*) FROM transacoes WHERE id_conta = ?", Integer.class, conta.getIdConta()));
+		assertEquals(2, jdbcTemplate.queryForObject(
+				"SELECT COUNT(*) FROM transacoes_arquivo WHERE id_conta = ?", Integer.class, conta.getIdConta()));
+		// sem transações em Transacoes, só no arquivo
+		assertThrows(RuntimeException.class, () -> contaService.deletar(conta.getIdConta()));
+		assertTrue(contaRepository.existsById(conta.getIdConta()));
+	}
+
+	@Test
+	void particaoQueNaoConfereComOArquivoNaoERemovida() {
+		// Qualquer que seja a ordem dos testes, a linha cai numa partição que sai da janela em três meses
+		jdbcTemplate.update("INSERT INTO transacoes (id_transacao, id_conta, valor, tipo_transacao, data_transacao)"
+				+ " VALUES (-5, -1, 10, 'DEPOSITO', ?)", LocalDateTime.now());
+		// mesmo id já no arquivo com outro valor: o INSERT IGNORE pularia a linha
+		jdbcTemplate.update("INSERT INTO transacoes_arquivo (id_transacao, id_conta, valor, tipo_transacao, data_transacao)"
+				+ " VALUES (-5, -1, 99, 'DEPOSITO', ?)", LocalDateTime.now());
+		try {
+			assertThrows(RuntimeException.class, () -> ReflectionTestUtils.invokeMethod(particoesTransacoes, "manter",
+					YearMonth.now().plusMonths(3)));
+			assertEquals(1, jdbcTemplate.queryForObject(
+					"SELECT COUNT(*) FROM transacoes WHERE id_transacao = -5", Integer.class));
+		} finally {
+			jdbcTemplate.update("DELETE FROM transacoes_arquivo WHERE id_transacao = -5");
+			jdbcTemplate.update("DELETE FROM transacoes WHERE id_transacao = -5");
+		}
+	}
+}
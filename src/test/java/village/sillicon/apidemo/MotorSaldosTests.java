@@ -0,0 +1,251 @@
+package village.sillicon.apidemo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mockingDetails;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import village.sillicon.apidemo.dtos.TransacaoDTO;
+import village.sillicon.apidemo.exceptions.ContaBloqueadaException;
+import village.sillicon.apidemo.exceptions.LimiteDiarioExcedidoException;
+import village.sillicon.apidemo.exceptions.MovimentacaoEmAndamentoException;
+import village.sillicon.apidemo.exceptions.SaldoInsuficienteException;
+import village.sillicon.apidemo.models.Conta;
+import village.sillicon.apidemo.models.Pessoa;
+import village.sillicon.apidemo.models.Transacao.TipoTransacao;
+import village.sillicon.apidemo.motor.MotorSaldos;
+import village.sillicon.apidemo.repositories.ChaveIdempotenciaRepository;
+import village.sillicon.apidemo.repositories.ContaRepository;
+import village.sillicon.apidemo.repositories.PessoaRepository;
+import village.sillicon.apidemo.repositories.TransacaoRepository;
+import village.sillicon.apidemo.services.ContaService;
+import village.sillicon.apidemo.services.TransacaoService;
+
+// Banco H2 separado: este contexto grava em segundo plano e não deve cruzar com os demais testes
+@SpringBootTest(properties = {
+		"apidemo.transacoes.concorrencia=PARTICIONADO",
+		"apidemo.motor.particoes=4",
+		"spring.datasource.url=jdbc:h2:mem:db_motor;MODE=MariaDB;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000"
+})
+class MotorSaldosTests {
+
+	@Autowired
+	private TransacaoService transacaoService;
+	@Autowired
+	private ContaService contaService;
+	@Autowired
+	private TransacaoRepository transacaoRepository;
+	@MockitoSpyBean
+	private ContaRepository contaRepository;
+	@Autowired
+	private PessoaRepository pessoaRepository;
+	@Autowired
+	private ChaveIdempotenciaRepository chaveIdempotenciaRepository;
+	@Autowired
+	private MotorSaldos motorSaldos;
+
+	private Pessoa pessoa;
+
+	@BeforeEach
+	void limpar() {
+		chaveIdempotenciaRepository.deleteAll();
+		transacaoRepository.deleteAll();
+		contaRepository.deleteAll();
+		pessoaRepository.deleteAll();
+		pessoa = pessoaRepository.save(new Pessoa("Maria", "12345678901", LocalDate.of(1990, 1, 1)));
+	}
+
+	// O repositório é um proxy de interface, sem método real: a resposta padrão do espião delega ao bean
+	private Object chamarOriginal(InvocationOnMock invocacao) throws Throwable {
+		return mockingDetails(contaRepository).getMockCreationSettings().getDefaultAnswer().answer(invocacao);
+	}
+
+	private Conta novaConta(String saldo, boolean ativa) {
+		return contaRepository.save(new Conta(pessoa, new BigDecimal(saldo), new BigDecimal("300.00"), ativa, 1));
+	}
+
+	@Test
+	void movimentacoesConcorrentesBatemComOBanco() throws Exception {
+		Conta conta = novaConta("1000.00", true);
+
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		List<Future<BigDecimal>> resultados = new ArrayList<>();
+		try {
+			for (int i = 0; i < 400; i++) {
+				boolean saque = i % 2 == 0;
+				resultados.add(executor.submit(() -> {
+					try {
+						if (saque) {
+							transacaoService.saque(conta.getIdConta(), new BigDecimal("2.50"));
+							return new BigDecimal("-2.50");
+						}
+						transacaoService.deposito(conta.getIdConta(), BigDecimal.ONE);
+						return BigDecimal.ONE;
+					} catch (LimiteDiarioExcedidoException e) {
+						return BigDecimal.ZERO;
+					}
+				}));
+			}
+			BigDecimal esperado = new BigDecimal("1000.00");
+			BigDecimal sacado = BigDecimal.ZERO;
+			int concluidas = 0;
+			for (Future<BigDecimal> resultado : resultados) {
+				esperado = esperado.add(resultado.get());
+				sacado = resultado.get().signum() < 0 ? sacado.add(resultado.get().negate()) : sacado;
+				concluidas += resultado.get().signum() != 0 ? 1 : 0;
+			}
+			// 120 saques de 2,50 esgotam o limite diário de 300,00
+			assertEquals(0, new BigDecimal("300.00").compareTo(sacado));
+
+			Conta atualizada = contaRepository.findById(conta.getIdConta()).orElseThrow();
+			assertEquals(0, esperado.compareTo(atualizada.getSaldo()));
+			assertEquals(0, sacado.compareTo(atualizada.getSaqueDiarioAcumulado()));
+			assertEquals(concluidas, transacaoRepository.count());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	void transferenciaEntreParticoesGravaAsDuasPernas() {
+		Conta envia = novaConta("100.00", true);
+		Conta recebe = novaConta("0.00", true);
+
+		transacaoService.transferencia(envia.getIdConta(), recebe.getIdConta(), new BigDecimal("40.00"));
+
+		assertEquals(0, new BigDecimal("60.00").compareTo(
+				contaRepository.findById(envia.getIdConta()).orElseThrow().getSaldo()));
+		assertEquals(0, new BigDecimal("40.00").compareTo(
+				contaRepository.findById(recebe.getIdConta()).orElseThrow().getSaldo()));
+		assertEquals(2, transacaoRepository.count());
+	}
+
+	@Test
+	void transferenciaRecusadaNoDestinoEstornaAReserva() {
+		Conta envia = novaConta("100.00", true);
+		Conta bloqueada = novaConta("0.00", false);
+		Conta outra = novaConta("0.00", true);
+
+		assertThrows(ContaBloqueadaException.class,
+				() -> transacaoService.transferencia(envia.getIdConta(), bloqueada.getIdConta(), new BigDecimal("100.00")));
+		assertEquals(0, transacaoRepository.count());
+
+		// O valor reservado voltou: a conta ainda consegue transferir o saldo inteiro
+		transacaoService.transferencia(envia.getIdConta(), outra.getIdConta(), new BigDecimal("100.00"));
+		assertThrows(SaldoInsuficienteException.class,
+				() -> transacaoService.transferencia(envia.getIdConta(), outra.getIdConta(), new BigDecimal("0.01")));
+		assertEquals(0, BigDecimal.ZERO.compareTo(
+				contaRepository.findById(envia.getIdConta()).orElseThrow().getSaldo()));
+	}
+
+	@Test
+	void contaAlteradaForaDoMotorERelida() {
+		Conta conta = novaConta("100.00", true);
+		transacaoService.deposito(conta.getIdConta(), BigDecimal.TEN);
+
+		Conta alterada = contaService.acharPorId(conta.getIdConta());
+		alterada.setFlagAtivo(false);
+		contaService.atualizar(conta.getIdConta(), alterada);
+
+		assertThrows(ContaBloqueadaException.class,
+				() -> transacaoService.deposito(conta.getIdConta(), BigDecimal.TEN));
+	}
+
+	@Test
+	void idempotencyKeyRepetidaNaoMovimentaDeNovo() {
+		Conta conta = novaConta("100.00", true);
+
+		TransacaoDTO primeira = transacaoService.saque(conta.getIdConta(), BigDecimal.TEN, "chave-motor");
+		TransacaoDTO repetida = transacaoService.saque(conta.getIdConta(), BigDecimal.TEN, "chave-motor");
+
+		assertEquals(primeira.idTransacao(), repetida.idTransacao());
+		assertEquals(TipoTransacao.SAQUE, repetida.tipoTransacao());
+		assertEquals(1, transacaoRepository.count());
+		assertTrue(chaveIdempotenciaRepository.existsById("chave-motor"));
+		assertEquals(0, new BigDecimal("90.00").compareTo(
+				contaRepository.findById(conta.getIdConta()).orElseThrow().getSaldo()));
+	}
+
+	@Test
+	void saldoAlteradoPeloAdministradorValeParaAsProximasValidacoes() throws Exception {
+		Conta conta = novaConta("100.00", true);
+		// Põe a conta em memória na partição
+		transacaoService.deposito(conta.getIdConta(), BigDecimal.TEN);
+
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		List<Future<?>> saque = new ArrayList<>();
+		try {
+			// Um saque do saldo antigo chega enquanto o novo saldo está sendo gravado
+			doAnswer(invocacao -> {
+				saque.add(executor.submit(() -> transacaoService.saque(conta.getIdConta(), new BigDecimal("110.00"))));
+				Thread.sleep(200);
+				return chamarOriginal(invocacao);
+			}).when(contaRepository).save(any(Conta.class));
+
+			Conta alterada = contaService.acharPorId(conta.getIdConta());
+			alterada.setSaldo(BigDecimal.ZERO);
+			contaService.atualizar(conta.getIdConta(), alterada);
+
+			ExecutionException erro = assertThrows(ExecutionException.class, () -> saque.get(0).get(10, TimeUnit.SECONDS));
+			assertTrue(erro.getCause() instanceof SaldoInsuficienteException);
+			assertEquals(0, BigDecimal.ZERO.compareTo(
+					contaRepository.findById(conta.getIdConta()).orElseThrow().getSaldo()));
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	void tempoEsgotadoNaoViraFalhaDeMovimentacaoAceita() throws Exception {
+		Conta conta = novaConta("100.00", true);
+		Object esperaOriginal = ReflectionTestUtils.getField(motorSaldos, "esperaRespostaMs");
+		ReflectionTestUtils.setField(motorSaldos, "esperaRespostaMs", 50L);
+		try {
+			doAnswer(invocacao -> {
+				Thread.sleep(300);
+				return chamarOriginal(invocacao);
+			}).when(contaRepository).aplicarMovimentoComSaque(eq(conta.getIdConta()), any(), any(), any());
+
+			MovimentacaoEmAndamentoException emAndamento = assertThrows(MovimentacaoEmAndamentoException.class,
+					() -> transacaoService.saque(conta.getIdConta(), BigDecimal.TEN, "chave-demorada"));
+			assertEquals("chave-demorada", emAndamento.getChaveIdempotencia());
+			// A repetição durante a gravação também recebe 202, sem movimentar de novo
+			assertThrows(MovimentacaoEmAndamentoException.class,
+					() -> transacaoService.saque(conta.getIdConta(), BigDecimal.TEN, "chave-demorada"));
+
+			emAndamento.getConclusao().get(10, TimeUnit.SECONDS);
+			TransacaoDTO resultado = transacaoService.saque(conta.getIdConta(), BigDecimal.TEN, "chave-demorada");
+			assertEquals(TipoTransacao.SAQUE, resultado.tipoTransacao());
+			assertEquals(1, transacaoRepository.count());
+
+			// Sem chave a requisição espera a gravação em vez de responder erro
+			transacaoService.saque(conta.getIdConta(), BigDecimal.TEN);
+			assertEquals(2, transacaoRepository.count());
+			assertEquals(0, new BigDecimal("80.00").compareTo(
+					contaRepository.findById(conta.getIdConta()).orElseThrow().getSaldo()));
+		} finally {
+			ReflectionTestUtils.setField(motorSaldos, "esperaRespostaMs", esperaOriginal);
+		}
+	}
+}
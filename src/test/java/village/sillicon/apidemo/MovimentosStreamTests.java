@@ -0,0 +1,253 @@
+package village.sillicon.apidemo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import village.sillicon.apidemo.config.LimiteBancoFilter;
+import village.sillicon.apidemo.dtos.TransacaoDTO;
+import village.sillicon.apidemo.models.Conta;
+import village.sillicon.apidemo.models.Pessoa;
+import village.sillicon.apidemo.models.Transacao.TipoTransacao;
+import village.sillicon.apidemo.repositories.ContaRepository;
+import village.sillicon.apidemo.repositories.PessoaRepository;
+import village.sillicon.apidemo.repositories.TransacaoRepository;
+import village.sillicon.apidemo.services.FluxoMovimentos;
+import village.sillicon.apidemo.services.TransacaoService;
+import village.sillicon.apidemo.services.TransacaoService.ModoGravacao;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class MovimentosStreamTests {
+
+	@LocalServerPort
+	private int porta;
+	@Autowired
+	private TransacaoService transacaoService;
+	@Autowired
+	private FluxoMovimentos fluxoMovimentos;
+	@Autowired
+	private TransacaoRepository transacaoRepository;
+	@Autowired
+	private ContaRepository contaRepository;
+	@Autowired
+	private PessoaRepository pessoaRepository;
+	@Autowired
+	private ObjectMapper objectMapper;
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+	@Autowired
+	private LimiteBancoFilter limiteBancoFilter;
+
+	private HttpClient cliente;
+	private Conta conta;
+	private Conta outra;
+
+	@BeforeEach
+	void criarContas() {
+		transacaoRepository.deleteAll();
+		contaRepository.deleteAll();
+		pessoaRepository.deleteAll();
+		Pessoa pessoa = pessoaRepository.save(new Pessoa("Maria", "12345678901", LocalDate.of(1990, 1, 1)));
+		conta = contaRepository.save(new Conta(pessoa, new BigDecimal("100.00"), new BigDecimal("300.00"), true, 1));
+		outra = contaRepository.save(new Conta(pessoa, new BigDecimal("100.00"), new BigDecimal("300.00"), true, 1));
+	}
+
+	// Fecha a conexão do stream de verdade, não só a leitura
+	@AfterEach
+	void fechar() {
+		if (cliente != null) {
+			cliente.shutdownNow();
+		}
+	}
+
+	// Abre o stream e devolve os campos "data:" dos eventos conforme chegam
+	private BlockingQueue<JsonNode> assinar(String caminho, String ultimoEvento) throws Exception {
+		HttpRequest.Builder requisicao = HttpRequest.newBuilder(URI.create("http://localhost:" + porta + caminho));
+		if (ultimoEvento != null) {
+			requisicao.header("Last-Event-ID", ultimoEvento);
+		}
+		cliente = HttpClient.newHttpClient();
+		HttpResponse<Stream<String>> resposta = cliente.send(requisicao.build(), HttpResponse.BodyHandlers.ofLines());
+		assertEquals(200, resposta.statusCode());
+		BlockingQueue<JsonNode> eventos = new LinkedBlockingQueue<>();
+		Thread.ofVirtual().start(() -> {
+			try {
+				resposta.body().filter(linha -> linha.startsWith("data:"))
+						.forEach(linha -> eventos.add(ler(linha.substring(5))));
+			} catch (UncheckedIOException e) {
+				// conexão fechada pelo teste
+			}
+		});
+		return eventos;
+	}
+
+	private JsonNode ler(String json) {
+		try {
+			return objectMapper.readTree(json);
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private JsonNode proximo(BlockingQueue<JsonNode> eventos) throws InterruptedException {
+		return eventos.poll(5, TimeUnit.SECONDS);
+	}
+
+	@Test
+	void streamDaContaRecebeSoOsMovimentosDelaDepoisDoCommit() throws Exception {
+		BlockingQueue<JsonNode> eventos = assinar("/contas/" + conta.getIdConta() + "/movimentos/stream", null);
+
+		transacaoService.deposito(outra.getIdConta(), BigDecimal.ONE);
+		// recusada: a transação é desfeita e nada é publicado
+		assertThrows(RuntimeException.class, () -> transacaoService.saque(conta.getIdConta(), new BigDecimal("500")));
+		int id = transacaoService.deposito(conta.getIdConta(), new BigDecimal("10.00")).getIdTransacao();
+
+		JsonNode evento = proximo(eventos);
+		assertEquals(id, evento.get("idTransacao").asInt());
+		assertEquals(conta.getIdConta(), evento.get("idConta").asInt());
+		assertEquals("DEPOSITO", evento.get("tipoTransacao").asText());
+		assertNull(eventos.poll(200, TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	void streamGeralRetomaDoLastEventIdPeloBanco() throws Exception {
+		int primeiro = transacaoService.deposito(conta.getIdConta(), BigDecimal.ONE).getIdTransacao();
+		transacaoService.transferencia(conta.getIdConta(), outra.getIdConta(), BigDecimal.TEN);
+
+		BlockingQueue<JsonNode> eventos = assinar("/transacoes/movimentos/stream", String.valueOf(primeiro));
+		// as duas pernas da transferência vêm do banco, o depósito seguinte chega ao vivo
+		assertEquals("TRANSFERENCIA_ENVIADA", proximo(eventos).get("tipoTransacao").asText());
+		assertEquals("TRANSFERENCIA_RECEBIDA", proximo(eventos).get("tipoTransacao").asText());
+		int novo = transacaoService.deposito(outra.getIdConta(), BigDecimal.ONE).getIdTransacao();
+		assertEquals(novo, proximo(eventos).get("idTransacao").asInt());
+		assertNull(eventos.poll(200, TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	void conexaoFechadaDeixaDeSerAssinante() throws Exception {
+		int antes = fluxoMovimentos.assinantes();
+		assinar("/transacoes/movimentos/stream", null);
+		assertEquals(antes + 1, fluxoMovimentos.assinantes());
+
+		fechar();
+		// o envio seguinte falha e o assinante é removido
+		for (int i = 0; i < 50 && fluxoMovimentos.assinantes() > antes; i++) {
+			transacaoService.deposito(conta.getIdConta(), BigDecimal.ONE);
+			Thread.sleep(100);
+		}
+		assertTrue(fluxoMovimentos.assinantes() <= antes);
+	}
+
+	@Test
+	void movimentoComIdMenorQueOReenviadoNaoSePerde() throws Exception {
+		int primeiro = transacaoService.deposito(conta.getIdConta(), BigDecimal.ONE).getIdTransacao();
+		int segundo = transacaoService.deposito(conta.getIdConta(), BigDecimal.TEN).getIdTransacao();
+		// outra instância reservou um bloco de ids antes e só fez commit agora
+		jdbcTemplate.update("INSERT INTO transacoes (id_transacao, id_conta, valor, tipo_transacao, data_transacao) "
+				+ "VALUES (-1, ?, 5, 'DEPOSITO', ?)", conta.getIdConta(), LocalDateTime.now());
+
+		BlockingQueue<JsonNode> eventos = assinar("/contas/" + conta.getIdConta() + "/movimentos/stream",
+				String.valueOf(primeiro));
+		assertEquals(segundo, proximo(eventos).get("idTransacao").asInt());
+		assertEquals(-1, proximo(eventos).get("idTransacao").asInt());
+		// ao vivo, com id menor que os reenviados
+		fluxoMovimentos.publicar(new TransacaoDTO(-2, conta.getIdConta(), BigDecimal.ONE, TipoTransacao.DEPOSITO,
+				LocalDateTime.now()));
+		assertEquals(-2, proximo(eventos).get("idTransacao").asInt());
+		assertNull(eventos.poll(200, TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	void gravacaoAssincronaPublicaSoDepoisDeInserirATransacao() throws Exception {
+		TransacaoService alvo = AopTestUtils.getTargetObject(transacaoService);
+		Object modoOriginal = ReflectionTestUtils.getField(alvo, "modoGravacao");
+		ReflectionTestUtils.setField(alvo, "modoGravacao", ModoGravacao.ASSINCRONA);
+		try {
+			BlockingQueue<JsonNode> eventos = assinar("/contas/" + conta.getIdConta() + "/movimentos/stream", null);
+			int id = transacaoService.deposito(conta.getIdConta(), BigDecimal.ONE).getIdTransacao();
+
+			assertEquals(id, proximo(eventos).get("idTransacao").asInt());
+			assertTrue(transacaoRepository.existsById(id));
+		} finally {
+			ReflectionTestUtils.setField(alvo, "modoGravacao", modoOriginal);
+		}
+	}
+
+	@Test
+	void reenvioDisputaAsPermissoesDoBanco() throws Exception {
+		int primeiro = transacaoService.deposito(conta.getIdConta(), BigDecimal.ONE).getIdTransacao();
+		transacaoService.deposito(conta.getIdConta(), BigDecimal.TEN);
+		Semaphore permissoes = (Semaphore) ReflectionTestUtils.getField(limiteBancoFilter, "permissoes");
+		int tomadas = permissoes.drainPermits();
+		try {
+			int antes = fluxoMovimentos.assinantes();
+			fluxoMovimentos.assinar(conta.getIdConta(), primeiro);
+			assertEquals(antes + 1, fluxoMovimentos.assinantes());
+			// Sem permissão o reenvio desiste e encerra a conexão; o cliente reconecta com o mesmo Last-Event-ID
+			for (int i = 0; i < 50 && fluxoMovimentos.assinantes() > antes; i++) {
+				Thread.sleep(100);
+			}
+			assertEquals(antes, fluxoMovimentos.assinantes());
+		} finally {
+			permissoes.release(tomadas);
+		}
+	}
+
+	@Test
+	void reenviadosSaoEsquecidosDepoisDaJanela() throws Exception {
+		int primeiro = transacaoService.deposito(conta.getIdConta(), BigDecimal.ONE).getIdTransacao();
+		int segundo = transacaoService.deposito(conta.getIdConta(), BigDecimal.TEN).getIdTransacao();
+
+		BlockingQueue<JsonNode> eventos = assinar("/contas/" + conta.getIdConta() + "/movimentos/stream",
+				String.valueOf(primeiro));
+		assertEquals(segundo, proximo(eventos).get("idTransacao").asInt());
+		Map<?, ?> reenviados = reenviadosDaConta();
+		assertEquals(1, reenviados.size());
+
+		// ao vivo, com data além da janela de reenvio (1m) depois do reenviado
+		fluxoMovimentos.publicar(new TransacaoDTO(-3, conta.getIdConta(), BigDecimal.ONE, TipoTransacao.DEPOSITO,
+				LocalDateTime.now().plusMinutes(2)));
+		assertEquals(-3, proximo(eventos).get("idTransacao").asInt());
+		assertTrue(reenviados.isEmpty());
+	}
+
+	private Map<?, ?> reenviadosDaConta() {
+		List<?> assinantes = (List<?>) ReflectionTestUtils.getField(fluxoMovimentos, "assinantes");
+		for (Object assinante : assinantes) {
+			if (Integer.valueOf(conta.getIdConta()).equals(ReflectionTestUtils.getField(assinante, "idConta"))) {
+				return (Map<?, ?>) ReflectionTestUtils.getField(assinante, "reenviados");
+			}
+		}
+		throw new AssertionError("Assinante da conta não encontrado");
+	}
+}
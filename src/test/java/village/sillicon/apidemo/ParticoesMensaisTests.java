@@ -0,0 +1,42 @@
+package village.sillicon.apidemo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.YearMonth;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import village.sillicon.apidemo.migracoes.ParticoesMensais;
+
+class ParticoesMensaisTests {
+
+	@Test
+	void particaoDoMesVaiAtePrimeiroDiaDoMesSeguinte() {
+		assertEquals("PARTITION p202612 VALUES LESS THAN ('2027-01-01')",
+				ParticoesMensais.definicao(YearMonth.of(2026, 12)));
+		assertEquals(YearMonth.of(2026, 12), ParticoesMensais.mes("p202612"));
+		assertNull(ParticoesMensais.mes(ParticoesMensais.FUTURO));
+	}
+
+	@Test
+	void criaMesesQueFaltamAteAFolga() {
+		YearMonth atual = YearMonth.of(2026, 10);
+		assertEquals(List.of(YearMonth.of(2026, 12), YearMonth.of(2027, 1)),
+				ParticoesMensais.aCriar(YearMonth.of(2026, 11), atual, 3));
+		assertEquals(List.of(), ParticoesMensais.aCriar(YearMonth.of(2027, 1), atual, 3));
+		assertEquals("REORGANIZE PARTITION pfuturo INTO (PARTITION p202612 VALUES LESS THAN ('2027-01-01'), "
+				+ "PARTITION pfuturo VALUES LESS THAN (MAXVALUE))",
+				ParticoesMensais.reorganizarFuturo(List.of(YearMonth.of(2026, 12))));
+	}
+
+	@Test
+	void arquivaSoOsMesesForaDaJanelaQuente() {
+		List<String> particoes = List.of("p202508", "p202509", "p202510", "p202611", "pfuturo");
+		// 12 meses quentes em outubro de 2026: de novembro de 2025 em diante
+		assertEquals(List.of("p202508", "p202509", "p202510"),
+				ParticoesMensais.aArquivar(particoes, YearMonth.of(2026, 10), 12));
+		assertEquals(List.of(), ParticoesMensais.aArquivar(particoes, YearMonth.of(2026, 9), 14));
+	}
+}
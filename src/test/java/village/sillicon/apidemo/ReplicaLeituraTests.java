@@ -0,0 +1,125 @@
+package village.sillicon.apidemo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import jakarta.persistence.EntityNotFoundException;
+import village.sillicon.apidemo.config.MonitorReplica;
+import village.sillicon.apidemo.config.RoteamentoDataSource;
+import village.sillicon.apidemo.models.Conta;
+import village.sillicon.apidemo.models.Pessoa;
+import village.sillicon.apidemo.repositories.ContaRepository;
+import village.sillicon.apidemo.repositories.PessoaRepository;
+import village.sillicon.apidemo.repositories.TransacaoRepository;
+import village.sillicon.apidemo.services.ContaService;
+import village.sillicon.apidemo.services.PessoaService;
+import village.sillicon.apidemo.services.TransacaoService;
+
+// Primário e réplica são dois H2 separados; a "replicação" é uma cópia do primário feita pelo teste
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:db_primario;MODE=MariaDB;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+		"apidemo.replica.url=jdbc:h2:mem:db_replica;MODE=MariaDB;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+		"apidemo.replica.username=sa",
+		"apidemo.replica.atraso-maximo-ms=200",
+		"apidemo.replica.batimento-ms=3600000"
+})
+class ReplicaLeituraTests {
+
+	@Autowired
+	private PessoaService pessoaService;
+	@Autowired
+	private ContaService contaService;
+	@Autowired
+	private TransacaoService transacaoService;
+	@Autowired
+	private PessoaRepository pessoaRepository;
+	@Autowired
+	private ContaRepository contaRepository;
+	@Autowired
+	private TransacaoRepository transacaoRepository;
+	@Autowired
+	private MonitorReplica monitorReplica;
+	@Autowired
+	private RoteamentoDataSource roteamento;
+	@Autowired
+	@Qualifier("primario")
+	private DataSource primario;
+	@Autowired
+	@Qualifier("replica")
+	private DataSource replica;
+
+	private Conta conta;
+
+	@BeforeEach
+	void replicarEstadoInicial() {
+		transacaoRepository.deleteAll();
+		contaRepository.deleteAll();
+		pessoaRepository.deleteAll();
+		Pessoa pessoa = pessoaRepository.save(new Pessoa("Maria", "12345678901", LocalDate.of(1990, 1, 1)));
+		conta = contaRepository.save(new Conta(pessoa, new BigDecimal("100.00"), new BigDecimal("100.00"), true, 1));
+		monitorReplica.bater();
+		replicar();
+		monitorReplica.bater();
+		assertTrue(roteamento.isReplicaEmDia());
+	}
+
+	private void replicar() {
+		JdbcTemplate origem = new JdbcTemplate(primario);
+		JdbcTemplate destino = new JdbcTemplate(replica);
+		List<String> comandos = origem.queryForList("SCRIPT", String.class);
+		destino.execute("DROP ALL OBJECTS");
+		comandos.forEach(destino::execute);
+	}
+
+	@Test
+	void leiturasDosServicosVaoParaAReplica() {
+		Pessoa nova = pessoaRepository.save(new Pessoa("João", "10987654321", LocalDate.of(1990, 1, 1)));
+		transacaoService.deposito(conta.getIdConta(), BigDecimal.TEN);
+
+		// Ainda não replicado: os métodos somente leitura dos serviços não enxergam as escritas
+		assertEquals(1, pessoaService.listar(0, null).size());
+		assertThrows(EntityNotFoundException.class, () -> pessoaService.acharPorId(nova.getIdPessoa()));
+		assertEquals(0, transacaoService.listar(0, null).size());
+		assertEquals(0, new BigDecimal("100.00").compareTo(contaService.listar(0, null).get(0).saldo()));
+
+		// Repositórios fora dos serviços e a leitura consistente de saldo ficam no primário
+		assertEquals(2, pessoaRepository.count());
+		assertEquals(0, new BigDecimal("110.00").compareTo(
+				contaService.buscarPorIdSemCache(conta.getIdConta()).saldo()));
+
+		replicar();
+		assertEquals(2, pessoaService.listar(0, null).size());
+		assertEquals(1, transacaoService.listar(0, null).size());
+	}
+
+	@Test
+	void replicaAtrasadaDesviaLeiturasParaOPrimario() throws Exception {
+		pessoaRepository.save(new Pessoa("João", "10987654321", LocalDate.of(1990, 1, 1)));
+		Thread.sleep(300);
+		monitorReplica.bater();
+
+		assertFalse(roteamento.isReplicaEmDia());
+		assertTrue(monitorReplica.atrasoMs() > 200);
+		assertEquals(2, pessoaService.listar(0, null).size());
+
+		replicar();
+		monitorReplica.bater();
+		assertTrue(roteamento.isReplicaEmDia());
+		assertEquals(2, pessoaService.listar(0, null).size());
+	}
+}
@@ -0,0 +1,393 @@
+package village.sillicon.apidemo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import village.sillicon.apidemo.dtos.ExtratoPagina;
+import village.sillicon.apidemo.dtos.OperacaoLote;
+import village.sillicon.apidemo.dtos.ResultadoLote;
+import village.sillicon.apidemo.dtos.TransacaoDTO;
+import village.sillicon.apidemo.exceptions.LimiteDiarioExcedidoException;
+import village.sillicon.apidemo.models.Conta;
+import village.sillicon.apidemo.models.Pessoa;
+import village.sillicon.apidemo.models.Transacao.TipoTransacao;
+import village.sillicon.apidemo.repositories.ContaRepository;
+import village.sillicon.apidemo.repositories.PessoaRepository;
+import village.sillicon.apidemo.repositories.TransacaoRepository;
+import village.sillicon.apidemo.services.ContaService;
+import village.sillicon.apidemo.services.DiarioTransacoes;
+import village.sillicon.apidemo.services.TransacaoService;
+import village.sillicon.apidemo.services.TransacaoService.ModoConcorrencia;
+import village.sillicon.apidemo.services.TransacaoService.ModoGravacao;
+
+// Banco próprio: um contexto novo sobre o mesmo banco recuperaria as transações pendentes que os
+// testes de queda deixam em transacoes_pendentes
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:db_servico;MODE=MariaDB;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000"
+})
+class TransacaoServiceTests {
+
+	@Autowired
+	private TransacaoService transacaoService;
+	@Autowired
+	private TransacaoRepository transacaoRepository;
+	@Autowired
+	private ContaRepository contaRepository;
+	@Autowired
+	private PessoaRepository pessoaRepository;
+	@Autowired
+	private ObjectMapper objectMapper;
+	@Autowired
+	private DiarioTransacoes diarioTransacoes;
+	@Autowired
+	private MeterRegistry meterRegistry;
+	@Autowired
+	private ContaService contaService;
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private Conta conta;
+
+	@BeforeEach
+	void criarConta() {
+		transacaoRepository.deleteAll();
+		contaRepository.deleteAll();
+		pessoaRepository.deleteAll();
+		Pessoa pessoa = pessoaRepository.save(new Pessoa("Maria", "12345678901", LocalDate.of(1990, 1, 1)));
+		conta = contaRepository.save(new Conta(pessoa, new BigDecimal("1000.00"), new BigDecimal("300.00"), true, 1));
+	}
+
+	// Transacoes não tem FK para Contas (tabela particionada): o serviço é quem recusa
+	@Test
+	void contaComTransacoesNaoPodeSerExcluida() {
+		transacaoService.deposito(conta.getIdConta(), BigDecimal.TEN);
+
+		assertThrows(RuntimeException.class, () -> contaService.deletar(conta.getIdConta()));
+		assertTrue(contaRepository.existsById(conta.getIdConta()));
+	}
+
+	@Test
+	void contaSoComTransacoesArquivadasNaoPodeSerExcluida() {
+		jdbcTemplate.update("INSERT INTO transacoes_arquivo (id_transacao, id_conta, valor, tipo_transacao, data_transacao) "
+				+ "VALUES (-1, ?, 10, 'DEPOSITO', ?)", conta.getIdConta(), LocalDateTime.now().minusYears(2));
+		try {
+			assertThrows(RuntimeException.class, () -> contaService.deletar(conta.getIdConta()));
+			assertTrue(contaRepository.existsById(conta.getIdConta()));
+		} finally {
+			jdbcTemplate.update("DELETE FROM transacoes_arquivo");
+		}
+	}
+
+	@Test
+	void saqueAcumulaTotalDoDia() {
+		transacaoService.saque(conta.getIdConta(), new BigDecimal("100.00"));
+		transacaoService.saque(conta.getIdConta(), new BigDecimal("150.00"));
+
+		Conta atualizada = contaRepository.findById(conta.getIdConta()).orElseThrow();
+		assertEquals(0, new BigDecimal("250.00").compareTo(atualizada.getSaqueDiarioAcumulado()));
+		assertEquals(LocalDate.now(), atualizada.getDataSaqueDiario());
+		assertEquals(0, new BigDecimal("750.00").compareTo(atualizada.getSaldo()));
+	}
+
+	@Test
+	void saqueAcimaDoLimiteDiarioFalha() {
+		Counter recusas = meterRegistry.counter("apidemo.transacoes.recusadas", "tipo", "SAQUE", "motivo",
+				"limite_diario_excedido");
+		double recusasAntes = recusas.count();
+		transacaoService.saque(conta.getIdConta(), new BigDecimal("200.00"));
+
+		RuntimeException erro = assertThrows(LimiteDiarioExcedidoException.class,
+				() -> transacaoService.saque(conta.getIdConta(), new BigDecimal("200.00")));
+		assertEquals("Limite de saque diário excedido", erro.getMessage());
+		assertEquals(recusasAntes + 1, recusas.count());
+		assertTrue(meterRegistry.get("apidemo.transacoes").tags("operacao", "saque", "resultado", "recusada").timer()
+				.count() > 0);
+	}
+
+	@Test
+	void acumuladoDeOutroDiaNaoConta() {
+		Conta existente = contaRepository.findById(conta.getIdConta()).orElseThrow();
+		existente.definirSaqueDiario(new BigDecimal("300.00"), LocalDate.now().minusDays(1));
+		contaRepository.save(existente);
+
+		transacaoService.saque(conta.getIdConta(), new BigDecimal("300.00"));
+
+		Conta atualizada = contaRepository.findById(conta.getIdConta()).orElseThrow();
+		assertEquals(0, new BigDecimal("300.00").compareTo(atualizada.getSaqueDiarioAcumulado()));
+	}
+
+	@Test
+	void recalculaAcumuladoAPartirDoHistorico() {
+		transacaoService.saque(conta.getIdConta(), new BigDecimal("120.00"));
+		Conta corrompida = contaRepository.findById(conta.getIdConta()).orElseThrow();
+		corrompida.definirSaqueDiario(BigDecimal.ZERO, LocalDate.now());
+		contaRepository.save(corrompida);
+
+		transacaoService.recalcularSaquesDiarios();
+		assertEquals(0, new BigDecimal("120.00").compareTo(
+				contaRepository.findById(conta.getIdConta()).orElseThrow().getSaqueDiarioAcumulado()));
+
+		assertEquals(0, new BigDecimal("120.00").compareTo(
+				transacaoService.recalcularSaqueDiario(conta.getIdConta()).saqueDiarioAcumulado()));
+	}
+
+	@ParameterizedTest
+	@EnumSource(value = ModoConcorrencia.class, names = "PARTICIONADO", mode = EnumSource.Mode.EXCLUDE)
+	void movimentacoesConcorrentesNaoPerdemAtualizacoes(ModoConcorrencia modo) throws Exception {
+		TransacaoService alvo = AopTestUtils.getTargetObject(transacaoService);
+		Object modoOriginal = ReflectionTestUtils.getField(alvo, "modoConcorrencia");
+		ReflectionTestUtils.setField(alvo, "modoConcorrencia", modo);
+		Conta outra = contaRepository.save(new Conta(conta.getPessoa(), new BigDecimal("1000.00"),
+				new BigDecimal("300.00"), true, 1));
+
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		List<Future<BigDecimal>> resultados = new ArrayList<>();
+		try {
+			for (int i = 0; i < 40; i++) {
+				boolean ida = i % 2 == 0;
+				resultados.add(executor.submit(() -> {
+					try {
+						if (ida) {
+							transacaoService.transferencia(conta.getIdConta(), outra.getIdConta(), BigDecimal.ONE);
+							return BigDecimal.ONE.negate();
+						}
+						transacaoService.deposito(conta.getIdConta(), BigDecimal.TEN);
+						return BigDecimal.TEN;
+					} catch (RuntimeException e) {
+						return BigDecimal.ZERO;
+					}
+				}));
+			}
+			BigDecimal esperado = new BigDecimal("1000.00");
+			int concluidas = 0;
+			for (Future<BigDecimal> resultado : resultados) {
+				esperado = esperado.add(resultado.get());
+				concluidas += resultado.get().signum() != 0 ? 1 : 0;
+			}
+			assertTrue(concluidas > 0);
+
+			Conta atualizada = contaRepository.findById(conta.getIdConta()).orElseThrow();
+			assertEquals(0, esperado.compareTo(atualizada.getSaldo()));
+		} finally {
+			executor.shutdown();
+			ReflectionTestUtils.setField(alvo, "modoConcorrencia", modoOriginal);
+		}
+	}
+
+	@Test
+	void saqueAtomicoInformaMotivoDaRecusa() {
+		RuntimeException erro = assertThrows(RuntimeException.class,
+				() -> transacaoService.saque(conta.getIdConta(), new BigDecimal("1500.00")));
+		assertEquals("Valor maior que saldo", erro.getMessage());
+
+		Conta bloqueada = contaRepository.findById(conta.getIdConta()).orElseThrow();
+		bloqueada.setFlagAtivo(false);
+		contaRepository.save(bloqueada);
+		erro = assertThrows(RuntimeException.class,
+				() -> transacaoService.deposito(conta.getIdConta(), BigDecimal.TEN));
+		assertEquals("Conta bloqueada", erro.getMessage());
+	}
+
+	@Test
+	void transferenciaRecusadaNaoAlteraNenhumaConta() {
+		Conta destino = contaRepository.save(new Conta(conta.getPessoa(), BigDecimal.ZERO,
+				new BigDecimal("300.00"), false, 1));
+
+		assertThrows(RuntimeException.class,
+				() -> transacaoService.transferencia(conta.getIdConta(), destino.getIdConta(), BigDecimal.TEN));
+
+		assertEquals(0, new BigDecimal("1000.00").compareTo(
+				contaRepository.findById(conta.getIdConta()).orElseThrow().getSaldo()));
+		assertEquals(0, transacaoRepository.count());
+	}
+
+	@Test
+	void loteAplicaSaldoLiquidoEReportaCadaOperacao() {
+		Conta destino = contaRepository.save(new Conta(conta.getPessoa(), BigDecimal.ZERO,
+				new BigDecimal("300.00"), true, 1));
+		int id = conta.getIdConta();
+
+		List<ResultadoLote> resultados = transacaoService.processarLote(List.of(
+				new OperacaoLote(TipoTransacao.DEPOSITO, id, null, new BigDecimal("50.00")),
+				new OperacaoLote(TipoTransacao.SAQUE, id, null, new BigDecimal("200.00")),
+				new OperacaoLote(TipoTransacao.SAQUE, id, null, new BigDecimal("200.00")),
+				new OperacaoLote(TipoTransacao.TRANSFERENCIA_ENVIADA, id, destino.getIdConta(), new BigDecimal("25.00")),
+				new OperacaoLote(TipoTransacao.DEPOSITO, 999999, null, BigDecimal.ONE)));
+
+		assertEquals(5, resultados.size());
+		assertTrue(resultados.get(0).sucesso());
+		assertTrue(resultados.get(1).sucesso());
+		assertEquals("Limite de saque diário excedido", resultados.get(2).erro());
+		assertTrue(resultados.get(3).sucesso());
+		assertEquals("Conta não encontrada", resultados.get(4).erro());
+		assertTrue(resultados.get(3).idTransacao() > 0);
+
+		assertEquals(0, new BigDecimal("825.00").compareTo(
+				contaRepository.findById(id).orElseThrow().getSaldo()));
+		assertEquals(0, new BigDecimal("25.00").compareTo(
+				contaRepository.findById(destino.getIdConta()).orElseThrow().getSaldo()));
+		assertEquals(4, transacaoRepository.count());
+	}
+
+	@Test
+	void listarPaginaPorCursorEStreamTrazTudo() throws Exception {
+		for (int i = 0; i < 5; i++) {
+			transacaoService.deposito(conta.getIdConta(), BigDecimal.ONE);
+		}
+
+		List<TransacaoDTO> primeira = transacaoService.listar(0, 3);
+		List<TransacaoDTO> segunda = transacaoService.listar(primeira.get(2).idTransacao(), 3);
+		assertEquals(3, primeira.size());
+		assertEquals(2, segunda.size());
+		assertTrue(segunda.get(0).idTransacao() > primeira.get(2).idTransacao());
+
+		ByteArrayOutputStream saida = new ByteArrayOutputStream();
+		transacaoService.escreverTodas(saida);
+		JsonNode json = objectMapper.readTree(saida.toByteArray());
+		assertEquals(5, json.size());
+		assertEquals(conta.getIdConta(), json.get(0).get("idConta").asInt());
+	}
+
+	@Test
+	void extratoPaginaPorCursorEFiltraPorTipo() {
+		for (int i = 0; i < 3; i++) {
+			transacaoService.deposito(conta.getIdConta(), BigDecimal.ONE);
+		}
+		transacaoService.saque(conta.getIdConta(), BigDecimal.TEN);
+
+		ExtratoPagina primeira = transacaoService.extrato(conta.getIdConta(), null, null, null, 3, null);
+		assertEquals(3, primeira.itens().size());
+		assertEquals(TipoTransacao.SAQUE, primeira.itens().get(0).tipoTransacao());
+
+		ExtratoPagina segunda = transacaoService.extrato(conta.getIdConta(), null, null, null, 3,
+				primeira.proximoCursor());
+		assertEquals(1, segunda.itens().size());
+		assertEquals(null, segunda.proximoCursor());
+
+		ExtratoPagina saques = transacaoService.extrato(conta.getIdConta(), LocalDate.now(), LocalDate.now(),
+				TipoTransacao.SAQUE, null, null);
+		assertEquals(1, saques.itens().size());
+
+		ExtratoPagina ontem = transacaoService.extrato(conta.getIdConta(), null, LocalDate.now().minusDays(1),
+				null, null, null);
+		assertTrue(ontem.itens().isEmpty());
+	}
+
+	@Test
+	void gravacaoAssincronaInsereTransacoesEmSegundoPlano() throws Exception {
+		Conta destino = contaRepository.save(new Conta(conta.getPessoa(), BigDecimal.ZERO,
+				new BigDecimal("300.00"), true, 1));
+		TransacaoService alvo = AopTestUtils.getTargetObject(transacaoService);
+		Object modoOriginal = ReflectionTestUtils.getField(alvo, "modoGravacao");
+		ReflectionTestUtils.setField(alvo, "modoGravacao", ModoGravacao.ASSINCRONA);
+		try {
+			int idSaque = transacaoService.saque(conta.getIdConta(), BigDecimal.TEN).getIdTransacao();
+			int idRecebida = transacaoService.transferencia(conta.getIdConta(), destino.getIdConta(), BigDecimal.ONE)
+					.getIdTransacao();
+			assertTrue(idSaque > 0 && idRecebida > idSaque);
+			assertEquals(0, new BigDecimal("989.00").compareTo(
+					contaRepository.findById(conta.getIdConta()).orElseThrow().getSaldo()));
+
+			for (int i = 0; i < 100 && transacaoRepository.count() < 3; i++) {
+				Thread.sleep(50);
+			}
+			assertEquals(3, transacaoRepository.count());
+			assertEquals(TipoTransacao.SAQUE, transacaoService.acharPorId(idSaque).tipoTransacao());
+			assertEquals(destino.getIdConta(), transacaoService.acharPorId(idRecebida).idConta());
+			assertEquals(0, diarioTransacoes.pendentes());
+		} finally {
+			ReflectionTestUtils.setField(alvo, "modoGravacao", modoOriginal);
+		}
+	}
+
+	// Queda antes do commit: o depósito e a linha em transacoes_pendentes são desfeitos juntos
+	@Test
+	void quedaAntesDoCommitNaoDeixaTransacaoPendente() {
+		TransacaoService alvo = AopTestUtils.getTargetObject(transacaoService);
+		Object modoOriginal = ReflectionTestUtils.getField(alvo, "modoGravacao");
+		ReflectionTestUtils.setField(alvo, "modoGravacao", ModoGravacao.ASSINCRONA);
+		int[] id = new int[1];
+		try {
+			assertThrows(IllegalStateException.class, () -> transactionTemplate.executeWithoutResult(status -> {
+				id[0] = transacaoService.deposito(conta.getIdConta(), BigDecimal.TEN).getIdTransacao();
+				TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+					@Override
+					public void beforeCommit(boolean readOnly) {
+						// depois do INSERT em transacoes_pendentes, registrado antes
+						assertEquals(1, jdbcTemplate.queryForObject(
+								"SELECT COUNT(*) FROM transacoes_pendentes WHERE id_transacao = ?", Integer.class, id[0]));
+						throw new IllegalStateException("queda simulada");
+					}
+				});
+			}));
+		} finally {
+			ReflectionTestUtils.setField(alvo, "modoGravacao", modoOriginal);
+		}
+
+		assertEquals(0, jdbcTemplate.queryForObject(
+				"SELECT COUNT(*) FROM transacoes_pendentes WHERE id_transacao = ?", Integer.class, id[0]));
+		assertEquals(0, diarioTransacoes.recuperar());
+		assertTrue(!transacaoRepository.existsById(id[0]));
+		assertEquals(0, new BigDecimal("1000.00").compareTo(
+				contaRepository.findById(conta.getIdConta()).orElseThrow().getSaldo()));
+	}
+
+	// Queda depois do commit e antes da thread gravar: a linha ficou em transacoes_pendentes com a conta
+	// já alterada, e a subida seguinte a insere em Transacoes
+	@Test
+	void recuperacaoInsereAsPendentesDeUmaQuedaDepoisDoCommit() {
+		int id = conta.getIdConta();
+		jdbcTemplate.update("INSERT INTO transacoes_pendentes (id_transacao, id_conta, valor, tipo_transacao, data_transacao)"
+				+ " VALUES (900001, ?, 5.00, 'DEPOSITO', '2026-01-02 10:00:00'), (900002, ?, 7.00, 'SAQUE', '2026-01-02 10:01:00')",
+				id, id);
+		// já inserida por outra instância que recuperava ao mesmo tempo
+		jdbcTemplate.update("INSERT INTO transacoes (id_transacao, id_conta, valor, tipo_transacao, data_transacao)"
+				+ " VALUES (900002, ?, 7.00, 'SAQUE', '2026-01-02 10:01:00')", id);
+
+		TransacaoService alvo = AopTestUtils.getTargetObject(transacaoService);
+		Object modoOriginal = ReflectionTestUtils.getField(alvo, "modoGravacao");
+		ReflectionTestUtils.setField(alvo, "modoGravacao", ModoGravacao.ASSINCRONA);
+		try {
+			// ainda pendente, já aparece na busca por id
+			assertEquals(TipoTransacao.DEPOSITO, transacaoService.acharPorId(900001).tipoTransacao());
+
+			assertEquals(1, diarioTransacoes.recuperar());
+			assertTrue(transacaoRepository.existsById(900001));
+			assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transacoes_pendentes", Integer.class));
+			assertEquals(TipoTransacao.DEPOSITO, transacaoService.acharPorId(900001).tipoTransacao());
+			assertEquals(0, diarioTransacoes.recuperar());
+		} finally {
+			ReflectionTestUtils.setField(alvo, "modoGravacao", modoOriginal);
+		}
+	}
+}
@@ -0,0 +1,41 @@
+-- Banco como o ddl-auto=update o deixava antes das migrações, com dados: ponto de partida de
+-- MigracoesBancoLegadoTests, que sobe a API com o Flyway por cima dele
+CREATE TABLE pessoas (
+    id_pessoa INTEGER NOT NULL AUTO_INCREMENT,
+    cpf VARCHAR(11) NOT NULL,
+    data_nascimento DATE NOT NULL,
+    nome VARCHAR(255) NOT NULL,
+    PRIMARY KEY (id_pessoa),
+    CONSTRAINT UKc7pqbmo6e96slvonilywsb8oe UNIQUE (cpf)
+) ENGINE=InnoDB;
+
+CREATE TABLE contas (
+    id_conta INTEGER NOT NULL AUTO_INCREMENT,
+    data_criacao DATETIME(6),
+    flag_ativo BIT NOT NULL,
+    id_pessoa INTEGER NOT NULL,
+    limite_saque_diario DECIMAL(15,2) NOT NULL,
+    saldo DECIMAL(15,2) NOT NULL,
+    tipo_conta INTEGER NOT NULL,
+    PRIMARY KEY (id_conta),
+    CONSTRAINT FKhe5cjiel7g0899m8nhdklk1o6 FOREIGN KEY (id_pessoa) REFERENCES pessoas (id_pessoa)
+) ENGINE=InnoDB;
+
+CREATE TABLE transacoes (
+    id_transacao INTEGER NOT NULL AUTO_INCREMENT,
+    data_transacao DATETIME(6),
+    id_conta INTEGER NOT NULL,
+    tipo_transacao ENUM ('DEPOSITO','SAQUE','TRANSFERENCIA_ENVIADA','TRANSFERENCIA_RECEBIDA') NOT NULL,
+    valor DECIMAL(15,2) NOT NULL,
+    PRIMARY KEY (id_transacao),
+    CONSTRAINT FKg2vq8axujqynj50txh49lda0y FOREIGN KEY (id_conta) REFERENCES contas (id_conta)
+) ENGINE=InnoDB;
+
+INSERT INTO pessoas (cpf, data_nascimento, nome) VALUES ('11122233344', '1980-05-10', 'Ana');
+INSERT INTO contas (data_criacao, flag_ativo, id_pessoa, limite_saque_diario, saldo, tipo_conta)
+    VALUES ('2025-01-02 09:00:00', 1, 1, 500.00, 170.00, 1);
+-- Ids do AUTO_INCREMENT, com um buraco; a transação mais antiga define a primeira partição
+INSERT INTO transacoes (id_transacao, data_transacao, id_conta, tipo_transacao, valor) VALUES
+    (1, '2025-01-02 10:00:00', 1, 'DEPOSITO', 200.00),
+    (2, '2025-02-03 10:00:00', 1, 'SAQUE', 50.00),
+    (7, NULL, 1, 'DEPOSITO', 20.00);